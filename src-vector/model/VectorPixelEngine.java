@@ -0,0 +1,150 @@
+package model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The engine built on the Java Vector API, which works out as many values at once as the widest
+ * vectors of the machine hold. It is kept in its own source folder, since it can only be compiled
+ * and run with the jdk.incubator.vector module, and is only ever loaded by name. Products and sums
+ * are done as separate steps in the same order as the plain engine, never fused, so that every
+ * value comes out exactly the same.
+ */
+final class VectorPixelEngine implements PixelEngine {
+  //the widest vectors of doubles that the machine handles well
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+  //vectors of ints with as many values as the vectors of doubles
+  private static final VectorSpecies<Integer> INTS =
+      VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.length() * 32));
+  //the widest vectors of ints that the machine handles well
+  private static final VectorSpecies<Integer> WIDE_INTS = IntVector.SPECIES_PREFERRED;
+
+  /**
+   * Gets the name of this engine.
+   *
+   * @return the name of the engine
+   */
+  @Override
+  public String getName() {
+    return "vector";
+  }
+
+  /**
+   * Does a linear transformation of the RGB components of a row of pixels in place, gathering the
+   * same component of several pixels into one vector.
+   *
+   * @param row    the components of the row, with the components of a pixel next to each other
+   * @param pixels the number of pixels in the row
+   * @param comps  the number of components in each pixel, at least 3
+   * @param matrix a 3 x 3 matrix to use to transform the RGB components
+   * @param max    highest value that a component can have
+   */
+  @Override
+  public void transformRow(int[] row, int pixels, int comps, double[][] matrix, int max) {
+    int lanes = DOUBLES.length();
+    //the position of the same component of each pixel in a vector, from the first of them
+    int[] map = new int[lanes];
+    for (int lane = 0; lane < lanes; lane = lane + 1) {
+      map[lane] = lane * comps;
+    }
+    int pixel = 0;
+    for (; pixel <= pixels - lanes; pixel = pixel + lanes) {
+      int start = pixel * comps;
+      DoubleVector r = (DoubleVector) IntVector.fromArray(INTS, row, start, map, 0)
+          .convertShape(VectorOperators.I2D, DOUBLES, 0);
+      DoubleVector g = (DoubleVector) IntVector.fromArray(INTS, row, start + 1, map, 0)
+          .convertShape(VectorOperators.I2D, DOUBLES, 0);
+      DoubleVector b = (DoubleVector) IntVector.fromArray(INTS, row, start + 2, map, 0)
+          .convertShape(VectorOperators.I2D, DOUBLES, 0);
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        DoubleVector val = r.mul(matrix[comp][0]).add(g.mul(matrix[comp][1]))
+            .add(b.mul(matrix[comp][2]));
+        ((IntVector) val.convertShape(VectorOperators.D2I, INTS, 0)).max(0).min(max)
+            .intoArray(row, start + comp, map, 0);
+      }
+    }
+    //the pixels that do not fill a whole vector are done one at a time
+    for (int at = pixel * comps; at < pixels * comps; at = at + comps) {
+      int rBase = row[at];
+      int gBase = row[at + 1];
+      int bBase = row[at + 2];
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        int val = (int) (matrix[comp][0] * rBase + matrix[comp][1] * gBase
+            + matrix[comp][2] * bBase);
+        row[at + comp] = Math.max(0, Math.min(max, val));
+      }
+    }
+  }
+
+  /**
+   * Adds a change to the RGB components of a row of pixels in place, clamping the new values. Rows
+   * of only RGB components are done as one long run of values.
+   *
+   * @param row    the components of the row, with the components of a pixel next to each other
+   * @param pixels the number of pixels in the row
+   * @param comps  the number of components in each pixel, at least 3
+   * @param change the amount to add to each component
+   * @param max    highest value that a component can have
+   */
+  @Override
+  public void brightenRow(int[] row, int pixels, int comps, int change, int max) {
+    if (comps == 3) {
+      int length = pixels * 3;
+      int at = 0;
+      for (; at <= length - WIDE_INTS.length(); at = at + WIDE_INTS.length()) {
+        IntVector.fromArray(WIDE_INTS, row, at).add(change).max(0).min(max)
+            .intoArray(row, at);
+      }
+      for (; at < length; at = at + 1) {
+        row[at] = Math.max(0, Math.min(max, row[at] + change));
+      }
+      return;
+    }
+    int lanes = INTS.length();
+    int[] map = new int[lanes];
+    for (int lane = 0; lane < lanes; lane = lane + 1) {
+      map[lane] = lane * comps;
+    }
+    int pixel = 0;
+    for (; pixel <= pixels - lanes; pixel = pixel + lanes) {
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        int start = pixel * comps + comp;
+        IntVector.fromArray(INTS, row, start, map, 0).add(change).max(0).min(max)
+            .intoArray(row, start, map, 0);
+      }
+    }
+    //the pixels that do not fill a whole vector are done one at a time
+    for (int at = pixel * comps; at < pixels * comps; at = at + comps) {
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        row[at + comp] = Math.max(0, Math.min(max, row[at + comp] + change));
+      }
+    }
+  }
+
+  /**
+   * Adds a run of values times a weight to another run of values, a vector at a time.
+   *
+   * @param src        the values to add
+   * @param srcOffset  position of the first value to add
+   * @param weight     the weight to multiply the added values by
+   * @param dest       the values to add to
+   * @param destOffset position of the first value to add to
+   * @param length     the number of values
+   */
+  @Override
+  public void addScaled(double[] src, int srcOffset, double weight, double[] dest,
+                        int destOffset, int length) {
+    int i = 0;
+    for (; i <= length - DOUBLES.length(); i = i + DOUBLES.length()) {
+      DoubleVector.fromArray(DOUBLES, dest, destOffset + i)
+          .add(DoubleVector.fromArray(DOUBLES, src, srcOffset + i).mul(weight))
+          .intoArray(dest, destOffset + i);
+    }
+    for (; i < length; i = i + 1) {
+      dest[destOffset + i] = dest[destOffset + i] + weight * src[srcOffset + i];
+    }
+  }
+}
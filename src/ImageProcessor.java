@@ -9,6 +9,9 @@ import controller.IPGUIController;
 import controller.ImageProcessorController;
 import model.IPModelGuiImpl;
 import model.ImageProcessorModelImpl;
+import model.Parallelism;
+import model.PixelBufferPool;
+import model.PixelStorage;
 import view.ImageProcessorSwingView;
 import view.ImageProcessorTextView;
 
@@ -17,9 +20,12 @@ import view.ImageProcessorTextView;
  */
 public class ImageProcessor {
   /**
-   * Allows us to run our program using the given arguments. Options include "-script-file" to
-   * run a series of commands from a file, "-script-text" to run commands from the arguments, and
-   * "-manual" for the user to
+   * Allows us to run our program using the given arguments. Options include "-file" to run a
+   * series of commands from a file and "-text" for the user to type commands, and no arguments
+   * opens the GUI. A script file can be followed by "-budget" and a number of megabytes to keep the
+   * images in memory under that size, "-threads" and a number of threads to split images between,
+   * "-min-pixels" and the fewest pixels that an image needs to be split, and "-pool" and a number
+   * of megabytes of freed pixel arrays to keep for reuse.
    *
    * @param args arguments that we feed to the method
    */
@@ -32,10 +38,19 @@ public class ImageProcessor {
       switch (args[0]) {
         //allows the user to run a script from a file
         case "-file":
+          ImageProcessorModelImpl model;
+          try {
+            model = ImageProcessor.scriptModel(args);
+          } catch (IllegalArgumentException e) {
+            //only bad options are reported here, so errors while running the script are not
+            System.out.println(e.getMessage());
+            break;
+          }
           try {
             Reader inputFile = new FileReader(args[1]);
-            controller = new IPControllerImpl(new ImageProcessorModelImpl(),
-                new ImageProcessorTextView(System.out), inputFile);
+            //scripts are read whole, so images can be freed after their last use
+            controller = new IPControllerImpl(model, new ImageProcessorTextView(System.out),
+                inputFile, true);
             //starts the processor with the desired control method
             controller.modifyImages();
           } catch (FileNotFoundException e) {
@@ -55,4 +70,47 @@ public class ImageProcessor {
       }
     }
   }
+
+  /**
+   * Makes the model for running a script file. Scripts can be given "-budget" followed by a number
+   * of megabytes after the file name, in which case the least recently used images are spilled to
+   * disk once the images in memory take more than that. They can also be given "-threads" followed
+   * by a number of threads, in which case images are split between that many threads when they are
+   * filtered or changed a pixel at a time, and "-min-pixels" followed by the fewest pixels that an
+   * image needs to be split. With "-pool" followed by a number of megabytes, arrays of pixels that
+   * are no longer used are kept up to that size and reused by later images.
+   *
+   * @param args arguments that were given to the program
+   * @return the model to run the script on
+   * @throws IllegalArgumentException an option is not known or its value is not a whole number
+   */
+  private static ImageProcessorModelImpl scriptModel(String[] args) {
+    long budget = ImageProcessorModelImpl.NO_BUDGET;
+    int threads = 1;
+    long minPixels = Parallelism.DEFAULT_MIN_PIXELS;
+    PixelBufferPool pool = null;
+    for (int i = 2; i < args.length; i = i + 2) {
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("Option must be followed by a value");
+      }
+      try {
+        if (args[i].equals("-budget")) {
+          budget = Long.parseLong(args[i + 1]) * 1024 * 1024;
+        } else if (args[i].equals("-threads")) {
+          threads = Integer.parseInt(args[i + 1]);
+        } else if (args[i].equals("-min-pixels")) {
+          minPixels = Long.parseLong(args[i + 1]);
+        } else if (args[i].equals("-pool")) {
+          pool = new PixelBufferPool(Long.parseLong(args[i + 1]) * 1024 * 1024);
+        } else {
+          throw new IllegalArgumentException("Option is not known");
+        }
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Option must be a whole number");
+      }
+    }
+    ImageProcessorModelImpl model = new ImageProcessorModelImpl(PixelStorage.HEAP, pool, budget);
+    model.setParallelism(new Parallelism(threads, minPixels));
+    return model;
+  }
 }
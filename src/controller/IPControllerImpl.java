@@ -1,23 +1,35 @@
 package controller;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.util.function.Function;
 
+import controller.commands.AffineCommand;
 import controller.commands.Brightness;
 import controller.commands.Command;
+import controller.commands.ComposedLookup;
+import controller.commands.ComposedTransform;
 import controller.commands.Filter;
 import controller.commands.Filters;
+import controller.commands.Gamma;
 import controller.commands.HFlip;
+import controller.commands.Invert;
 import controller.commands.Load;
+import controller.commands.LookupCommand;
 import controller.commands.MixVis;
+import controller.commands.PointCommand;
+import controller.commands.PointPipeline;
+import controller.commands.Posterize;
 import controller.commands.Save;
 import controller.commands.Transform;
 import controller.commands.Transformation;
 import controller.commands.VFlip;
+import model.BorderMode;
 import model.ImageModel;
 import model.ImageProcessorModel;
 import view.ImageProcessorView;
@@ -35,8 +47,14 @@ public class IPControllerImpl implements ImageProcessorController {
   private final Readable in;
   //list of all modifications that we can make on an image
   private final Map<String, Function<Scanner, Command>> knownMods;
+  //color transformations that can be a step of a tone, by the name of their command
+  private final Map<String, Transformation> toneSteps;
   //tells us if the program is running or not
   private boolean isRunning;
+  //tells us if the memory used by the images is reported after each command
+  private boolean reportMemory;
+  //tells us if images are removed from the model after the last command of a script that uses them
+  private final boolean freeDeadImages;
 
   /**
    * Constructs a controller using a given input object to read from.
@@ -47,6 +65,24 @@ public class IPControllerImpl implements ImageProcessorController {
    * @throws IllegalArgumentException given parameters can not be null
    */
   public IPControllerImpl(ImageProcessorModel images, ImageProcessorView view, Readable in) {
+    this(images, view, in, false);
+  }
+
+  /**
+   * Constructs a controller using a given input object to read from, which can free images that
+   * a script no longer uses. When freeing them, the whole input is read as a script before any of
+   * it is carried out, and each image in the model is removed right after the last command of the
+   * script that reads or places it. Only meant for input that is a whole script, like a file, and
+   * not for input typed in by the user while the program runs.
+   *
+   * @param images         map of images
+   * @param view           way that we view the images
+   * @param in             object from which input is read from
+   * @param freeDeadImages true to remove images after the last command that uses them
+   * @throws IllegalArgumentException given parameters can not be null
+   */
+  public IPControllerImpl(ImageProcessorModel images, ImageProcessorView view, Readable in,
+                          boolean freeDeadImages) {
     //exception if any of the inputs are null
     if (images == null || view == null || in == null) {
       throw new IllegalArgumentException("Given input source can not be null");
@@ -57,6 +93,9 @@ public class IPControllerImpl implements ImageProcessorController {
     this.in = in;
     //we are not running until we do modifyImage(), so this is set to false at the start
     this.isRunning = false;
+    //memory is only reported once asked for
+    this.reportMemory = false;
+    this.freeDeadImages = freeDeadImages;
     //adds all the known commands to the list (can be expanded as needed)
     this.knownMods = new HashMap<String, Function<Scanner, Command>>();
     //commands to get the individual RGB components in greyscale
@@ -83,12 +122,30 @@ public class IPControllerImpl implements ImageProcessorController {
     //brightening and darkening an image
     this.knownMods.put("brighten", s -> new Brightness(s.nextInt(), false, s.next(), s.next()));
     this.knownMods.put("darken", s -> new Brightness(s.nextInt(), true, s.next(), s.next()));
+    //changes to each component by itself
+    this.knownMods.put("invert", s -> new Invert(s.next(), s.next()));
+    this.knownMods.put("gamma", s -> new Gamma(s.nextDouble(), s.next(), s.next()));
+    this.knownMods.put("posterize", s -> new Posterize(s.nextInt(), s.next(), s.next()));
     //filtering effects on images
     this.knownMods.put("blur", s -> new Filter(Filters.Blur, s.next(), s.next()));
     this.knownMods.put("sharpen", s -> new Filter(Filters.Sharpen, s.next(), s.next()));
+    this.knownMods.put("blur-border", s -> this.bordered(Filters.Blur, s.next(), s.next(),
+        s.next()));
+    this.knownMods.put("sharpen-border", s -> this.bordered(Filters.Sharpen, s.next(), s.next(),
+        s.next()));
     //loading and saving commands for an image
     this.knownMods.put("load", s -> new Load(s.next(), s.next()));
     this.knownMods.put("save", s -> new Save(s.next(), s.next()));
+    //color transformations and brightness changes composed into one
+    this.knownMods.put("tone", s -> this.tone(s.next(), s.next(), s.next()));
+    this.toneSteps = new HashMap<String, Transformation>();
+    this.toneSteps.put("red-component", Transformation.Red);
+    this.toneSteps.put("green-component", Transformation.Green);
+    this.toneSteps.put("blue-component", Transformation.Blue);
+    this.toneSteps.put("intensity-component", Transformation.Intensity);
+    this.toneSteps.put("luma-component", Transformation.Luma);
+    this.toneSteps.put("greyscale", Transformation.Luma);
+    this.toneSteps.put("sepia", Transformation.Sepia);
   }
 
   /**
@@ -105,14 +162,18 @@ public class IPControllerImpl implements ImageProcessorController {
     Scanner sc = new Scanner(this.in);
     //boolean value that allows us to quit the game in manual mode
     this.isRunning = true;
-    //keeps going until we run out of commands or have quit manually
-    while (this.isRunning && sc.hasNext()) {
-      try {
-        String input = sc.next();
-        this.execute(input, sc);
-      } catch (NoSuchElementException e) {
-        //means that we could not read input, or we ran out of elements while giving a command
-        this.transmitMessage("Inputs are invalid");
+    if (this.freeDeadImages) {
+      this.runScript(sc);
+    } else {
+      //keeps going until we run out of commands or have quit manually
+      while (this.isRunning && sc.hasNext()) {
+        try {
+          String input = sc.next();
+          this.execute(input, sc);
+        } catch (NoSuchElementException e) {
+          //means that we could not read input, or we ran out of elements while giving a command
+          this.transmitMessage("Inputs are invalid");
+        }
       }
     }
     //tells that the running of the method has ended
@@ -130,6 +191,8 @@ public class IPControllerImpl implements ImageProcessorController {
     //this input means we quit the game
     if (input.equals("quit")) {
       this.isRunning = false;
+    } else if (input.equals("memory-report")) {
+      this.setMemoryReport(sc.next());
     } else {
       //checks that we were given a valid command
       Function<Scanner, Command> mod = this.knownMods.getOrDefault(input, null);
@@ -139,9 +202,7 @@ public class IPControllerImpl implements ImageProcessorController {
       } else {
         //we try to apply the command since the controller knows it
         try {
-          Command m = mod.apply(sc);
-          //renders out the image using it and the key, since exception was not thrown
-          this.transmitImage(m.apply(this.images), m.getPlace());
+          this.run(mod.apply(sc));
         } catch (IllegalArgumentException e) {
           //error in user input, so we tell the user the error through the view
           this.transmitMessage(e.getMessage());
@@ -150,6 +211,274 @@ public class IPControllerImpl implements ImageProcessorController {
     }
   }
 
+  /**
+   * Makes a command that composes color transformations and changes in brightness into one. The
+   * steps are separated by commas, and are either the name of a color transformation command or
+   * brighten:N or darken:N to change the brightness by N.
+   *
+   * @param steps  the steps of the tone, separated by commas
+   * @param source key of the source image
+   * @param place  key of the new image
+   * @return the composed command
+   * @throws IllegalArgumentException one of the steps is not known
+   */
+  private Command tone(String steps, String source, String place) {
+    String[] names = steps.split(",");
+    List<AffineCommand> chain = new ArrayList<AffineCommand>();
+    for (int i = 0; i < names.length; i = i + 1) {
+      //the images in between are never placed, so their keys only need to form a chain
+      String from = source;
+      if (i > 0) {
+        from = place + "#" + i;
+      }
+      String to = place;
+      if (i < names.length - 1) {
+        to = place + "#" + (i + 1);
+      }
+      chain.add(this.toneStep(names[i], from, to));
+    }
+    return new ComposedTransform(chain);
+  }
+
+  /**
+   * Makes a filter command that reads past the edges of the image as the named border mode says,
+   * once every token of the command has been read.
+   *
+   * @param f      the filter to apply
+   * @param mode   name of the border mode
+   * @param source key of the source image
+   * @param place  key that the filtered image is placed at
+   * @return the filter command
+   * @throws IllegalArgumentException the border mode is not known
+   */
+  private Command bordered(Filters f, String mode, String source, String place) {
+    return new Filter(f, this.border(mode), source, place);
+  }
+
+  /**
+   * Gets the border mode with the given name, which is zero, clamp, mirror, or wrap.
+   *
+   * @param name name of the border mode
+   * @return the border mode
+   * @throws IllegalArgumentException the border mode is not known
+   */
+  private BorderMode border(String name) {
+    for (BorderMode mode : BorderMode.values()) {
+      if (mode.name().toLowerCase().equals(name)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException("Border mode is not known");
+  }
+
+  /**
+   * Makes the command for one step of a tone.
+   *
+   * @param name   name of the step
+   * @param source key that the step reads
+   * @param place  key that the step places
+   * @return the command for the step
+   * @throws IllegalArgumentException the step is not known
+   */
+  private AffineCommand toneStep(String name, String source, String place) {
+    if (this.toneSteps.containsKey(name)) {
+      return new Transform(this.toneSteps.get(name), source, place);
+    }
+    String[] parts = name.split(":");
+    if (parts.length == 2 && (parts[0].equals("brighten") || parts[0].equals("darken"))) {
+      try {
+        return new Brightness(Integer.parseInt(parts[1]), parts[0].equals("darken"), source,
+            place);
+      } catch (NumberFormatException e) {
+        //falls through to the step not being known
+      }
+    }
+    throw new IllegalArgumentException("Tone step is not known");
+  }
+
+  /**
+   * Reads the whole input as a script, finds the last step that uses each image, and then
+   * carries out the steps in order, removing each image from the model right after its last use.
+   * Runs of point commands where each one reads what the one before it placed, and where nothing
+   * else uses the images in between, are carried out together in one pass over the pixels.
+   * Messages come out in the same order as when carrying out each command as it is read.
+   *
+   * @param sc scanner object to read from
+   * @throws IllegalStateException could not transmit to output properly
+   */
+  private void runScript(Scanner sc) {
+    List<Runnable> steps = new ArrayList<Runnable>();
+    //the point command of each step, or null if the step can not be fused with its neighbours
+    List<PointCommand> points = new ArrayList<PointCommand>();
+    //tells us if memory will be reported at the current step, since fusing would skip reports
+    boolean reporting = false;
+    //index of the last step that reads or places each image
+    Map<String, Integer> lastUse = new HashMap<String, Integer>();
+    boolean quit = false;
+    while (!quit && sc.hasNext()) {
+      try {
+        String input = sc.next();
+        Function<Scanner, Command> mod = this.knownMods.getOrDefault(input, null);
+        if (input.equals("quit")) {
+          quit = true;
+        } else if (input.equals("memory-report")) {
+          String setting = sc.next();
+          if (setting.equals("on") || setting.equals("off")) {
+            reporting = setting.equals("on");
+          }
+          points.add(null);
+          steps.add(() -> this.setMemoryReport(setting));
+        } else if (mod == null) {
+          points.add(null);
+          steps.add(() -> this.transmitMessage("Invalid command"));
+        } else {
+          try {
+            Command m = mod.apply(sc);
+            if (m.getSourceImage() != null) {
+              lastUse.put(m.getSourceImage(), steps.size());
+            }
+            if (m.getPlacedImage() != null) {
+              lastUse.put(m.getPlacedImage(), steps.size());
+            }
+            if (m instanceof PointCommand && !reporting) {
+              points.add((PointCommand) m);
+            } else {
+              points.add(null);
+            }
+            steps.add(() -> this.run(m));
+          } catch (IllegalArgumentException e) {
+            points.add(null);
+            steps.add(() -> this.transmitMessage(e.getMessage()));
+          }
+        }
+      } catch (NoSuchElementException e) {
+        points.add(null);
+        steps.add(() -> this.transmitMessage("Inputs are invalid"));
+      }
+    }
+    this.fusePoints(steps, points, lastUse);
+    //images to remove after each step
+    Map<Integer, List<String>> deadAfter = new HashMap<Integer, List<String>>();
+    for (Map.Entry<String, Integer> use : lastUse.entrySet()) {
+      deadAfter.computeIfAbsent(use.getValue(), k -> new ArrayList<String>()).add(use.getKey());
+    }
+    for (int i = 0; i < steps.size(); i = i + 1) {
+      steps.get(i).run();
+      for (String key : deadAfter.getOrDefault(i, new ArrayList<String>())) {
+        this.images.removeImageAt(key);
+      }
+    }
+    this.isRunning = false;
+  }
+
+  /**
+   * Replaces each run of point commands that can be carried out together with a single step that
+   * runs them as a pipeline, leaving the other steps of the run with nothing to do. A command joins
+   * the run before it when it reads the image that the previous command placed, and that image is
+   * either replaced by the command or not used by any later step.
+   *
+   * @param steps   the steps of the script, in order
+   * @param points  the point command of each step, or null if the step can not be fused
+   * @param lastUse index of the last step that reads or places each image
+   */
+  private void fusePoints(List<Runnable> steps, List<PointCommand> points,
+                          Map<String, Integer> lastUse) {
+    int start = 0;
+    while (start < steps.size()) {
+      int end = start + 1;
+      if (points.get(start) != null) {
+        while (end < steps.size() && points.get(end) != null) {
+          String between = points.get(end - 1).getPlace();
+          PointCommand next = points.get(end);
+          //the next command must read the image in between, which nothing after it may need
+          if (!next.getSourceImage().equals(between)
+              || (lastUse.get(between) != end && !next.getPlace().equals(between))) {
+            break;
+          }
+          end = end + 1;
+        }
+      }
+      if (end - start > 1) {
+        List<PointCommand> run = new ArrayList<PointCommand>(points.subList(start, end));
+        steps.set(start, () -> this.runPipeline(run));
+        for (int i = start + 1; i < end; i = i + 1) {
+          steps.set(i, () -> { });
+        }
+      }
+      start = end;
+    }
+  }
+
+  /**
+   * Carries out a chain of point commands in one pass and renders the image of each of them, as
+   * if they had been applied one at a time. A chain of only lookup commands is carried out as a
+   * single lookup. If the chain can not be carried out, the commands are applied one at a time
+   * instead, so that each of them gives its own message.
+   *
+   * @param run the commands to carry out, in order
+   * @throws IllegalStateException could not transmit to output properly
+   */
+  private void runPipeline(List<PointCommand> run) {
+    List<LookupCommand> lookups = new ArrayList<LookupCommand>();
+    for (PointCommand m : run) {
+      if (m instanceof LookupCommand) {
+        lookups.add((LookupCommand) m);
+      }
+    }
+    ImageModel result;
+    try {
+      if (lookups.size() == run.size()) {
+        result = new ComposedLookup(lookups).apply(this.images);
+      } else {
+        result = new PointPipeline(run).apply(this.images);
+      }
+    } catch (IllegalArgumentException e) {
+      //the pipeline leaves the model untouched when it fails, so each command can be run by itself
+      for (PointCommand m : run) {
+        this.run(m);
+      }
+      return;
+    }
+    //every command in the chain keeps the size of the image, so they all render the same way
+    for (PointCommand m : run) {
+      this.transmitImage(result, m.getPlace());
+    }
+  }
+
+  /**
+   * Applies a command to the model and renders the image that it made, followed by the memory
+   * used by the images if that is being reported.
+   *
+   * @param m command to apply
+   * @throws IllegalStateException could not transmit to output properly
+   */
+  private void run(Command m) {
+    try {
+      //renders out the image using it and the key, since exception was not thrown
+      this.transmitImage(m.apply(this.images), m.getPlace());
+      if (this.reportMemory) {
+        this.transmitMessage(this.images.getMemorySummary().toString());
+      }
+    } catch (IllegalArgumentException e) {
+      //error in user input, so we tell the user the error through the view
+      this.transmitMessage(e.getMessage());
+    }
+  }
+
+  /**
+   * Turns the report of memory after each command on or off.
+   *
+   * @param setting on or off
+   * @throws IllegalStateException could not transmit to output properly
+   */
+  private void setMemoryReport(String setting) {
+    if (setting.equals("on") || setting.equals("off")) {
+      this.reportMemory = setting.equals("on");
+    } else {
+      this.transmitMessage("Memory report must be on or off");
+    }
+  }
+
   /**
    * Transmits a message to the view's output destination.
    *
@@ -1,5 +1,15 @@
 package controller.commands;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import model.ImageModel;
+import model.ImageProcessorModel;
+import model.Parallelism;
+import model.RawPixels;
+
 /**
  * Abstract class for commands that implements common aspects of them, like the need to specify
  * a source and destination image for a model.
@@ -21,6 +31,52 @@ public abstract class ACommand implements Command {
     this.place = place;
   }
 
+  /**
+   * Changes the image that this command writes to and places it at the key of this command. When
+   * the command places its result back at its source, the model makes the change and places the
+   * result in one step, so changes that other threads make to that key are not lost, and no copy
+   * is made unless something else in the model still refers to the image. Otherwise a copy of the
+   * source is changed, which shares its pixels until the first write. Nothing is placed if the
+   * change throws an exception.
+   *
+   * @param images collection of images to look through
+   * @param change the change to make to the image, which gives back the image to place
+   * @return the image that was placed
+   * @throws IllegalArgumentException source image is not in the collection
+   */
+  protected ImageModel changeTarget(ImageProcessorModel images,
+                                    UnaryOperator<ImageModel> change) {
+    if (this.source.equals(this.place)) {
+      return images.updateImageAt(this.place, change);
+    }
+    ImageModel image = change.apply(images.readImageAt(this.source, ImageModel::getImageCopy));
+    images.setImageAt(image, this.place);
+    return image;
+  }
+
+  /**
+   * Makes a change to every pixel of an image, a block of its buffers at a time. Blocks of large
+   * enough images are split into parts that are changed at the same time on the threads of the
+   * model, so the change must only touch the pixels of the block it is given and must be safe to
+   * make from several threads at once.
+   *
+   * @param images collection of images that the image belongs to, which gives the threads to use
+   * @param image  the image to change
+   * @param change the change to make to each block
+   */
+  protected static void forEachBlock(ImageProcessorModel images, ImageModel image,
+                                     Consumer<RawPixels> change) {
+    Parallelism parallelism = images.getParallelism();
+    List<Runnable> parts = new ArrayList<Runnable>();
+    for (RawPixels block : RawPixels.split(image.getRawPixels(true),
+        parallelism.partsFor(image))) {
+      parts.add(() -> change.accept(block));
+    }
+    parallelism.runAll(parts);
+    //parts of the image without storage of their own read as a fill, which is changed once
+    image.mapFill(change);
+  }
+
   /**
    * Returns the location of the newly created image by its key.
    *
@@ -30,4 +86,24 @@ public abstract class ACommand implements Command {
   public String getPlace() {
     return this.place;
   }
+
+  /**
+   * Returns the key of the image in the collection that this command reads.
+   *
+   * @return the key of the source image
+   */
+  @Override
+  public String getSourceImage() {
+    return this.source;
+  }
+
+  /**
+   * Returns the key of the image in the collection that this command places.
+   *
+   * @return the key of the image to be created
+   */
+  @Override
+  public String getPlacedImage() {
+    return this.place;
+  }
 }
@@ -0,0 +1,16 @@
+package controller.commands;
+
+/**
+ * Represents a point command whose change to the RGB components of a pixel is an affine map,
+ * meaning that each new component is a linear combination of the old ones plus an offset, before
+ * it is cast to an integer and clamped. Such commands can be composed into a single map.
+ */
+public interface AffineCommand extends PointCommand {
+  /**
+   * Gets the affine map of this command as a 3x4 matrix, arranged in [RGB comp] * [factors], where
+   * the first three factors multiply the red, green, and blue components and the last is added.
+   *
+   * @return a copy of the map as a 3x4 array of double values
+   */
+  double[][] getAffineMatrix();
+}
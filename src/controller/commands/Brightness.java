@@ -1,12 +1,13 @@
 package controller.commands;
 
-import model.ImageModel;
-import model.ImageProcessorModel;
+import model.PixelEngines;
+import model.RawPixels;
 
 /**
- * Brightens or darkens the image through the given value by adding it to the given pixels.
+ * Brightens or darkens the image through the given value by adding it to the given pixels. The
+ * new values are worked out by the pixel engine, which can do many components at once.
  */
-public class Brightness extends ACommand {
+public class Brightness extends LookupCommand implements AffineCommand {
   //value to brighten/darken by (positive/negative respectively)
   private final int changeVal;
 
@@ -34,35 +35,44 @@ public class Brightness extends ACommand {
   }
 
   /**
-   * Brightens up the image by the key and saves it to another location. Should still keep
-   * the source image as it was in its original location (unless the new photo is in the same one).
-   * If the new value from changing the brightness exceeds a lower or upper limit, we clamp to one
-   * of those bounds (0 or max color value for an image).
+   * Gets the brightened or darkened value of a component. If the new value exceeds a lower or
+   * upper limit, we clamp to one of those bounds (0 or max color value for an image).
    *
-   * @param images collection of images to look through
-   * @return the final image after all modifications
-   * @throws IllegalArgumentException image does not support brightness change
+   * @param comp        the RGB component, 0 for red, 1 for green, and 2 for blue
+   * @param value       the old value of the component, between 0 and the max color value
+   * @param maxColorVal highest value that a component can have
+   * @return the new value of the component
    */
   @Override
-  public ImageModel apply(ImageProcessorModel images) {
-    //gets a copy of the old image to keep the source unmodified
-    ImageModel image = images.getImageAt(this.source).getImageCopy();
-    //not enough components to do RGB brightness change
-    if (image.getNumComponents() < 3) {
-      throw new IllegalArgumentException("Image type must support at least 3 components");
-    }
-    //goes through every pixel
-    for (int width = 0; width < image.getWidth(); width = width + 1) {
-      for (int height = 0; height < image.getHeight(); height = height + 1) {
-        for (int comp = 0; comp < 3; comp = comp + 1) {
-          int newVal = image.getComponentValue(width, height, comp) + this.changeVal;
-          //changes the value by the specified amount, clamping if necessary
-          image.setComponentValue(width, height, comp,
-              Math.max(0, Math.min(image.getMaxColorValue(), newVal)));
-        }
-      }
+  protected int lookup(int comp, int value, int maxColorVal) {
+    return Math.max(0, Math.min(maxColorVal, value + this.changeVal));
+  }
+
+  /**
+   * Brightens or darkens one block of an image through the pixel engine, which gives the same
+   * values as the tables while doing many components at once.
+   *
+   * @param block the block to change
+   */
+  @Override
+  protected void applyToBlock(RawPixels block) {
+    PixelEngines.brighten(block, this.changeVal);
+  }
+
+  /**
+   * Gets the change in brightness as an affine map, which keeps each component and adds the
+   * change to it.
+   *
+   * @return a copy of the map as a 3x4 array of double values
+   */
+  @Override
+  public double[][] getAffineMatrix() {
+    double[][] out = new double[3][4];
+    for (int r = 0; r < 3; r = r + 1) {
+      //keeps the component as it is and adds the change to it
+      out[r][r] = 1.0;
+      out[r][3] = this.changeVal;
     }
-    images.setImageAt(image, this.place);
-    return image;
+    return out;
   }
 }
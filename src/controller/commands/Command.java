@@ -24,4 +24,18 @@ public interface Command {
    * @return the key for the image to be created
    */
   String getPlace();
+
+  /**
+   * Returns the key of the image in the collection that this command reads, if any.
+   *
+   * @return the key of the image that is read, or null if the command reads none
+   */
+  String getSourceImage();
+
+  /**
+   * Returns the key of the image in the collection that this command places, if any.
+   *
+   * @return the key of the image that is placed, or null if the command places none
+   */
+  String getPlacedImage();
 }
@@ -0,0 +1,41 @@
+package controller.commands;
+
+import java.util.List;
+
+/**
+ * Carries out a chain of lookup commands as a single lookup, whose table gives the value that a
+ * component would have after going through every command in order. Since each command already
+ * clamps its own values, the result is exactly the same as applying the commands one at a time.
+ */
+public class ComposedLookup extends LookupCommand {
+  //the commands to look each value up in, in order
+  private final LookupCommand[] steps;
+
+  /**
+   * Constructs a composed lookup from a chain of lookup commands. It reads the source of the first
+   * command and places its result where the last command places its image.
+   *
+   * @param steps the commands to compose, in order
+   * @throws IllegalArgumentException list is null or empty, or the commands do not form a chain
+   */
+  public ComposedLookup(List<LookupCommand> steps) {
+    super(PointPipeline.chain(steps).getSourceImage(), steps.get(steps.size() - 1).getPlace());
+    this.steps = steps.toArray(new LookupCommand[0]);
+  }
+
+  /**
+   * Gets the new value of a component by looking it up in each command in turn.
+   *
+   * @param comp        the RGB component, 0 for red, 1 for green, and 2 for blue
+   * @param value       the old value of the component, between 0 and the max color value
+   * @param maxColorVal highest value that a component can have
+   * @return the new value of the component
+   */
+  @Override
+  protected int lookup(int comp, int value, int maxColorVal) {
+    for (LookupCommand step : this.steps) {
+      value = step.lookup(comp, value, maxColorVal);
+    }
+    return value;
+  }
+}
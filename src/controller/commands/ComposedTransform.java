@@ -0,0 +1,231 @@
+package controller.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.ImageModel;
+import model.ImageProcessorModel;
+
+/**
+ * Carries out a chain of affine commands, like color transformations and changes in brightness,
+ * by folding them into as few 3x4 matrices as possible and applying those in a single pass. Two
+ * commands are only folded together when clamping the image in between could not change it for
+ * any pixel, so clamping happens exactly where it matters. The values in between folded commands
+ * are not cast to integers, so the result can be slightly more accurate than applying the
+ * commands one at a time, which rounds down after each of them.
+ */
+public class ComposedTransform extends ACommand implements PointCommand {
+  //the affine map of each command, in order
+  private final double[][][] steps;
+  //the folded maps that were last made, or null if they were never made, which may be read and
+  //replaced by several threads at once since folded maps never change once they are made
+  private Plan plan;
+
+  /**
+   * Constructs a composed transform from a chain of affine commands. It reads the source of the
+   * first command and places its result where the last command places its image.
+   *
+   * @param steps the commands to compose, in order
+   * @throws IllegalArgumentException list is null or empty, or the commands do not form a chain
+   */
+  public ComposedTransform(List<AffineCommand> steps) {
+    super(PointPipeline.chain(steps).getSourceImage(), steps.get(steps.size() - 1).getPlace());
+    this.steps = new double[steps.size()][][];
+    for (int i = 0; i < steps.size(); i = i + 1) {
+      this.steps[i] = steps.get(i).getAffineMatrix();
+    }
+    this.plan = null;
+  }
+
+  /**
+   * Carries out the composed transform on the source image in one pass, and places the result at
+   * the key of the last command.
+   *
+   * @param images collection of images we will look through
+   * @return the final image after all modifications
+   * @throws IllegalArgumentException image specified in collection does not support RGB
+   */
+  @Override
+  public ImageModel apply(ImageProcessorModel images) {
+    //checks the source before taking it, so that a failed transform leaves everything untouched
+    if (images.getImageAt(this.source).getNumComponents() < 3) {
+      throw new IllegalArgumentException("Image type must support at least 3 components");
+    }
+    //gets a copy of the source so that it remains unmodified, or the image itself when the
+    //result goes back in its place and nothing else refers to it
+    return this.changeTarget(images, image -> {
+      //goes straight through the buffers of the image, a block and then a row at a time, with
+      //large images split between the threads of the model
+      forEachBlock(images, image, block -> {
+        int[] rgb = new int[3];
+        int comps = block.getNumComponents();
+        int max = block.getMaxColorValue();
+        for (int height = block.getRow(); height < block.getRow() + block.getHeight();
+             height = height + 1) {
+          int pixel = block.index(block.getCol(), height);
+          int end = pixel + block.getWidth() * comps;
+          for (; pixel < end; pixel = pixel + comps) {
+            rgb[0] = block.get(pixel);
+            rgb[1] = block.get(pixel + 1);
+            rgb[2] = block.get(pixel + 2);
+            this.applyToPixel(rgb, max);
+            block.set(pixel, rgb[0]);
+            block.set(pixel + 1, rgb[1]);
+            block.set(pixel + 2, rgb[2]);
+          }
+        }
+      });
+      return image;
+    });
+  }
+
+  /**
+   * Runs the RGB components of a pixel through each of the folded maps, casting the new values to
+   * integers and clamping them to be between 0 and the max color value after each map.
+   *
+   * @param rgb         the red, green, and blue components of the pixel, changed in place
+   * @param maxColorVal highest value that a component can have
+   */
+  @Override
+  public void applyToPixel(int[] rgb, int maxColorVal) {
+    for (double[][] map : this.planFor(maxColorVal)) {
+      //temporarily stores the base values for each component
+      int rBase = rgb[0];
+      int gBase = rgb[1];
+      int bBase = rgb[2];
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        double[] row = map[comp];
+        int val = (int) (row[0] * rBase + row[1] * gBase + row[2] * bBase + row[3]);
+        rgb[comp] = Math.max(0, Math.min(maxColorVal, val));
+      }
+    }
+  }
+
+  /**
+   * Gets the folded maps for images with the given max color value, making them if the last ones
+   * were made for a different max color value. Threads that make maps at the same time each make
+   * their own, and only one of them is kept.
+   *
+   * @param maxColorVal highest value that a component can have
+   * @return the folded maps, in order
+   */
+  private double[][][] planFor(int maxColorVal) {
+    Plan last = this.plan;
+    if (last == null || last.max != maxColorVal) {
+      last = new Plan(maxColorVal, this.fold(maxColorVal));
+      this.plan = last;
+    }
+    return last.maps;
+  }
+
+  /**
+   * Folds the maps of the commands together. The range of each component is followed through the
+   * maps, and a map is only ended when the clamp after it could change a component, which is when
+   * a value could be at or below -1 or at or above one more than the max color value before being
+   * cast to an integer.
+   *
+   * @param maxColorVal highest value that a component can have
+   * @return the folded maps, in order
+   */
+  private double[][][] fold(int maxColorVal) {
+    List<double[][]> out = new ArrayList<double[][]>();
+    //the lowest and highest values that each component can have going into the current map
+    double[] low = {0, 0, 0};
+    double[] high = {maxColorVal, maxColorVal, maxColorVal};
+    double[][] current = null;
+    for (double[][] step : this.steps) {
+      if (current != null) {
+        double[] newLow = new double[3];
+        double[] newHigh = new double[3];
+        range(current, low, high, newLow, newHigh);
+        boolean clamps = false;
+        for (int comp = 0; comp < 3; comp = comp + 1) {
+          clamps = clamps || newLow[comp] <= -1 || newHigh[comp] >= maxColorVal + 1;
+        }
+        if (clamps) {
+          //the clamp in between matters, so the current map ends here
+          out.add(current);
+          current = null;
+          for (int comp = 0; comp < 3; comp = comp + 1) {
+            low[comp] = Math.max(0, newLow[comp]);
+            high[comp] = Math.min(maxColorVal, newHigh[comp]);
+          }
+        }
+      }
+      if (current == null) {
+        current = step;
+      } else {
+        current = compose(step, current);
+      }
+    }
+    out.add(current);
+    return out.toArray(new double[0][][]);
+  }
+
+  /**
+   * Finds the lowest and highest value that each component can have after an affine map, given
+   * the lowest and highest value that each component can have before it.
+   *
+   * @param map     the affine map as a 3x4 matrix
+   * @param low     lowest value of each component before the map
+   * @param high    highest value of each component before the map
+   * @param outLow  where the lowest value of each component after the map is put
+   * @param outHigh where the highest value of each component after the map is put
+   */
+  private static void range(double[][] map, double[] low, double[] high, double[] outLow,
+                            double[] outHigh) {
+    for (int comp = 0; comp < 3; comp = comp + 1) {
+      outLow[comp] = map[comp][3];
+      outHigh[comp] = map[comp][3];
+      for (int factor = 0; factor < 3; factor = factor + 1) {
+        double atLow = map[comp][factor] * low[factor];
+        double atHigh = map[comp][factor] * high[factor];
+        outLow[comp] = outLow[comp] + Math.min(atLow, atHigh);
+        outHigh[comp] = outHigh[comp] + Math.max(atLow, atHigh);
+      }
+    }
+  }
+
+  /**
+   * Composes two affine maps into one that does the first and then the second.
+   *
+   * @param second the map that is done last
+   * @param first  the map that is done first
+   * @return the composed map as a 3x4 matrix
+   */
+  private static double[][] compose(double[][] second, double[][] first) {
+    double[][] out = new double[3][4];
+    for (int r = 0; r < 3; r = r + 1) {
+      //the offset of the second map is added once, and the offsets of the first are mixed
+      out[r][3] = second[r][3];
+      for (int k = 0; k < 3; k = k + 1) {
+        for (int c = 0; c < 4; c = c + 1) {
+          out[r][c] = out[r][c] + second[r][k] * first[k][c];
+        }
+      }
+    }
+    return out;
+  }
+
+  /**
+   * The folded maps for one max color value, with a clamp after each of them. Its fields are
+   * final, so a thread that sees the maps also sees all of their values.
+   */
+  private static final class Plan {
+    //the max color value that the maps were made for
+    private final int max;
+    //the folded maps, in order
+    private final double[][][] maps;
+
+    /**
+     * Constructs the folded maps for a max color value.
+     *
+     * @param max  the max color value that the maps were made for
+     * @param maps the folded maps, in order
+     */
+    private Plan(int max, double[][][] maps) {
+      this.max = max;
+      this.maps = maps;
+    }
+  }
+}
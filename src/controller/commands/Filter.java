@@ -1,5 +1,6 @@
 package controller.commands;
 
+import model.BorderMode;
 import model.ImageModel;
 import model.ImageProcessorModel;
 
@@ -9,6 +10,8 @@ import model.ImageProcessorModel;
 public class Filter extends ACommand {
   //filter that this command will do an image
   private final Filters f;
+  //what is read for pixels past the edges of the image
+  private final BorderMode border;
 
   /**
    * Command to apply a filter on an image, using an odd-dimension kernel to apply the filter.
@@ -18,11 +21,29 @@ public class Filter extends ACommand {
    * @param place  the name we stroe the new image as
    */
   public Filter(Filters f, String source, String place) {
+    this(f, BorderMode.ZERO, source, place);
+  }
+
+  /**
+   * Command to apply a filter on an image, reading the pixels that the kernel reaches past the
+   * edges of the image as the border mode says.
+   *
+   * @param f      the filter that we are to apply to the image in the model; the kernel
+   * @param border what is read for pixels past the edges of the image
+   * @param source name of the image in the model we apply the filter on
+   * @param place  the name we stroe the new image as
+   * @throws IllegalArgumentException filter or border mode is null
+   */
+  public Filter(Filters f, BorderMode border, String source, String place) {
     super(source, place);
     if (f == null) {
       throw new IllegalArgumentException("Filter can not be null");
     }
+    if (border == null) {
+      throw new IllegalArgumentException("Border mode can not be null");
+    }
     this.f = f;
+    this.border = border;
   }
 
   /**
@@ -37,15 +58,17 @@ public class Filter extends ACommand {
    */
   @Override
   public ImageModel apply(ImageProcessorModel images) {
-    //gets a copy of the image so that it does not modify the original
-    ImageModel image = images.getImageAt(this.source).getImageCopy();
-    //throws an exception if the image does not support 3 components
-    if (image.getNumComponents() < 3) {
-      throw new IllegalArgumentException("Image type must support at least 3 components");
-    }
-    //sets the image and then does the right transformation on it
-    images.setImageAt(image, this.place);
-    images.filterImage(this.place, this.f.getKernel());
-    return image;
+    //gets a copy of the source so that it remains unmodified, or the image itself when the
+    //result goes back in its place and nothing else refers to it
+    this.changeTarget(images, image -> {
+      //throws an exception if the image does not support 3 components
+      if (image.getNumComponents() < 3) {
+        throw new IllegalArgumentException("Image type must support at least 3 components");
+      }
+      return image;
+    });
+    //does the right transformation on the image in its place, which the model does in one step
+    images.filterImage(this.place, this.f.getKernel(), this.border);
+    return images.getImageAt(this.place);
   }
 }
@@ -0,0 +1,45 @@
+package controller.commands;
+
+/**
+ * Corrects the gamma of an image. Each component is scaled to be between 0 and 1, raised to the
+ * power of one over the gamma, and scaled back, so a gamma above 1 brightens the darker parts of
+ * an image and a gamma below 1 darkens them.
+ */
+public class Gamma extends LookupCommand {
+  //the gamma to correct by
+  private final double gamma;
+
+  /**
+   * Constructs a gamma correction with the given gamma and with the given source and placement
+   * keys.
+   *
+   * @param gamma  gamma to correct by, which must be above 0
+   * @param source key for the source image
+   * @param place  key for the new image
+   * @throws IllegalArgumentException gamma is not above 0
+   */
+  public Gamma(double gamma, String source, String place) {
+    super(source, place);
+    if (!(gamma > 0) || Double.isInfinite(gamma)) {
+      throw new IllegalArgumentException("Gamma must be positive");
+    }
+    this.gamma = gamma;
+  }
+
+  /**
+   * Gets the gamma corrected value of a component, rounded to the closest integer.
+   *
+   * @param comp        the RGB component, 0 for red, 1 for green, and 2 for blue
+   * @param value       the old value of the component, between 0 and the max color value
+   * @param maxColorVal highest value that a component can have
+   * @return the new value of the component
+   */
+  @Override
+  protected int lookup(int comp, int value, int maxColorVal) {
+    if (maxColorVal == 0) {
+      return 0;
+    }
+    double scaled = Math.pow(value / (double) maxColorVal, 1 / this.gamma);
+    return (int) Math.min(maxColorVal, Math.round(scaled * maxColorVal));
+  }
+}
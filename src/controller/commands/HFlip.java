@@ -27,28 +27,28 @@ public class HFlip extends ACommand {
    */
   @Override
   public ImageModel apply(ImageProcessorModel images) {
-    //gets a copy of the image at that location to not modify the original
-    ImageModel image = images.getImageAt(this.source).getImageCopy();
-    //goes through the left half image
-    for (int width = 0; width < image.getWidth() / 2; width = width + 1) {
-      //does not go through the center column, if present, since that would not get flipped
+    //gets a copy of the source so that it remains unmodified, or the image itself when the
+    //result goes back in its place and nothing else refers to it
+    return this.changeTarget(images, image -> {
+      int comps = image.getNumComponents();
+      int[] row = new int[image.getWidth() * comps];
+      //goes through the image a row at a time
       for (int height = 0; height < image.getHeight(); height = height + 1) {
-        //makes a pixel to store values for the flip
-        int[] tempPixel = new int[image.getNumComponents()];
-        for (int copy = 0; copy < image.getNumComponents(); copy = copy + 1) {
-          tempPixel[copy] = image.getComponentValue(width, height, copy);
-        }
-        //actually flips the pixel with the corresponding one on the right and uses the temp to
-        //flip the other pixel
-        for (int comp = 0; comp < image.getNumComponents(); comp = comp + 1) {
-          image.setComponentValue(width, height, comp,
-              image.getComponentValue(image.getWidth() - 1 - width, height, comp));
-          image.setComponentValue(image.getWidth() - 1 - width, height, comp,
-              tempPixel[comp]);
+        image.getRegion(0, height, image.getWidth(), 1, row, 0);
+        //swaps each pixel in the left half with the matching one in the right half, which leaves
+        //the center column, if present, in place
+        for (int width = 0; width < image.getWidth() / 2; width = width + 1) {
+          int left = width * comps;
+          int right = (image.getWidth() - 1 - width) * comps;
+          for (int comp = 0; comp < comps; comp = comp + 1) {
+            int temp = row[left + comp];
+            row[left + comp] = row[right + comp];
+            row[right + comp] = temp;
+          }
         }
+        image.setRegion(0, height, image.getWidth(), 1, row, 0);
       }
-    }
-    images.setImageAt(image, this.place);
-    return image;
+      return image;
+    });
   }
 }
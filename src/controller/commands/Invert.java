@@ -0,0 +1,30 @@
+package controller.commands;
+
+/**
+ * Inverts the colors of an image, so that each component goes from its value to the max color
+ * value minus that value.
+ */
+public class Invert extends LookupCommand {
+  /**
+   * Constructs an inversion with the given source and placement keys.
+   *
+   * @param source key for the source image
+   * @param place  key for the new image
+   */
+  public Invert(String source, String place) {
+    super(source, place);
+  }
+
+  /**
+   * Gets the inverted value of a component.
+   *
+   * @param comp        the RGB component, 0 for red, 1 for green, and 2 for blue
+   * @param value       the old value of the component, between 0 and the max color value
+   * @param maxColorVal highest value that a component can have
+   * @return the new value of the component
+   */
+  @Override
+  protected int lookup(int comp, int value, int maxColorVal) {
+    return maxColorVal - value;
+  }
+}
@@ -66,4 +66,14 @@ public class Load extends ACommand {
     images.setImageAt(loaded, this.place);
     return images.getImageAt(this.place);
   }
+
+  /**
+   * Returns null, since loading reads the image from a file instead of the collection.
+   *
+   * @return null
+   */
+  @Override
+  public String getSourceImage() {
+    return null;
+  }
 }
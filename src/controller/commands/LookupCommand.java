@@ -0,0 +1,170 @@
+package controller.commands;
+
+import model.ImageModel;
+import model.ImageProcessorModel;
+import model.RawPixels;
+
+/**
+ * Abstraction for point commands that change each RGB component of a pixel using nothing but the
+ * value of that one component. A table of the new value for every value from 0 to the max color
+ * value is made for each component once per image, so applying the command takes one lookup per
+ * component. Tables are only made for max color values up to 65535, and each new value is worked
+ * out by itself for anything higher, since the tables would be too big.
+ */
+public abstract class LookupCommand extends ACommand implements PointCommand {
+  //highest max color value that tables are made for
+  static final int TABLE_LIMIT = 0xFFFF;
+  //the tables that were last made, or null if they were never made, which may be read and
+  //replaced by several threads at once since tables never change once they are made
+  private Tables tables;
+
+  /**
+   * Abstract constructor that stores the source and key for a lookup command as Strings.
+   *
+   * @param source where the starting image is located
+   * @param place  where the new image is located
+   */
+  protected LookupCommand(String source, String place) {
+    super(source, place);
+    this.tables = null;
+  }
+
+  /**
+   * Gets the new value of a component of a pixel from its old value. Must give a value between 0
+   * and the max color value.
+   *
+   * @param comp        the RGB component, 0 for red, 1 for green, and 2 for blue
+   * @param value       the old value of the component, between 0 and the max color value
+   * @param maxColorVal highest value that a component can have
+   * @return the new value of the component
+   */
+  protected abstract int lookup(int comp, int value, int maxColorVal);
+
+  /**
+   * Carries out the lookup on the source image in one pass, and places the result at the key of
+   * this command.
+   *
+   * @param images collection of images we will look through
+   * @return the final image after all modifications
+   * @throws IllegalArgumentException image specified in collection does not support RGB
+   */
+  @Override
+  public ImageModel apply(ImageProcessorModel images) {
+    //checks the source before taking it, so that a failed lookup leaves everything untouched
+    if (images.getImageAt(this.source).getNumComponents() < 3) {
+      throw new IllegalArgumentException("Image type must support at least 3 components");
+    }
+    //gets a copy of the source so that it remains unmodified, or the image itself when the
+    //result goes back in its place and nothing else refers to it
+    return this.changeTarget(images, image -> {
+      //goes straight through the buffers of the image, a block and then a row at a time, with
+      //large images split between the threads of the model
+      forEachBlock(images, image, this::applyToBlock);
+      return image;
+    });
+  }
+
+  /**
+   * Changes each RGB component of every pixel in one block of an image to its new value, going
+   * straight through the buffer of the block a row at a time.
+   *
+   * @param block the block to change
+   */
+  protected void applyToBlock(RawPixels block) {
+    int[] rgb = new int[3];
+    int comps = block.getNumComponents();
+    int max = block.getMaxColorValue();
+    int[][] table = this.tablesFor(max);
+    for (int height = block.getRow(); height < block.getRow() + block.getHeight();
+         height = height + 1) {
+      int pixel = block.index(block.getCol(), height);
+      int end = pixel + block.getWidth() * comps;
+      if (table != null) {
+        for (; pixel < end; pixel = pixel + comps) {
+          //keeps the index inside the table even if a component is out of bounds
+          block.set(pixel, table[0][Math.max(0, Math.min(max, block.get(pixel)))]);
+          block.set(pixel + 1, table[1][Math.max(0, Math.min(max, block.get(pixel + 1)))]);
+          block.set(pixel + 2, table[2][Math.max(0, Math.min(max, block.get(pixel + 2)))]);
+        }
+      } else {
+        for (; pixel < end; pixel = pixel + comps) {
+          rgb[0] = block.get(pixel);
+          rgb[1] = block.get(pixel + 1);
+          rgb[2] = block.get(pixel + 2);
+          this.applyToPixel(rgb, max);
+          block.set(pixel, rgb[0]);
+          block.set(pixel + 1, rgb[1]);
+          block.set(pixel + 2, rgb[2]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Changes each RGB component of a pixel to its new value, using the tables when there are some
+   * for the max color value.
+   *
+   * @param rgb         the red, green, and blue components of the pixel, changed in place
+   * @param maxColorVal highest value that a component can have
+   */
+  @Override
+  public void applyToPixel(int[] rgb, int maxColorVal) {
+    int[][] table = this.tablesFor(maxColorVal);
+    for (int comp = 0; comp < 3; comp = comp + 1) {
+      int value = Math.max(0, Math.min(maxColorVal, rgb[comp]));
+      if (table != null) {
+        rgb[comp] = table[comp][value];
+      } else {
+        rgb[comp] = this.lookup(comp, value, maxColorVal);
+      }
+    }
+  }
+
+  /**
+   * Gets the tables for images with the given max color value, making them if the last ones were
+   * made for a different max color value. Threads that make tables at the same time each make
+   * their own, and only one of them is kept.
+   *
+   * @param maxColorVal highest value that a component can have
+   * @return the table of new values for each RGB component, or null if the max is too high
+   */
+  private int[][] tablesFor(int maxColorVal) {
+    if (maxColorVal > TABLE_LIMIT) {
+      return null;
+    }
+    Tables last = this.tables;
+    if (last == null || last.max != maxColorVal) {
+      int[][] made = new int[3][maxColorVal + 1];
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        for (int value = 0; value <= maxColorVal; value = value + 1) {
+          made[comp][value] = this.lookup(comp, value, maxColorVal);
+        }
+      }
+      last = new Tables(maxColorVal, made);
+      this.tables = last;
+    }
+    return last.values;
+  }
+
+  /**
+   * The tables of new values for one max color value. Its fields are final, so a thread that sees
+   * the tables also sees all of their values.
+   */
+  private static final class Tables {
+    //the max color value that the tables were made for
+    private final int max;
+    //the table of new values for each RGB component
+    private final int[][] values;
+
+    /**
+     * Constructs the tables for a max color value.
+     *
+     * @param max    the max color value that the tables were made for
+     * @param values the table of new values for each RGB component
+     */
+    private Tables(int max, int[][] values) {
+      this.max = max;
+      this.values = values;
+    }
+  }
+}
@@ -7,7 +7,7 @@ import model.ImageProcessorModel;
  * Visualizes an image by its luma, value, or intensity component. Choosing of the visualization
  * type is determined by the String input (op).
  */
-public class MixVis extends ACommand {
+public class MixVis extends ACommand implements PointCommand {
   //name of the operation, which can currently only be value
   private final String op;
 
@@ -40,34 +40,52 @@ public class MixVis extends ACommand {
    */
   @Override
   public ImageModel apply(ImageProcessorModel images) {
-    //gets copy of the source so that it remains unmodified
-    ImageModel image = images.getImageAt(this.source).getImageCopy();
-    //not enough components to do the visualization of mixing 3 components
-    if (image.getNumComponents() < 3) {
-      throw new IllegalArgumentException("Image type must support at least 3 components");
-    }
-    //goes through each pixel
-    for (int width = 0; width < image.getWidth(); width = width + 1) {
-      for (int height = 0; height < image.getHeight(); height = height + 1) {
-        //finds the max component per pixel
-        int val;
-        if (this.op.equals("value")) {
-          //gets the value by using the maximum component in the pixel
-          val = Math.max(image.getComponentValue(width, height, 0),
-              Math.max(image.getComponentValue(width, height, 1),
-                  image.getComponentValue(width, height, 2)));
-        } else {
-          //the operation as input to the constructor is not supported by apply()
-          throw new IllegalArgumentException("Visualization not supported");
-        }
-        //sets all the components to the new value to visualize
-        image.setComponentValue(width, height, 0, val);
-        image.setComponentValue(width, height, 1, val);
-        image.setComponentValue(width, height, 2, val);
+    //gets a copy of the source so that it remains unmodified, or the image itself when the
+    //result goes back in its place and nothing else refers to it
+    return this.changeTarget(images, image -> {
+      //not enough components to do the visualization of mixing 3 components
+      if (image.getNumComponents() < 3) {
+        throw new IllegalArgumentException("Image type must support at least 3 components");
       }
-    }
-    //sets the image and returns it
-    images.setImageAt(image, this.place);
-    return image;
+      //the operation as input to the constructor is not supported by apply()
+      if (!this.op.equals("value")) {
+        throw new IllegalArgumentException("Visualization not supported");
+      }
+      //goes straight through the buffers of the image, a block and then a row at a time, with
+      //large images split between the threads of the model
+      forEachBlock(images, image, block -> {
+        int comps = block.getNumComponents();
+        for (int height = block.getRow(); height < block.getRow() + block.getHeight();
+             height = height + 1) {
+          int pixel = block.index(block.getCol(), height);
+          int end = pixel + block.getWidth() * comps;
+          for (; pixel < end; pixel = pixel + comps) {
+            //gets the value by using the maximum component in the pixel
+            int val = Math.max(block.get(pixel), Math.max(block.get(pixel + 1),
+                block.get(pixel + 2)));
+            //sets all the components to the new value to visualize
+            block.set(pixel, val);
+            block.set(pixel + 1, val);
+            block.set(pixel + 2, val);
+          }
+        }
+      });
+      //hands the image back to be set in the model
+      return image;
+    });
+  }
+
+  /**
+   * Sets each RGB component of a pixel to the value of the pixel, which is its largest component.
+   *
+   * @param rgb         the red, green, and blue components of the pixel, changed in place
+   * @param maxColorVal highest value that a component can have
+   */
+  @Override
+  public void applyToPixel(int[] rgb, int maxColorVal) {
+    int val = Math.max(rgb[0], Math.max(rgb[1], rgb[2]));
+    rgb[0] = val;
+    rgb[1] = val;
+    rgb[2] = val;
   }
 }
@@ -0,0 +1,17 @@
+package controller.commands;
+
+/**
+ * Represents a command that changes each pixel of an image by itself, using nothing but the RGB
+ * components of that same pixel. Such commands can be run one after another on a pixel, so that
+ * several of them can be carried out in a single pass over an image.
+ */
+public interface PointCommand extends Command {
+  /**
+   * Changes the RGB components of one pixel the same way that applying this command would,
+   * including clamping the results to be between 0 and the max color value.
+   *
+   * @param rgb         the red, green, and blue components of the pixel, changed in place
+   * @param maxColorVal highest value that a component can have
+   */
+  void applyToPixel(int[] rgb, int maxColorVal);
+}
@@ -0,0 +1,97 @@
+package controller.commands;
+
+import java.util.List;
+
+import model.ImageModel;
+import model.ImageProcessorModel;
+
+/**
+ * Carries out a chain of point commands in a single pass over an image, where each command reads
+ * the image that the one before it placed. Each pixel is read once, goes through every command in
+ * order, and is written once, so the chain costs one pass and one copy instead of one of each per
+ * command. The result is the same as applying the commands one at a time, and is placed at the key
+ * of the last command, while the images in between are never made.
+ */
+public class PointPipeline extends ACommand {
+  //the commands to run on each pixel, in order
+  private final PointCommand[] stages;
+
+  /**
+   * Constructs a pipeline from a chain of point commands. The pipeline reads the source of the
+   * first command and places its result where the last command places its image.
+   *
+   * @param stages the commands to carry out, in order
+   * @throws IllegalArgumentException list is null or empty, or the commands do not form a chain
+   */
+  public PointPipeline(List<PointCommand> stages) {
+    super(chain(stages).getSourceImage(), stages.get(stages.size() - 1).getPlace());
+    this.stages = stages.toArray(new PointCommand[0]);
+  }
+
+  /**
+   * Checks that a list of commands is a chain, where each command reads the image that the one
+   * before it placed, and gets the first command of it.
+   *
+   * @param stages list of commands
+   * @return the first command in the list
+   * @throws IllegalArgumentException list is null or empty, or the commands do not form a chain
+   */
+  static Command chain(List<? extends Command> stages) {
+    if (stages == null || stages.isEmpty()) {
+      throw new IllegalArgumentException("Pipeline must have at least one command");
+    }
+    for (int i = 1; i < stages.size(); i = i + 1) {
+      //each command has to read what the one before it placed
+      if (!stages.get(i).getSourceImage().equals(stages.get(i - 1).getPlace())) {
+        throw new IllegalArgumentException("Commands must form a chain");
+      }
+    }
+    return stages.get(0);
+  }
+
+  /**
+   * Carries out all the commands of the pipeline on the source image in one pass, and places the
+   * result at the key of the last command. Nothing in the collection is changed if the source
+   * image can not be found or does not support RGB.
+   *
+   * @param images collection of images we will look through
+   * @return the final image after all modifications
+   * @throws IllegalArgumentException image specified in collection does not support RGB
+   */
+  @Override
+  public ImageModel apply(ImageProcessorModel images) {
+    //checks the source before taking it, so that a failed pipeline leaves everything untouched
+    if (images.getImageAt(this.source).getNumComponents() < 3) {
+      throw new IllegalArgumentException("Image type must support at least 3 components");
+    }
+    //gets a copy of the source so that it remains unmodified, or the image itself when the
+    //result goes back in its place and nothing else refers to it
+    return this.changeTarget(images, image -> {
+      //goes straight through the buffers of the image, a block and then a row at a time, with
+      //large images split between the threads of the model
+      forEachBlock(images, image, block -> {
+        int[] rgb = new int[3];
+        int comps = block.getNumComponents();
+        int max = block.getMaxColorValue();
+        for (int height = block.getRow(); height < block.getRow() + block.getHeight();
+             height = height + 1) {
+          int pixel = block.index(block.getCol(), height);
+          int end = pixel + block.getWidth() * comps;
+          for (; pixel < end; pixel = pixel + comps) {
+            rgb[0] = block.get(pixel);
+            rgb[1] = block.get(pixel + 1);
+            rgb[2] = block.get(pixel + 2);
+            //runs the pixel through every command while it is still at hand
+            for (PointCommand stage : this.stages) {
+              stage.applyToPixel(rgb, max);
+            }
+            block.set(pixel, rgb[0]);
+            block.set(pixel + 1, rgb[1]);
+            block.set(pixel + 2, rgb[2]);
+          }
+        }
+      });
+      return image;
+    });
+  }
+}
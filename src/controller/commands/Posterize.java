@@ -0,0 +1,44 @@
+package controller.commands;
+
+/**
+ * Posterizes an image, so that each component only takes one of a set number of levels spread
+ * evenly from 0 to the max color value. Each value goes to the level closest to it.
+ */
+public class Posterize extends LookupCommand {
+  //the number of levels that each component can take
+  private final int levels;
+
+  /**
+   * Constructs a posterization with the given number of levels and with the given source and
+   * placement keys.
+   *
+   * @param levels number of levels that each component can take, at least 2
+   * @param source key for the source image
+   * @param place  key for the new image
+   * @throws IllegalArgumentException fewer than 2 levels
+   */
+  public Posterize(int levels, String source, String place) {
+    super(source, place);
+    if (levels < 2) {
+      throw new IllegalArgumentException("Levels must be at least 2");
+    }
+    this.levels = levels;
+  }
+
+  /**
+   * Gets the level closest to the value of a component.
+   *
+   * @param comp        the RGB component, 0 for red, 1 for green, and 2 for blue
+   * @param value       the old value of the component, between 0 and the max color value
+   * @param maxColorVal highest value that a component can have
+   * @return the new value of the component
+   */
+  @Override
+  protected int lookup(int comp, int value, int maxColorVal) {
+    if (maxColorVal == 0) {
+      return 0;
+    }
+    double step = maxColorVal / (double) (this.levels - 1);
+    return (int) Math.min(maxColorVal, Math.round(Math.round(value / step) * step));
+  }
+}
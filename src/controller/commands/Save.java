@@ -55,8 +55,21 @@ public class Save extends ACommand {
     if (util == null) {
       throw new IllegalArgumentException("File type not supported");
     }
-    //saves the file to the location using the utility and returns it
-    util.writeFile(images.getImageAt(this.source), this.place);
-    return images.getImageAt(source);
+    //saves the file to the location using the utility and returns it, with the model keeping the
+    //image from being released while it is written
+    return images.readImageAt(this.source, image -> {
+      util.writeFile(image, this.place);
+      return image;
+    });
+  }
+
+  /**
+   * Returns null, since saving places the image in a file instead of the collection.
+   *
+   * @return null
+   */
+  @Override
+  public String getPlacedImage() {
+    return null;
   }
 }
@@ -7,9 +7,11 @@ import model.ImageProcessorModel;
  * Represents a linear color transformation that occurs by transforming the components of a pixel
  * to linear combinations of each of its pixel's individual RGB components.
  */
-public class Transform extends ACommand {
+public class Transform extends ACommand implements AffineCommand {
   //the transformation that this object will do on models and images
   private final Transformation tr;
+  //the matrix of the transformation, kept so that it is not copied for every pixel
+  private final double[][] matrix;
 
   /**
    * Constructs a transformation. Specifies what type of transformation will occur, which image
@@ -26,6 +28,7 @@ public class Transform extends ACommand {
       throw new IllegalArgumentException("Transformation can not be null");
     }
     this.tr = tr;
+    this.matrix = tr.getMatrix();
   }
 
   /**
@@ -40,15 +43,53 @@ public class Transform extends ACommand {
    */
   @Override
   public ImageModel apply(ImageProcessorModel images) {
-    //gets a copy of the image so that it does not modify the original
-    ImageModel image = images.getImageAt(this.source).getImageCopy();
-    //throws an exception if the image does not support 3 components
-    if (image.getNumComponents() < 3) {
-      throw new IllegalArgumentException("Image type must support at least 3 components");
-    }
-    //sets the image and then does the right transformation on it
-    images.setImageAt(image, this.place);
+    //gets a copy of the source so that it remains unmodified, or the image itself when the
+    //result goes back in its place and nothing else refers to it
+    this.changeTarget(images, image -> {
+      //throws an exception if the image does not support 3 components
+      if (image.getNumComponents() < 3) {
+        throw new IllegalArgumentException("Image type must support at least 3 components");
+      }
+      return image;
+    });
+    //does the right transformation on the image in its place, which the model does in one step
     images.transformImage(this.place, this.tr.getMatrix());
-    return image;
+    return images.getImageAt(this.place);
+  }
+
+  /**
+   * Transforms the RGB components of a pixel to linear combinations of them, casting the new
+   * values to integers and clamping them to be between 0 and the max color value.
+   *
+   * @param rgb         the red, green, and blue components of the pixel, changed in place
+   * @param maxColorVal highest value that a component can have
+   */
+  @Override
+  public void applyToPixel(int[] rgb, int maxColorVal) {
+    //temporarily stores the base values for each component
+    int rBase = rgb[0];
+    int gBase = rgb[1];
+    int bBase = rgb[2];
+    for (int comp = 0; comp < 3; comp = comp + 1) {
+      double[] row = this.matrix[comp];
+      int val = (int) (row[0] * rBase + row[1] * gBase + row[2] * bBase);
+      rgb[comp] = Math.max(0, Math.min(maxColorVal, val));
+    }
+  }
+
+  /**
+   * Gets the transformation as an affine map, which is its matrix with nothing added.
+   *
+   * @return a copy of the map as a 3x4 array of double values
+   */
+  @Override
+  public double[][] getAffineMatrix() {
+    double[][] out = new double[3][4];
+    for (int r = 0; r < 3; r = r + 1) {
+      for (int c = 0; c < 3; c = c + 1) {
+        out[r][c] = this.matrix[r][c];
+      }
+    }
+    return out;
   }
 }
@@ -28,29 +28,23 @@ public class VFlip extends ACommand {
    */
   @Override
   public ImageModel apply(ImageProcessorModel images) {
-    //gets copy of the source image so that it remains unmodified
-    ImageModel image = images.getImageAt(this.source).getImageCopy();
-    //goes through the top half image
-    for (int width = 0; width < image.getWidth(); width = width + 1) {
-      //does not go through the center row, if present, since that would not get flipped
+    //gets a copy of the source so that it remains unmodified, or the image itself when the
+    //result goes back in its place and nothing else refers to it
+    return this.changeTarget(images, image -> {
+      int[] top = new int[image.getWidth() * image.getNumComponents()];
+      int[] bottom = new int[top.length];
+      //goes through the top half image, which does not go through the center row, if present,
+      //since that would not get flipped
       for (int height = 0; height < image.getHeight() / 2; height = height + 1) {
-        //makes a pixel to store values for the flip
-        int[] tempPixel = new int[image.getNumComponents()];
-        for (int copy = 0; copy < image.getNumComponents(); copy = copy + 1) {
-          tempPixel[copy] = image.getComponentValue(width, height, copy);
-        }
-        //actually flips the pixel with the corresponding one on the right and uses the temp to
-        //flip the other one successfully
-        for (int comp = 0; comp < image.getNumComponents(); comp = comp + 1) {
-          image.setComponentValue(width, height, comp,
-              image.getComponentValue(width, image.getHeight() - 1 - height, comp));
-          image.setComponentValue(width, image.getHeight() - 1 - height, comp,
-              tempPixel[comp]);
-        }
+        int other = image.getHeight() - 1 - height;
+        //swaps the whole row with the matching one at the bottom
+        image.getRegion(0, height, image.getWidth(), 1, top, 0);
+        image.getRegion(0, other, image.getWidth(), 1, bottom, 0);
+        image.setRegion(0, height, image.getWidth(), 1, bottom, 0);
+        image.setRegion(0, other, image.getWidth(), 1, top, 0);
       }
-    }
-    //sets the image in the model and returns it
-    images.setImageAt(image, this.place);
-    return image;
+      //hands the image back to be set in the model
+      return image;
+    });
   }
 }
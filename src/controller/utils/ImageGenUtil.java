@@ -10,8 +10,8 @@ import javax.imageio.stream.FileImageInputStream;
 import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageOutputStream;
 
+import model.ImageBuilder;
 import model.ImageModel;
-import model.ImageRGB;
 
 /**
  * Utility that allows for the conversion of an image file to an ImageRGB object and vice-versa.
@@ -41,18 +41,17 @@ public class ImageGenUtil implements ImageFileUtil {
     } catch (IOException e) {
       throw new IllegalArgumentException("File could not be found or read");
     }
-    //creates the pixel array
-    int[][][] pixels = new int[source.getWidth()][source.getHeight()][3];
-    for (int w = 0; w < source.getWidth(); w = w + 1) {
-      for (int h = 0; h < source.getHeight(); h = h + 1) {
+    //uses 255 as that is the default for these image types, so the image uses 8-bit storage, and
+    //fills the image straight into that storage
+    ImageBuilder builder = new ImageBuilder(source.getWidth(), source.getHeight(), 255);
+    for (int h = 0; h < source.getHeight(); h = h + 1) {
+      for (int w = 0; w < source.getWidth(); w = w + 1) {
         //gets the RGB values of a pixel
-        pixels[w][h][0] = new Color(source.getRGB(w, h)).getRed();
-        pixels[w][h][1] = new Color(source.getRGB(w, h)).getGreen();
-        pixels[w][h][2] = new Color(source.getRGB(w, h)).getBlue();
+        Color color = new Color(source.getRGB(w, h));
+        builder.setPixel(w, h, color.getRed(), color.getGreen(), color.getBlue());
       }
     }
-    //uses 255 as that is the default for these image types
-    return new ImageRGB(pixels, 255);
+    return builder.build();
   }
 
   /**
@@ -73,15 +72,20 @@ public class ImageGenUtil implements ImageFileUtil {
     //the bufferedImage version of the ImageModel object we are trying to convert
     BufferedImage end = new BufferedImage(image.getWidth(), image.getHeight(),
         BufferedImage.TYPE_INT_RGB);
-    //goes through the ImageModel and puts data of each pixel to the BufferedImage
-    for (int w = 0; w < image.getWidth(); w = w + 1) {
-      for (int h = 0; h < image.getHeight(); h = h + 1) {
+    //goes through the ImageModel a row at a time and puts data of each pixel to the BufferedImage
+    int comps = image.getNumComponents();
+    int[] row = new int[image.getWidth() * comps];
+    int[] rgbRow = new int[image.getWidth()];
+    for (int h = 0; h < image.getHeight(); h = h + 1) {
+      image.getRegion(0, h, image.getWidth(), 1, row, 0);
+      for (int w = 0; w < image.getWidth(); w = w + 1) {
         //fits the values so that it is in a 255 scale
-        int red = (int) (image.getComponentValue(w, h, 0) / (image.getMaxColorValue() / 255.0));
-        int green = (int) (image.getComponentValue(w, h, 1) / (image.getMaxColorValue() / 255.0));
-        int blue = (int) (image.getComponentValue(w, h, 2) / (image.getMaxColorValue() / 255.0));
-        end.setRGB(w, h, new Color(red, green, blue).getRGB());
+        int red = (int) (row[w * comps] / (image.getMaxColorValue() / 255.0));
+        int green = (int) (row[w * comps + 1] / (image.getMaxColorValue() / 255.0));
+        int blue = (int) (row[w * comps + 2] / (image.getMaxColorValue() / 255.0));
+        rgbRow[w] = new Color(red, green, blue).getRGB();
       }
+      end.setRGB(0, h, image.getWidth(), 1, rgbRow, 0, image.getWidth());
     }
     //writes to a file using the ImageIO, catching IOExceptions if found
     try {
@@ -6,6 +6,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Scanner;
 
+import model.ImageBuilder;
 import model.ImageModel;
 import model.ImageRGB;
 
@@ -47,18 +48,17 @@ public class ImagePPMUtil implements ImageFileUtil {
     int width = sc.nextInt();
     int height = sc.nextInt();
     int maxValue = sc.nextInt();
-    //creates the 3D array of pixels
-    int[][][] pixels = new int[width][height][3];
+    //fills the image straight into its storage, which is 8-bit, 16-bit, or int storage depending
+    //on the max value, checking each value as it is read
+    ImageBuilder image = new ImageBuilder(width, height, maxValue);
     //sets the RGB values for each pixel
     for (int h = 0; h < height; h = h + 1) {
       for (int w = 0; w < width; w = w + 1) {
-        pixels[w][h][0] = sc.nextInt();
-        pixels[w][h][1] = sc.nextInt();
-        pixels[w][h][2] = sc.nextInt();
+        image.setPixel(w, h, sc.nextInt(), sc.nextInt(), sc.nextInt());
       }
     }
     //produces the final ImageRGB object and returns it
-    return new ImageRGB(pixels, maxValue);
+    return image.build();
   }
 
   /**
@@ -82,14 +82,17 @@ public class ImagePPMUtil implements ImageFileUtil {
     data.append(System.lineSeparator());
     data.append(image.getMaxColorValue());
     data.append(System.lineSeparator());
-    //puts in the details of each pixel
+    //puts in the details of each pixel, reading the image a row at a time
+    int comps = image.getNumComponents();
+    int[] row = new int[image.getWidth() * comps];
     for (int height = 0; height < image.getHeight(); height = height + 1) {
-      for (int width = 0; width < image.getWidth(); width = width + 1) {
-        data.append(image.getComponentValue(width, height, 0));
+      image.getRegion(0, height, image.getWidth(), 1, row, 0);
+      for (int pixel = 0; pixel < row.length; pixel = pixel + comps) {
+        data.append(row[pixel]);
         data.append(System.lineSeparator());
-        data.append(image.getComponentValue(width, height, 1));
+        data.append(row[pixel + 1]);
         data.append(System.lineSeparator());
-        data.append(image.getComponentValue(width, height, 2));
+        data.append(row[pixel + 2]);
         data.append(System.lineSeparator());
       }
     }
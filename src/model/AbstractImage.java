@@ -1,12 +1,30 @@
 package model;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
 /**
  * Abstracts out common methods and aspects of the Image implementations. Used to simplify the
  * addition of new image types in the future that will likely have similar methods and fields.
+ * Pixels are stored packed in a single buffer, row by row, with the components of a pixel next
+ * to each other, so the component (x, y, c) lives at ((y * width) + x) * numComponents + c. The
+ * buffer uses 8-bit, 16-bit, or int storage depending on the maximum color value of the image.
+ * Copies in the same storage share the buffer of the image they came from until either of them
+ * is written to, so making a copy is cheap until it is actually changed.
  */
 public abstract class AbstractImage implements ImageModel {
-  //3D array of pixels
-  protected final int[][][] pixels;
+  //packed buffer of pixels, in row-major order with the components of a pixel interleaved
+  protected PixelBuffer pixels;
+  //count of images sharing the pixel buffer, or null if this image is the only one using it
+  private PixelShare share;
+  //whether the image was released, so that releasing it again does nothing
+  private boolean released;
+  //width of the image in pixels
+  protected final int width;
+  //height of the image in pixels
+  protected final int height;
   //the maximum number value for an individual component in an image
   protected final int maxColorVal;
   //the amount of components in an image
@@ -14,7 +32,8 @@ public abstract class AbstractImage implements ImageModel {
 
   /**
    * Constructs an Abstract image with a 3D array of pixels and a maximum value for each of
-   * the components.
+   * the components. The given array is arranged as [x][y][component] and is packed into this
+   * image's own storage.
    *
    * @param pixels        pixels in the image
    * @param maxColorVal   maximum value for a color, which would be it and 0
@@ -24,6 +43,25 @@ public abstract class AbstractImage implements ImageModel {
    * @throws IllegalArgumentException components must fit within range
    */
   public AbstractImage(int[][][] pixels, int maxColorVal, int numComponents) {
+    this(pixels, maxColorVal, numComponents, PixelStorage.HEAP);
+  }
+
+  /**
+   * Constructs an Abstract image with a 3D array of pixels and a maximum value for each of
+   * the components, keeping the pixels in the given storage. The given array is arranged as
+   * [x][y][component] and is packed into this image's own storage.
+   *
+   * @param pixels        pixels in the image
+   * @param maxColorVal   maximum value for a color, which would be it and 0
+   * @param numComponents number of components per pixel in the image
+   * @param storage       where the pixels are kept in memory
+   * @throws IllegalArgumentException given pixels is null
+   * @throws IllegalArgumentException must have 3 components in an ImageRGB
+   * @throws IllegalArgumentException components must fit within range
+   * @throws IllegalArgumentException storage is null or too small for the image
+   */
+  public AbstractImage(int[][][] pixels, int maxColorVal, int numComponents,
+                       PixelStorage storage) {
     //can not make an image with a null pixel array
     if (pixels == null) {
       throw new IllegalArgumentException("Must not provide a null value for an image");
@@ -32,16 +70,21 @@ public abstract class AbstractImage implements ImageModel {
     if (pixels[0][0].length != numComponents) {
       throw new IllegalArgumentException("Must have correct component amount");
     }
-    this.pixels = new int[pixels.length][pixels[0].length][numComponents];
+    this.width = pixels.length;
+    this.height = pixels[0].length;
+    this.pixels = PixelBuffers.allocate(this.width * this.height * numComponents, maxColorVal,
+        storage);
     //checks that component values work for image limits (0 <= val <= maxColorVal)
-    for (int width = 0; width < pixels.length; width = width + 1) {
-      for (int height = 0; height < pixels[0].length; height = height + 1) {
+    for (int w = 0; w < this.width; w = w + 1) {
+      for (int h = 0; h < this.height; h = h + 1) {
+        int index = ((h * this.width) + w) * numComponents;
         for (int comp = 0; comp < numComponents; comp = comp + 1) {
-          if (pixels[width][height][comp] < 0 || pixels[width][height][comp] > maxColorVal) {
+          if (pixels[w][h][comp] < 0 || pixels[w][h][comp] > maxColorVal) {
+            this.pixels.release();
             throw new IllegalArgumentException(
                 "Component values must be between 0 and the max value, inclusive");
           }
-          this.pixels[width][height][comp] = pixels[width][height][comp];
+          this.pixels.set(index + comp, pixels[w][h][comp]);
         }
       }
     }
@@ -49,6 +92,57 @@ public abstract class AbstractImage implements ImageModel {
     this.numComponents = numComponents;
   }
 
+  /**
+   * Constructs an Abstract image that takes ownership of an already filled pixel buffer, without
+   * copying it or checking its values. Only meant for buffers whose values are known to be within
+   * 0 and the max value, such as ones copied from another image or filled by an ImageBuilder.
+   *
+   * @param width         width of the image in pixels
+   * @param height        height of the image in pixels
+   * @param pixels        packed pixels of the image, which now belong to this image
+   * @param maxColorVal   maximum value for a color, which would be it and 0
+   * @param numComponents number of components per pixel in the image
+   * @throws IllegalArgumentException given pixels is null
+   * @throws IllegalArgumentException buffer does not match the size of the image
+   */
+  protected AbstractImage(int width, int height, PixelBuffer pixels, int maxColorVal,
+                          int numComponents) {
+    if (pixels == null) {
+      throw new IllegalArgumentException("Must not provide a null value for an image");
+    }
+    if (width <= 0 || height <= 0 || pixels.size() != width * height * numComponents) {
+      throw new IllegalArgumentException("Pixels do not match the size of the image");
+    }
+    this.width = width;
+    this.height = height;
+    this.pixels = pixels;
+    this.maxColorVal = maxColorVal;
+    this.numComponents = numComponents;
+  }
+
+  /**
+   * Constructs an Abstract image that is a copy of the given image. The copy shares the pixel
+   * buffer of the given image until either of them is written to, at which point the one being
+   * written to takes its own copy of the pixels.
+   *
+   * @param source image to copy
+   */
+  protected AbstractImage(AbstractImage source) {
+    //two threads copying the same image must not each start their own count
+    synchronized (source) {
+      if (source.share == null) {
+        source.share = new PixelShare();
+      }
+      source.share.join();
+      this.share = source.share;
+      this.pixels = source.pixels;
+    }
+    this.width = source.width;
+    this.height = source.height;
+    this.maxColorVal = source.maxColorVal;
+    this.numComponents = source.numComponents;
+  }
+
   /**
    * Gets the width of the image in pixels.
    *
@@ -56,7 +150,7 @@ public abstract class AbstractImage implements ImageModel {
    */
   @Override
   public int getWidth() {
-    return this.pixels.length;
+    return this.width;
   }
 
   /**
@@ -66,7 +160,7 @@ public abstract class AbstractImage implements ImageModel {
    */
   @Override
   public int getHeight() {
-    return this.pixels[0].length;
+    return this.height;
   }
 
   /**
@@ -90,24 +184,60 @@ public abstract class AbstractImage implements ImageModel {
   }
 
   /**
-   * Gets an exact copy of an image.
+   * Gets an exact copy of an image, keeping its pixels in the same storage as this image.
    *
    * @return copy of the image as an image
    */
   @Override
   public ImageModel getImageCopy() {
-    //makes a copy of the pixels by assigning the same values of this image's pixels to a new
-    //pixel 3D array
-    int[][][] pixelCopy = new int[this.getWidth()][this.getHeight()][this.numComponents];
-    for (int w = 0; w < this.getWidth(); w = w + 1) {
-      for (int h = 0; h < this.getHeight(); h = h + 1) {
+    return this.getImageCopy(this.pixels.getStorage());
+  }
+
+  /**
+   * Gets an exact copy of an image whose pixels are kept in the given storage.
+   *
+   * @param storage where the pixels of the copy are kept
+   * @return copy of the image as an image
+   * @throws IllegalArgumentException storage is null or not supported by the image type
+   */
+  @Override
+  public ImageModel getImageCopy(PixelStorage storage) {
+    if (storage == null) {
+      throw new IllegalArgumentException("Storage can not be null");
+    }
+    //copies in the same storage can share the pixels until they are written to
+    if (storage == this.pixels.getStorage()) {
+      return this.constructSharedCopy();
+    }
+    //moves the values straight into a buffer in the other storage, since they are known to fit
+    PixelBuffer moved = PixelBuffers.allocate(this.pixels.size(), this.maxColorVal, storage);
+    int[] row = new int[this.width * this.numComponents];
+    for (int h = 0; h < this.height; h = h + 1) {
+      this.pixels.get(this.index(0, h, 0), row, 0, row.length);
+      moved.set(this.index(0, h, 0), row, 0, row.length);
+    }
+    //calls this method so that we return the right Image implementation
+    return this.constructImage(moved);
+  }
+
+  /**
+   * Unpacks the given pixels into a new 3D array arranged as [x][y][component], which is what the
+   * constructors of the implementations take.
+   *
+   * @param packed packed pixels the size of this image
+   * @return the pixels as a 3D array
+   */
+  private int[][][] unpack(PixelBuffer packed) {
+    int[][][] pixelCopy = new int[this.width][this.height][this.numComponents];
+    for (int h = 0; h < this.height; h = h + 1) {
+      for (int w = 0; w < this.width; w = w + 1) {
+        int index = this.index(w, h, 0);
         for (int c = 0; c < this.numComponents; c = c + 1) {
-          pixelCopy[w][h][c] = this.pixels[w][h][c];
+          pixelCopy[w][h][c] = packed.get(index + c);
         }
       }
     }
-    //calls this method so that we return the right Image implementation
-    return this.constructImage(pixelCopy);
+    return pixelCopy;
   }
 
   /**
@@ -118,6 +248,127 @@ public abstract class AbstractImage implements ImageModel {
    */
   protected abstract ImageModel constructImage(int[][][] pixels);
 
+  /**
+   * Constructs an image of this type that takes ownership of the given buffer, which has the same
+   * size as this image and values that are already known to fit, and returns it. Implementations
+   * should override this with a call to the trusted constructor of AbstractImage, since by default
+   * the pixels are unpacked and checked again, and only heap storage is supported.
+   *
+   * @param pixels packed pixels for the image, which now belong to the new image
+   * @return the new image
+   * @throws IllegalArgumentException storage is not supported by the image type
+   */
+  protected ImageModel constructImage(PixelBuffer pixels) {
+    if (pixels.getStorage() != PixelStorage.HEAP) {
+      pixels.release();
+      throw new IllegalArgumentException("Image type does not support that storage");
+    }
+    return this.constructImage(this.unpack(pixels));
+  }
+
+  /**
+   * Constructs a copy of this image, of the same type, that shares the pixels of this image until
+   * either of them is written to. Implementations should override this with a call to the
+   * sharing constructor of AbstractImage, since by default the pixels are copied right away.
+   *
+   * @return copy of the image as an image
+   */
+  protected ImageModel constructSharedCopy() {
+    return this.constructImage(this.pixels.copy());
+  }
+
+  /**
+   * Makes sure that the pixel buffer of this image is not shared with any copies, so that it can
+   * be written to. Takes a copy of the pixels if another image still shares them.
+   */
+  protected void unshare() {
+    if (this.share != null) {
+      this.pixels = this.share.leave(this.pixels);
+      this.share = null;
+    }
+  }
+
+  /**
+   * Gets where the pixels of this image are kept in memory.
+   *
+   * @return the storage used for the pixels
+   */
+  @Override
+  public PixelStorage getStorage() {
+    return this.pixels.getStorage();
+  }
+
+  /**
+   * Gets the number of bytes of memory that hold the pixels of this image, counting pixels that
+   * are still shared with copies of it.
+   *
+   * @return bytes used by the packed pixels of the image
+   */
+  @Override
+  public long getFootprint() {
+    return this.pixels.getByteSize();
+  }
+
+  /**
+   * Gets the number of bytes of memory that hold the pixels of this image, unless its buffer was
+   * already counted because a copy still shares it.
+   *
+   * @param counted buffers that were already counted, compared by identity
+   * @return bytes used by the packed pixels of the image, or 0 if they were counted already
+   */
+  @Override
+  public long getFootprint(Set<PixelBuffer> counted) {
+    return counted.add(this.pixels) ? this.pixels.getByteSize() : 0;
+  }
+
+  /**
+   * Gives back any memory that the image holds outside of the Java heap. The image must not be
+   * used after it has been released. Pixels on the heap go back to their pool, if any. Releasing
+   * an image again does nothing.
+   */
+  @Override
+  public void release() {
+    //two threads releasing the same image must not both give up its pixels
+    synchronized (this) {
+      if (this.released) {
+        return;
+      }
+      this.released = true;
+    }
+    //pixels still shared with a copy stay alive for that copy
+    if (this.share != null) {
+      boolean last = this.share.leaveForRelease();
+      this.share = null;
+      if (!last) {
+        return;
+      }
+    }
+    this.pixels.release();
+  }
+
+  /**
+   * Makes the pixels of this image come back to the given pool once they are released, along with
+   * every copy made of them later. Does nothing for pixels kept off the heap.
+   *
+   * @param pool pool to use
+   */
+  void usePool(PixelBufferPool pool) {
+    pool.adopt(this.pixels);
+  }
+
+  /**
+   * Gets the position of a component in the packed pixel buffer. Does not check that the
+   * location is inside the image.
+   *
+   * @param width  column in which the pixel is located
+   * @param height row in which the pixel is located
+   * @param comp   component that is wanted
+   * @return index of the component in the pixel buffer
+   */
+  protected int index(int width, int height, int comp) {
+    return ((height * this.width) + width) * this.numComponents + comp;
+  }
+
   /**
    * Gets the value of the specified component for a specified pixel.
    *
@@ -130,12 +381,12 @@ public abstract class AbstractImage implements ImageModel {
   @Override
   public int getComponentValue(int width, int height, int comp) {
     //component does not exist for this type of image
-    if (width < 0 || width >= this.getWidth() || height < 0 || height >= this.getHeight()
+    if (width < 0 || width >= this.width || height < 0 || height >= this.height
         || comp < 0 || comp >= this.numComponents) {
       throw new IllegalArgumentException("Given component does not exist");
     }
     //returns the image directly since we might not want a copy always
-    return this.pixels[width][height][comp];
+    return this.pixels.get(this.index(width, height, comp));
   }
 
   /**
@@ -151,17 +402,148 @@ public abstract class AbstractImage implements ImageModel {
   @Override
   public void setComponentValue(int width, int height, int comp, int val) {
     //component does not exist for this type of image
-    if (width < 0 || width >= this.getWidth() || height < 0 || height >= this.getHeight()
+    if (width < 0 || width >= this.width || height < 0 || height >= this.height
         || comp < 0 || comp >= this.numComponents) {
       throw new IllegalArgumentException("Given component does not exist");
     }
+    this.unshare();
     //clamps up or down to fit the image limits
     if (val < 0) {
-      this.pixels[width][height][comp] = 0;
+      this.pixels.set(this.index(width, height, comp), 0);
     } else if (val > this.maxColorVal) {
-      this.pixels[width][height][comp] = this.maxColorVal;
+      this.pixels.set(this.index(width, height, comp), this.maxColorVal);
     } else {
-      this.pixels[width][height][comp] = val;
+      this.pixels.set(this.index(width, height, comp), val);
+    }
+  }
+
+  /**
+   * Reads the components of every pixel in a rectangular region into the given array. Values are
+   * written row by row, with the components of each pixel next to each other, so the component
+   * (x, y, c) of the region ends up at offset + ((y * regionWidth) + x) * numComponents + c.
+   *
+   * @param width        column of the left edge of the region
+   * @param height       row of the top edge of the region
+   * @param regionWidth  width of the region in pixels
+   * @param regionHeight height of the region in pixels
+   * @param dest         array to read the values into
+   * @param offset       position in the array for the first value
+   * @throws IllegalArgumentException region is not inside the image or does not fit the array
+   */
+  @Override
+  public void getRegion(int width, int height, int regionWidth, int regionHeight, int[] dest,
+                        int offset) {
+    this.checkRegion(width, height, regionWidth, regionHeight, dest, offset);
+    int rowLength = regionWidth * this.numComponents;
+    //a region as wide as the image is one run in the buffer
+    if (regionWidth == this.width) {
+      this.pixels.get(this.index(0, height, 0), dest, offset, rowLength * regionHeight);
+      return;
+    }
+    for (int row = 0; row < regionHeight; row = row + 1) {
+      this.pixels.get(this.index(width, height + row, 0), dest, offset + row * rowLength,
+          rowLength);
+    }
+  }
+
+  /**
+   * Sets the components of every pixel in a rectangular region from the given array, which is
+   * laid out the same way as for getRegion. Clamps each value to 0 or to the max if it exceeds
+   * either bound.
+   *
+   * @param width        column of the left edge of the region
+   * @param height       row of the top edge of the region
+   * @param regionWidth  width of the region in pixels
+   * @param regionHeight height of the region in pixels
+   * @param src          array holding the new values
+   * @param offset       position in the array of the first value
+   * @throws IllegalArgumentException region is not inside the image or does not fit the array
+   */
+  @Override
+  public void setRegion(int width, int height, int regionWidth, int regionHeight, int[] src,
+                        int offset) {
+    this.checkRegion(width, height, regionWidth, regionHeight, src, offset);
+    this.unshare();
+    int rowLength = regionWidth * this.numComponents;
+    for (int row = 0; row < regionHeight; row = row + 1) {
+      int start = offset + row * rowLength;
+      int index = this.index(width, height + row, 0);
+      if (this.inRange(src, start, rowLength)) {
+        this.pixels.set(index, src, start, rowLength);
+      } else {
+        //clamps up or down to fit the image limits
+        for (int i = 0; i < rowLength; i = i + 1) {
+          this.pixels.set(index + i, Math.max(0, Math.min(this.maxColorVal, src[start + i])));
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks that a region is inside of this image and that an array has room for its values.
+   *
+   * @param width        column of the left edge of the region
+   * @param height       row of the top edge of the region
+   * @param regionWidth  width of the region in pixels
+   * @param regionHeight height of the region in pixels
+   * @param values       array for the values of the region
+   * @param offset       position in the array of the first value
+   * @throws IllegalArgumentException region is not inside the image or does not fit the array
+   */
+  private void checkRegion(int width, int height, int regionWidth, int regionHeight,
+                           int[] values, int offset) {
+    if (width < 0 || height < 0 || regionWidth < 0 || regionHeight < 0
+        || width + regionWidth > this.width || height + regionHeight > this.height) {
+      throw new IllegalArgumentException("Given region is not inside of the image");
+    }
+    if (values == null || offset < 0
+        || offset + (long) regionWidth * regionHeight * this.numComponents > values.length) {
+      throw new IllegalArgumentException("Given array does not fit the region");
+    }
+  }
+
+  /**
+   * Tells if every value in a run of an array is between 0 and the max value, inclusive.
+   *
+   * @param values array holding the values
+   * @param start  position of the first value
+   * @param length number of values to check
+   * @return true if no value needs to be clamped
+   */
+  private boolean inRange(int[] values, int start, int length) {
+    for (int i = start; i < start + length; i = i + 1) {
+      if (values[i] < 0 || values[i] > this.maxColorVal) {
+        return false;
+      }
     }
+    return true;
+  }
+
+  /**
+   * Gets an unchecked view straight over the buffer that holds the pixels of this image, as a
+   * single block that covers the whole image. A view asked for writing first makes sure that the
+   * pixels are not shared with any copies. The view must not be kept after the image is changed in
+   * any other way.
+   *
+   * @param forWriting true if the pixels will be written through the view
+   * @return a list with the one view of the image
+   */
+  @Override
+  public List<RawPixels> getRawPixels(boolean forWriting) {
+    if (forWriting) {
+      this.unshare();
+    }
+    return Collections.singletonList(new RawPixels(this.pixels, 0, 0, this.width, this.height,
+        this.numComponents, this.maxColorVal, 0, this.width * this.numComponents));
+  }
+
+  /**
+   * Does nothing, since every pixel of this image is kept in its one buffer.
+   *
+   * @param change the change made to every view for writing
+   */
+  @Override
+  public void mapFill(Consumer<RawPixels> change) {
+    //every pixel was already changed through the view of the buffer
   }
 }
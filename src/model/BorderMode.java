@@ -0,0 +1,45 @@
+package model;
+
+/**
+ * What a filter reads for the pixels that its kernel reaches past the edges of an image.
+ */
+public enum BorderMode {
+  //pixels past the edge count as nothing, which darkens the edges of blurred images
+  ZERO,
+  //pixels past the edge repeat the nearest pixel on the edge
+  CLAMP,
+  //pixels past the edge mirror the pixels inside of it, without repeating the edge itself
+  MIRROR,
+  //pixels past the edge come from the other side of the image, as if it repeated forever
+  WRAP;
+
+  /**
+   * Gets the position inside of an image that a filter reads for a position that may be past its
+   * edges.
+   *
+   * @param pos  the position, which may be below 0 or at or above the size
+   * @param size the number of positions in the image along that direction
+   * @return the position inside of the image to read, or -1 if nothing is read
+   */
+  int source(int pos, int size) {
+    if (pos >= 0 && pos < size) {
+      return pos;
+    }
+    switch (this) {
+      case CLAMP:
+        return Math.max(0, Math.min(size - 1, pos));
+      case MIRROR:
+        if (size == 1) {
+          return 0;
+        }
+        //the positions repeat every time they go to the far edge and back
+        int period = 2 * (size - 1);
+        int inPeriod = Math.floorMod(pos, period);
+        return inPeriod < size ? inPeriod : period - inPeriod;
+      case WRAP:
+        return Math.floorMod(pos, size);
+      default:
+        return -1;
+    }
+  }
+}
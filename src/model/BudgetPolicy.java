@@ -0,0 +1,12 @@
+package model;
+
+/**
+ * What a model with a memory budget does when setting an image would put the images it keeps in
+ * memory over that budget.
+ */
+public enum BudgetPolicy {
+  //writes the least recently used images to disk until the rest fit, and reads them back later
+  SPILL,
+  //refuses to set the image, leaving the model as it was
+  FAIL
+}
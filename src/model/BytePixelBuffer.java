@@ -0,0 +1,166 @@
+package model;
+
+/**
+ * Pixel buffer that keeps every component value as an unsigned 8-bit number. Used for images
+ * whose maximum color value is at most 255, which is nearly every image that gets loaded, and
+ * takes a quarter of the memory of an int buffer.
+ */
+class BytePixelBuffer implements PixelBuffer {
+  //the stored component values, read back as unsigned
+  private byte[] values;
+  //number of values in the buffer, which may be less than the length of a pooled array
+  private final int size;
+  //pool that the array goes back to when the buffer is released, or null if there is none
+  private PixelBufferPool pool;
+
+  /**
+   * Constructs a buffer of the given size with every value set to 0.
+   *
+   * @param size number of values in the buffer
+   */
+  BytePixelBuffer(int size) {
+    this.values = new byte[size];
+    this.size = size;
+    this.pool = null;
+  }
+
+  /**
+   * Constructs a buffer over an array taken from a pool, which goes back to that pool when the
+   * buffer is released.
+   *
+   * @param values array holding the values, at least as long as the size
+   * @param size   number of values in the buffer
+   * @param pool   pool that the array came from
+   */
+  BytePixelBuffer(byte[] values, int size, PixelBufferPool pool) {
+    this.values = values;
+    this.size = size;
+    this.pool = pool;
+  }
+
+  /**
+   * Makes the array of this buffer go back to the given pool when the buffer is released, and
+   * makes copies of this buffer take their arrays from it.
+   *
+   * @param pool pool to use
+   */
+  void usePool(PixelBufferPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Gets the amount of component values that this buffer holds.
+   *
+   * @return number of values in the buffer
+   */
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the value stored at the given position.
+   *
+   * @param index position of the value in the buffer
+   * @return the value at that position
+   */
+  @Override
+  public int get(int index) {
+    return this.values[index] & 0xFF;
+  }
+
+  /**
+   * Stores a value at the given position.
+   *
+   * @param index position of the value in the buffer
+   * @param val   value to store, which must fit in the range of this buffer
+   */
+  @Override
+  public void set(int index, int val) {
+    this.values[index] = (byte) val;
+  }
+
+  /**
+   * Reads a run of values, starting at the given position, into the given array.
+   *
+   * @param index  position of the first value in the buffer
+   * @param dest   array to read the values into
+   * @param offset position in the array for the first value
+   * @param length number of values to read
+   */
+  @Override
+  public void get(int index, int[] dest, int offset, int length) {
+    for (int i = 0; i < length; i = i + 1) {
+      dest[offset + i] = this.values[index + i] & 0xFF;
+    }
+  }
+
+  /**
+   * Stores a run of values from the given array, starting at the given position.
+   *
+   * @param index  position of the first value in the buffer
+   * @param src    array holding the values, which must fit in the range of this buffer
+   * @param offset position in the array of the first value
+   * @param length number of values to store
+   */
+  @Override
+  public void set(int index, int[] src, int offset, int length) {
+    for (int i = 0; i < length; i = i + 1) {
+      this.values[index + i] = (byte) src[offset + i];
+    }
+  }
+
+  /**
+   * Gets an exact copy of this buffer that uses the same type of storage. Copies of a pooled
+   * buffer take their array from the same pool.
+   *
+   * @return copy of the buffer
+   */
+  @Override
+  public PixelBuffer copy() {
+    if (this.pool == null) {
+      BytePixelBuffer out = new BytePixelBuffer(this.size);
+      System.arraycopy(this.values, 0, out.values, 0, this.size);
+      return out;
+    }
+    byte[] copied = this.pool.takeBytes(this.size);
+    System.arraycopy(this.values, 0, copied, 0, this.size);
+    return new BytePixelBuffer(copied, this.size, this.pool);
+  }
+
+  /**
+   * Gets the number of bytes of memory that hold the values of this buffer, which for a pooled
+   * buffer is its whole array.
+   *
+   * @return bytes used by the buffer
+   */
+  @Override
+  public long getByteSize() {
+    return this.values.length;
+  }
+
+  /**
+   * Gets where the values of this buffer are kept in memory.
+   *
+   * @return the heap, since the values are kept in an array
+   */
+  @Override
+  public PixelStorage getStorage() {
+    return PixelStorage.HEAP;
+  }
+
+  /**
+   * Gives the array of this buffer back to its pool, if it has one. Otherwise does nothing, since
+   * the garbage collector takes care of arrays on the heap. A pooled buffer must not be used after
+   * it has been released.
+   */
+  @Override
+  public void release() {
+    if (this.pool != null) {
+      this.pool.give(this.values);
+      this.pool = null;
+      //later use fails right away instead of touching an array that another buffer took
+      this.values = new byte[0];
+    }
+  }
+}
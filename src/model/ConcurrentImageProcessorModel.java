@@ -0,0 +1,418 @@
+package model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Implementation of the ImageProcessorModel interface that can be used from many threads at once.
+ * Images are kept in a concurrent map, and each key has its own read/write lock, so commands on
+ * different keys run in parallel and any number of threads can read the image at one key together.
+ *
+ * <p>Filtering, transforming, and updating an image work on a copy of it that takes the image's
+ * place once it is done, so an image handed out by getImageAt never changes while another thread
+ * uses it. An image dropped from this model is released once no key refers to it and no thread is
+ * reading it through readImageAt, so threads that read an image while another may drop it should
+ * read it there, or copy it there to keep it. The lock of a key is dropped along with its image.
+ */
+public class ConcurrentImageProcessorModel implements ImageProcessorModel {
+  //collection of all the Images
+  private final ConcurrentMap<String, ImageModel> images;
+  //lock for each key that has an image or is being used
+  private final ConcurrentMap<String, ReentrantReadWriteLock> locks;
+  //number of threads reading each image through readImageAt, guarded by itself, which also
+  //guards placing images and releasing the ones that were dropped
+  private final Map<ImageModel, Integer> readers;
+  //images that were dropped while they were being read, released by the last reader
+  private final Set<ImageModel> dropped;
+  //where the pixels of the images in this model are kept
+  private final PixelStorage storage;
+  //how many threads images can be split between by the operations, changed from any thread
+  private volatile Parallelism parallelism;
+
+  /**
+   * Constructs a model with a blank concurrent map that keeps its images on the heap.
+   */
+  public ConcurrentImageProcessorModel() {
+    this(PixelStorage.HEAP);
+  }
+
+  /**
+   * Constructs a model with a blank concurrent map that keeps the pixels of its images in the
+   * given storage. Images that are set in another storage are moved into it.
+   *
+   * @param storage where the pixels of the images are kept
+   * @throws IllegalArgumentException storage is null
+   */
+  public ConcurrentImageProcessorModel(PixelStorage storage) {
+    if (storage == null) {
+      throw new IllegalArgumentException("Storage can not be null");
+    }
+    this.images = new ConcurrentHashMap<String, ImageModel>();
+    this.locks = new ConcurrentHashMap<String, ReentrantReadWriteLock>();
+    this.readers = new IdentityHashMap<ImageModel, Integer>();
+    this.dropped = Collections.newSetFromMap(new IdentityHashMap<ImageModel, Boolean>());
+    this.storage = storage;
+    this.parallelism = new Parallelism(1);
+  }
+
+  /**
+   * Gets the Image based on the key given by the key for it. Waits for any change to the image at
+   * the key to finish, but not for other threads that are reading it. The image may be released
+   * once it is dropped from this model, so use readImageAt to read an image that another thread
+   * may drop.
+   *
+   * @param key where we can find the image that we are looking for
+   * @return the image at the key
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  @Override
+  public ImageModel getImageAt(String key) {
+    if (!this.images.containsKey(key)) {
+      throw new IllegalArgumentException("Desired Image could not be found by that key");
+    }
+    ReentrantReadWriteLock lock = this.lock(key, false);
+    try {
+      return this.imageAt(key);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Reads the image at a key, keeping it from being released until the reader is done even if
+   * another thread drops it in the meantime. The key is not locked while the reader runs, so
+   * changes to the key are not held up by a slow reader.
+   *
+   * @param key    where we can find the image that we are looking for
+   * @param reader what is done with the image
+   * @param <T>    the type of what the reader gives back
+   * @return what the reader gave back
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  @Override
+  public <T> T readImageAt(String key, Function<ImageModel, T> reader) {
+    if (!this.images.containsKey(key)) {
+      throw new IllegalArgumentException("Desired Image could not be found by that key");
+    }
+    ImageModel image;
+    ReentrantReadWriteLock lock = this.lock(key, false);
+    try {
+      image = this.imageAt(key);
+      synchronized (this.readers) {
+        this.readers.merge(image, 1, Integer::sum);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    try {
+      return reader.apply(image);
+    } finally {
+      synchronized (this.readers) {
+        int left = this.readers.get(image) - 1;
+        if (left == 0) {
+          this.readers.remove(image);
+        } else {
+          this.readers.put(image, left);
+        }
+        if (left == 0 && this.dropped.remove(image)) {
+          image.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets a copy of the image at a key so that it can be changed and then set back at the same
+   * key. A copy is always handed out, since other threads may be reading the stored image. Use
+   * updateImageAt to change the image without losing changes that other threads make meanwhile.
+   *
+   * @param key where we can find the image that we are looking for
+   * @return copy of the image at the key
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  @Override
+  public ImageModel getImageForUpdate(String key) {
+    return this.readImageAt(key, ImageModel::getImageCopy);
+  }
+
+  /**
+   * Changes a copy of the image at a key and sets the result in its place, holding the write lock
+   * of the key the whole time, so changes to the same key from other threads wait for it instead
+   * of being lost. The change may use this model, including the same key, from its own thread.
+   *
+   * @param key    where we can find the image that we are looking for
+   * @param change the change to make, which gives back the image to set at the key
+   * @return the changed image
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  @Override
+  public ImageModel updateImageAt(String key, UnaryOperator<ImageModel> change) {
+    ReentrantReadWriteLock lock = this.lock(key, true);
+    try {
+      ImageModel image = change.apply(this.copyAt(key));
+      this.put(key, image);
+      return image;
+    } finally {
+      this.unlockWrite(key, lock);
+    }
+  }
+
+  /**
+   * Sets the Image based on the key given by the key for it. If the image is not kept in the
+   * storage of this model, a copy of it in that storage is placed instead. Setting null removes
+   * the image at the key. The image that was at the key before is released once no key refers to
+   * it and no thread is reading it.
+   *
+   * @param image image to be placed into the collection
+   * @param key   where we can find the image that we are looking for
+   */
+  @Override
+  public void setImageAt(ImageModel image, String key) {
+    ReentrantReadWriteLock lock = this.lock(key, true);
+    try {
+      this.put(key, image);
+    } finally {
+      this.unlockWrite(key, lock);
+    }
+  }
+
+  /**
+   * Removes an Image based on the key given, along with the lock of the key. The image is
+   * released once no key refers to it and no thread is reading it.
+   *
+   * @param key where we can find the image that we are looking for
+   */
+  @Override
+  public void removeImageAt(String key) {
+    ReentrantReadWriteLock lock = this.lock(key, true);
+    try {
+      this.put(key, null);
+    } finally {
+      this.unlockWrite(key, lock);
+    }
+  }
+
+  /**
+   * Filters an image using the kernel that is supplied to the function. Kernels should be arranged
+   * in the format of col x row, which matches the ImageModels that are in width x height. The
+   * filtered copy takes the place of the image once it is done.
+   *
+   * @param key    the name of the image that we are to filter
+   * @param kernel the Image that is used to filter the image
+   * @throws IllegalArgumentException image is not in model
+   * @throws IllegalArgumentException kernel is not of odd dimensions
+   */
+  @Override
+  public void filterImage(String key, double[][] kernel) {
+    this.filterImage(key, kernel, BorderMode.ZERO);
+  }
+
+  /**
+   * Filters an image using the kernel that is supplied to the function, reading the pixels that
+   * the kernel reaches past the edges of the image as the border mode says. The filtered copy
+   * takes the place of the image once it is done.
+   *
+   * @param key    the name of the image that we are to filter
+   * @param kernel the Image that is used to filter the image
+   * @param border what is read for pixels past the edges of the image
+   * @throws IllegalArgumentException image is not in model
+   * @throws IllegalArgumentException kernel is not of odd dimensions
+   * @throws IllegalArgumentException border mode is null
+   */
+  @Override
+  public void filterImage(String key, double[][] kernel, BorderMode border) {
+    //checks that we match and that the dimensions are odd too
+    if (kernel.length % 2 == 0 || kernel[0].length % 2 == 0) {
+      throw new IllegalArgumentException("Kernel must have odd matching dimensions");
+    }
+    if (border == null) {
+      throw new IllegalArgumentException("Border mode can not be null");
+    }
+    ReentrantReadWriteLock lock = this.lock(key, true);
+    try {
+      ImageModel image = this.copyAt(key);
+      ImageOperations.filter(image, kernel, border, this.parallelism);
+      this.put(key, image);
+    } finally {
+      this.unlockWrite(key, lock);
+    }
+  }
+
+  /**
+   * Does a linear transformation on the specified image, using the matrix. The transformed copy
+   * takes the place of the image once it is done.
+   *
+   * @param key     the name of the image in the model
+   * @param tMatrix a 3 x 3 matrix to use to transform the RGB components
+   * @throws IllegalArgumentException image is not in model
+   * @throws IllegalArgumentException transformation matrix is not 3 x 3
+   */
+  @Override
+  public void transformImage(String key, double[][] tMatrix) {
+    if (tMatrix.length != 3 || tMatrix[0].length != 3) {
+      throw new IllegalArgumentException("Transformation must use 3x3 matrix");
+    }
+    ReentrantReadWriteLock lock = this.lock(key, true);
+    try {
+      ImageModel image = this.copyAt(key);
+      ImageOperations.transform(image, tMatrix, this.parallelism);
+      this.put(key, image);
+    } finally {
+      this.unlockWrite(key, lock);
+    }
+  }
+
+  /**
+   * Gets a summary of the memory used by the images in this model. Images set or removed by other
+   * threads while the summary is made may or may not be counted.
+   *
+   * @return summary of the memory used by the images
+   */
+  @Override
+  public MemorySummary getMemorySummary() {
+    Map<String, ImageModel> snapshot = new HashMap<String, ImageModel>(this.images);
+    return MemorySummary.of(snapshot, snapshot.size(), 0, 0, ImageProcessorModelImpl.NO_BUDGET);
+  }
+
+  /**
+   * Gets a copy of the image at a key to change in place of it. Must be called while holding the
+   * write lock of the key.
+   *
+   * @param key where we can find the image that we are looking for
+   * @return copy of the image at the key
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  private ImageModel copyAt(String key) {
+    return this.imageAt(key).getImageCopy();
+  }
+
+  /**
+   * Gets the image at a key. Must be called while holding a lock of the key.
+   *
+   * @param key where we can find the image that we are looking for
+   * @return the image at the key
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  private ImageModel imageAt(String key) {
+    ImageModel image = this.images.get(key);
+    //checks that the image exists in this model
+    if (image == null) {
+      throw new IllegalArgumentException("Desired Image could not be found by that key");
+    }
+    return image;
+  }
+
+  /**
+   * Places an image at a key, or removes the image at the key if it is null, and drops the image
+   * that was there before. Must be called while holding the write lock of the key.
+   *
+   * @param key   where the image is placed
+   * @param image image to be placed, or null to remove the image at the key
+   */
+  private void put(String key, ImageModel image) {
+    ImageModel toStore = image;
+    if (image != null && image.getStorage() != this.storage) {
+      toStore = image.getImageCopy(this.storage);
+    }
+    //placing, checking for other keys, and releasing happen together, so two threads dropping an
+    //image stored under two keys can not both find it unused
+    synchronized (this.readers) {
+      ImageModel old;
+      if (toStore == null) {
+        old = this.images.remove(key);
+      } else {
+        //an image set again after it was dropped is no longer waiting to be released
+        this.dropped.remove(toStore);
+        old = this.images.put(key, toStore);
+      }
+      if (old == null || old == toStore || this.images.containsValue(old)) {
+        return;
+      }
+      if (this.readers.containsKey(old)) {
+        //the last thread reading it releases it
+        this.dropped.add(old);
+      } else {
+        old.release();
+      }
+    }
+  }
+
+  /**
+   * Gets the lock of a key, making it the first time the key is used.
+   *
+   * @param key key to lock
+   * @return the read/write lock of the key
+   */
+  private ReentrantReadWriteLock lockFor(String key) {
+    return this.locks.computeIfAbsent(key, k -> new ReentrantReadWriteLock());
+  }
+
+  /**
+   * Locks a key for reading or writing. A thread that waited on the lock of a key that was removed
+   * in the meantime tries again with the lock that the key has now, so two threads never hold
+   * different locks for the same key.
+   *
+   * @param key   key to lock
+   * @param write true to lock for writing, false to lock for reading
+   * @return the read/write lock of the key, now held for reading or writing
+   */
+  private ReentrantReadWriteLock lock(String key, boolean write) {
+    while (true) {
+      ReentrantReadWriteLock lock = this.lockFor(key);
+      Lock held = write ? lock.writeLock() : lock.readLock();
+      held.lock();
+      if (this.locks.get(key) == lock) {
+        return lock;
+      }
+      held.unlock();
+    }
+  }
+
+  /**
+   * Unlocks the write lock of a key, first dropping the lock from the model if the key has no
+   * image anymore, so that keys that are no longer used do not keep their locks forever. Threads
+   * waiting on the dropped lock move on to a new one.
+   *
+   * @param key  key that was locked
+   * @param lock the read/write lock of the key that is held for writing
+   */
+  private void unlockWrite(String key, ReentrantReadWriteLock lock) {
+    if (lock.getWriteHoldCount() == 1 && !this.images.containsKey(key)) {
+      this.locks.remove(key, lock);
+    }
+    lock.writeLock().unlock();
+  }
+
+  /**
+   * Sets how many threads filtering and transforming can split an image between.
+   *
+   * @param parallelism the settings for splitting images
+   * @throws IllegalArgumentException settings are null
+   */
+  @Override
+  public void setParallelism(Parallelism parallelism) {
+    if (parallelism == null) {
+      throw new IllegalArgumentException("Parallelism can not be null");
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Gets how many threads filtering and transforming can split an image between.
+   *
+   * @return the settings for splitting images
+   */
+  @Override
+  public Parallelism getParallelism() {
+    return this.parallelism;
+  }
+}
@@ -0,0 +1,281 @@
+package model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Pixel buffer that keeps its values in native memory outside of the Java heap, using a direct
+ * ByteBuffer. Values take 1, 2, or 4 bytes depending on the maximum color value, like the heap
+ * buffers do. The native memory is given back as soon as the buffer is released instead of
+ * waiting on the garbage collector, so very large images do not add to GC pauses or heap sizing.
+ */
+class DirectPixelBuffer implements PixelBuffer {
+  //buffer that any released buffer switches to, so later use fails instead of reading freed memory
+  private static final ByteBuffer RELEASED = ByteBuffer.allocateDirect(0);
+  //the stored component values
+  private ByteBuffer data;
+  //number of bytes that each value takes (1, 2, or 4)
+  private final int valueBytes;
+  //number of values in the buffer
+  private final int size;
+  //maximum value that the buffer was made to hold
+  private final int maxColorVal;
+
+  /**
+   * Constructs a buffer of the given size with every value set to 0, using as few bytes per value
+   * as can hold the maximum color value.
+   *
+   * @param size        number of values in the buffer
+   * @param maxColorVal maximum value that will be stored in the buffer
+   * @throws IllegalArgumentException buffer would be too large for a single direct buffer
+   */
+  DirectPixelBuffer(int size, int maxColorVal) {
+    this(ByteBuffer.allocateDirect(DirectPixelBuffer.byteSize(size, maxColorVal)), size,
+        maxColorVal);
+  }
+
+  /**
+   * Constructs a buffer that keeps its values in the given byte buffer, which must have room for
+   * the given amount of values.
+   *
+   * @param data        direct or mapped buffer to keep the values in
+   * @param size        number of values in the buffer
+   * @param maxColorVal maximum value that will be stored in the buffer
+   */
+  DirectPixelBuffer(ByteBuffer data, int size, int maxColorVal) {
+    this.data = data.order(ByteOrder.nativeOrder());
+    this.valueBytes = DirectPixelBuffer.valueBytesFor(maxColorVal);
+    this.maxColorVal = maxColorVal;
+    this.size = size;
+  }
+
+  /**
+   * Gets the number of bytes needed to hold the given amount of values.
+   *
+   * @param size        number of values in the buffer
+   * @param maxColorVal maximum value that will be stored in the buffer
+   * @return number of bytes for the values
+   * @throws IllegalArgumentException buffer would be too large for a single byte buffer
+   */
+  static int byteSize(int size, int maxColorVal) {
+    long bytes = (long) size * DirectPixelBuffer.valueBytesFor(maxColorVal);
+    if (bytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image is too large to be stored off the heap");
+    }
+    return (int) bytes;
+  }
+
+  /**
+   * Gets the number of bytes needed for each value so that it can hold every value from 0 to the
+   * given maximum.
+   *
+   * @param maxColorVal maximum value that will be stored
+   * @return 1, 2, or 4 bytes
+   */
+  static int valueBytesFor(int maxColorVal) {
+    if (maxColorVal <= PixelBuffers.BYTE_LIMIT) {
+      return 1;
+    } else if (maxColorVal <= PixelBuffers.SHORT_LIMIT) {
+      return 2;
+    } else {
+      return 4;
+    }
+  }
+
+  /**
+   * Gets the amount of component values that this buffer holds.
+   *
+   * @return number of values in the buffer
+   */
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the value stored at the given position.
+   *
+   * @param index position of the value in the buffer
+   * @return the value at that position
+   */
+  @Override
+  public int get(int index) {
+    switch (this.valueBytes) {
+      case 1:
+        return this.data.get(index) & 0xFF;
+      case 2:
+        return this.data.getShort(index << 1) & 0xFFFF;
+      default:
+        return this.data.getInt(index << 2);
+    }
+  }
+
+  /**
+   * Stores a value at the given position.
+   *
+   * @param index position of the value in the buffer
+   * @param val   value to store, which must fit in the range of this buffer
+   */
+  @Override
+  public void set(int index, int val) {
+    switch (this.valueBytes) {
+      case 1:
+        this.data.put(index, (byte) val);
+        break;
+      case 2:
+        this.data.putShort(index << 1, (short) val);
+        break;
+      default:
+        this.data.putInt(index << 2, val);
+    }
+  }
+
+  /**
+   * Reads a run of values, starting at the given position, into the given array.
+   *
+   * @param index  position of the first value in the buffer
+   * @param dest   array to read the values into
+   * @param offset position in the array for the first value
+   * @param length number of values to read
+   */
+  @Override
+  public void get(int index, int[] dest, int offset, int length) {
+    switch (this.valueBytes) {
+      case 1:
+        for (int i = 0; i < length; i = i + 1) {
+          dest[offset + i] = this.data.get(index + i) & 0xFF;
+        }
+        break;
+      case 2:
+        for (int i = 0; i < length; i = i + 1) {
+          dest[offset + i] = this.data.getShort((index + i) << 1) & 0xFFFF;
+        }
+        break;
+      default:
+        //an int view lets the whole run be copied at once
+        IntBuffer ints = this.data.asIntBuffer();
+        ints.position(index);
+        ints.get(dest, offset, length);
+    }
+  }
+
+  /**
+   * Stores a run of values from the given array, starting at the given position.
+   *
+   * @param index  position of the first value in the buffer
+   * @param src    array holding the values, which must fit in the range of this buffer
+   * @param offset position in the array of the first value
+   * @param length number of values to store
+   */
+  @Override
+  public void set(int index, int[] src, int offset, int length) {
+    switch (this.valueBytes) {
+      case 1:
+        for (int i = 0; i < length; i = i + 1) {
+          this.data.put(index + i, (byte) src[offset + i]);
+        }
+        break;
+      case 2:
+        for (int i = 0; i < length; i = i + 1) {
+          this.data.putShort((index + i) << 1, (short) src[offset + i]);
+        }
+        break;
+      default:
+        //an int view lets the whole run be copied at once
+        IntBuffer ints = this.data.asIntBuffer();
+        ints.position(index);
+        ints.put(src, offset, length);
+    }
+  }
+
+  /**
+   * Gets an exact copy of this buffer that is also kept off the heap.
+   *
+   * @return copy of the buffer
+   */
+  @Override
+  public PixelBuffer copy() {
+    DirectPixelBuffer out = new DirectPixelBuffer(this.size, this.maxColorVal);
+    out.copyFrom(this);
+    return out;
+  }
+
+  /**
+   * Copies every value of another buffer of the same size into this one.
+   *
+   * @param other buffer to copy the values from
+   */
+  void copyFrom(DirectPixelBuffer other) {
+    //duplicates keep the positions of the shared buffers untouched
+    ByteBuffer from = other.data.duplicate();
+    ByteBuffer to = this.data.duplicate();
+    from.clear();
+    to.clear();
+    to.put(from);
+  }
+
+  /**
+   * Gets the maximum value that this buffer was made to hold.
+   *
+   * @return maximum value for the buffer
+   */
+  int getMaxColorValue() {
+    return this.maxColorVal;
+  }
+
+  /**
+   * Gets the number of bytes of memory that hold the values of this buffer.
+   *
+   * @return bytes used by the buffer
+   */
+  @Override
+  public long getByteSize() {
+    return this.data.capacity();
+  }
+
+  /**
+   * Gets where the values of this buffer are kept in memory.
+   *
+   * @return off the heap, since the values are kept in native memory
+   */
+  @Override
+  public PixelStorage getStorage() {
+    return PixelStorage.OFF_HEAP;
+  }
+
+  /**
+   * Gives back the native memory of this buffer right away. Any later use of the buffer throws
+   * an exception instead of touching the freed memory.
+   */
+  @Override
+  public void release() {
+    ByteBuffer old = this.data;
+    this.data = RELEASED;
+    if (old != RELEASED) {
+      DirectPixelBuffer.free(old);
+    }
+  }
+
+  /**
+   * Frees the native memory behind a direct or mapped buffer without waiting for the garbage
+   * collector. The JDK has no public way to do this before the foreign memory API, so this uses
+   * the cleaner hook in sun.misc.Unsafe when it is available, and otherwise leaves the memory to
+   * be freed once the buffer is collected.
+   *
+   * @param buffer the direct buffer to free, which must not be used afterwards
+   */
+  static void free(ByteBuffer buffer) {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      invokeCleaner.invoke(theUnsafe.get(null), buffer);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      //cleaner is not reachable on this JVM, so the garbage collector frees the memory later
+    }
+  }
+}
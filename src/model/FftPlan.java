@@ -0,0 +1,369 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A plan for filtering with a large kernel through fast Fourier transforms. The image is cut into
+ * square tiles that overlap by the size of the kernel, and each tile is transformed, multiplied by
+ * the transform of the kernel, and transformed back, which takes a number of steps per pixel that
+ * grows with the log of the tile size instead of with the size of the kernel. The components are
+ * all real, so two of them are transformed at once as the real and imaginary parts of one tile.
+ * The tables of each tile size are made once and kept for every kernel that uses that size, and
+ * the transforms of the most recently used kernels are kept by their weights and tile size, so
+ * filtering with the same kernel again does not transform it again.
+ */
+final class FftPlan {
+  //the smallest and largest sizes of the tiles that are tried
+  private static final int MIN_SIZE = 16;
+  private static final int MAX_SIZE = 512;
+  //how many multiplications of the direct filter one butterfly of a transform is worth, since a
+  //butterfly works on complex values and jumps around the tile
+  private static final double BUTTERFLY_COST = 8;
+  //the tables for each size of tile that was used so far, by size
+  private static final Map<Integer, Tables> TABLES = new HashMap<Integer, Tables>();
+  //most transforms of kernels kept at once, since those of large tiles take megabytes each
+  private static final int MAX_SPECTRA = 8;
+  //the transforms of the most recently used kernels, by their weights and tile size, oldest first
+  private static final Map<SpectrumKey, double[][]> SPECTRA =
+      new LinkedHashMap<SpectrumKey, double[][]>(16, 0.75f, true) {
+        /**
+         * Drops the least recently used transform once there are more than the most kept.
+         *
+         * @param eldest the least recently used transform
+         * @return true if it should be dropped
+         */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SpectrumKey, double[][]> eldest) {
+          return this.size() > MAX_SPECTRA;
+        }
+      };
+
+  //the width and height of the tiles
+  private final int size;
+  //the tables for the size of the tiles
+  private final Tables tables;
+  //the number of columns and rows of the kernel
+  private final int cols;
+  private final int rows;
+  //the real and imaginary parts of the transform of the kernel, divided by the number of values in
+  //a tile so that transforming back gives the filtered values
+  private final double[] kernelRe;
+  private final double[] kernelIm;
+
+  /**
+   * Constructs a plan for a kernel with tiles of the given size, transforming the kernel unless
+   * the same kernel was transformed for that size before.
+   *
+   * @param kernel kernel arranged as col x row
+   * @param size   the width and height of the tiles, a power of 2 larger than the kernel
+   */
+  private FftPlan(double[][] kernel, int size) {
+    this.size = size;
+    this.tables = FftPlan.tablesFor(size);
+    this.cols = kernel.length;
+    this.rows = kernel[0].length;
+    SpectrumKey key = new SpectrumKey(kernel, size);
+    double[][] spectrum;
+    synchronized (SPECTRA) {
+      spectrum = SPECTRA.get(key);
+    }
+    if (spectrum == null) {
+      spectrum = this.transformKernel(kernel);
+      synchronized (SPECTRA) {
+        SPECTRA.put(key, spectrum);
+      }
+    }
+    this.kernelRe = spectrum[0];
+    this.kernelIm = spectrum[1];
+  }
+
+  /**
+   * Plans how to filter an image with a kernel through transforms, if that takes fewer steps than
+   * the filter that goes through the kernel for each pixel. Tries each size of tile and keeps the
+   * one that takes the fewest steps for the whole image.
+   *
+   * @param kernel    kernel arranged as col x row
+   * @param plan      how the kernel would be filtered without transforms
+   * @param imgWidth  width of the image in pixels
+   * @param imgHeight height of the image in pixels
+   * @return the plan, or null if filtering without transforms is faster
+   */
+  static FftPlan choose(double[][] kernel, KernelPlan plan, int imgWidth, int imgHeight) {
+    int cols = kernel.length;
+    int rows = kernel[0].length;
+    double direct = (double) imgWidth * imgHeight * 3
+        * (plan.isSeparable() ? plan.getTerms() * (cols + rows) : cols * rows);
+    int best = 0;
+    double bestCost = direct;
+    for (int size = MIN_SIZE; size <= MAX_SIZE; size = size * 2) {
+      if (size <= Math.max(cols, rows)) {
+        continue;
+      }
+      long tiles = (long) FftPlan.ceil(imgWidth, size - cols + 1)
+          * FftPlan.ceil(imgHeight, size - rows + 1);
+      //two components are done at once, and each is transformed there and back along both
+      //directions, with a multiplication by the kernel in between
+      double pairs = Math.ceil(tiles * 3 / 2.0);
+      double log = Integer.numberOfTrailingZeros(size);
+      double cost = pairs * size * size * (4 * log / 2 * BUTTERFLY_COST + 1);
+      if (cost < bestCost) {
+        best = size;
+        bestCost = cost;
+      }
+    }
+    return best == 0 ? null : new FftPlan(kernel, best);
+  }
+
+  /**
+   * Gets the width and height of the tiles.
+   *
+   * @return the size of the tiles
+   */
+  int getSize() {
+    return this.size;
+  }
+
+  /**
+   * Gets how many columns of filtered pixels each tile gives.
+   *
+   * @return the width of the pixels that a tile filters
+   */
+  int getTileWidth() {
+    return this.size - this.cols + 1;
+  }
+
+  /**
+   * Gets how many rows of filtered pixels each tile gives.
+   *
+   * @return the height of the pixels that a tile filters
+   */
+  int getTileHeight() {
+    return this.size - this.rows + 1;
+  }
+
+  /**
+   * Filters two tiles of components at once, given as the real and imaginary parts of one tile
+   * with rows of the tile size one after another. The tiles start half of the kernel above and to
+   * the left of the pixels they filter, and the filtered value of the pixel at (x, y) from that
+   * corner ends up at (x + cols - 1, y + rows - 1).
+   *
+   * @param re   values of the first tile, replaced by the filtered values
+   * @param im   values of the second tile, replaced by the filtered values
+   * @param tmpRe space for one column of real parts
+   * @param tmpIm space for one column of imaginary parts
+   */
+  void filter(double[] re, double[] im, double[] tmpRe, double[] tmpIm) {
+    this.transform(re, im, false, tmpRe, tmpIm);
+    for (int i = 0; i < re.length; i = i + 1) {
+      double real = re[i] * this.kernelRe[i] - im[i] * this.kernelIm[i];
+      im[i] = re[i] * this.kernelIm[i] + im[i] * this.kernelRe[i];
+      re[i] = real;
+    }
+    this.transform(re, im, true, tmpRe, tmpIm);
+  }
+
+  /**
+   * Transforms a kernel for the size of the tiles of this plan. The transform is never changed
+   * afterwards, so plans for the same kernel can share it.
+   *
+   * @param kernel kernel arranged as col x row
+   * @return the real parts and then the imaginary parts of the transform
+   */
+  private double[][] transformKernel(double[][] kernel) {
+    int n = this.size;
+    double[] re = new double[n * n];
+    double[] im = new double[n * n];
+    //the kernel is flipped, since the transforms convolve while filtering does not
+    for (int col = 0; col < this.cols; col = col + 1) {
+      for (int row = 0; row < this.rows; row = row + 1) {
+        re[(this.rows - 1 - row) * n + this.cols - 1 - col] = kernel[col][row] / ((double) n * n);
+      }
+    }
+    this.transform(re, im, false, new double[n], new double[n]);
+    return new double[][]{re, im};
+  }
+
+  /**
+   * Transforms a tile along its rows and then along its columns, in place.
+   *
+   * @param re      real parts of the tile
+   * @param im      imaginary parts of the tile
+   * @param inverse true to transform back
+   * @param tmpRe   space for one column of real parts
+   * @param tmpIm   space for one column of imaginary parts
+   */
+  private void transform(double[] re, double[] im, boolean inverse, double[] tmpRe,
+                         double[] tmpIm) {
+    int n = this.size;
+    for (int row = 0; row < n; row = row + 1) {
+      this.transformLine(re, im, row * n, inverse);
+    }
+    //columns are copied out first, so that each one is transformed in a single run of memory
+    for (int col = 0; col < n; col = col + 1) {
+      for (int row = 0; row < n; row = row + 1) {
+        tmpRe[row] = re[row * n + col];
+        tmpIm[row] = im[row * n + col];
+      }
+      this.transformLine(tmpRe, tmpIm, 0, inverse);
+      for (int row = 0; row < n; row = row + 1) {
+        re[row * n + col] = tmpRe[row];
+        im[row * n + col] = tmpIm[row];
+      }
+    }
+  }
+
+  /**
+   * Transforms one line of values of the tile size in place, by putting them in bit reversed
+   * order and then joining pairs of halves that double in length each time.
+   *
+   * @param re      real parts of the values
+   * @param im      imaginary parts of the values
+   * @param start   position of the first value
+   * @param inverse true to transform back
+   */
+  private void transformLine(double[] re, double[] im, int start, boolean inverse) {
+    int n = this.size;
+    int[] reversed = this.tables.reversed;
+    for (int i = 0; i < n; i = i + 1) {
+      int j = reversed[i];
+      if (i < j) {
+        double swap = re[start + i];
+        re[start + i] = re[start + j];
+        re[start + j] = swap;
+        swap = im[start + i];
+        im[start + i] = im[start + j];
+        im[start + j] = swap;
+      }
+    }
+    double sign = inverse ? 1 : -1;
+    for (int length = 2; length <= n; length = length * 2) {
+      int half = length / 2;
+      int step = n / length;
+      for (int first = start; first < start + n; first = first + length) {
+        for (int k = 0; k < half; k = k + 1) {
+          double wRe = this.tables.cos[k * step];
+          double wIm = sign * this.tables.sin[k * step];
+          int u = first + k;
+          int v = u + half;
+          double tRe = wRe * re[v] - wIm * im[v];
+          double tIm = wRe * im[v] + wIm * re[v];
+          re[v] = re[u] - tRe;
+          im[v] = im[u] - tIm;
+          re[u] = re[u] + tRe;
+          im[u] = im[u] + tIm;
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the tables for a size of tile, making them the first time that size is used.
+   *
+   * @param size the width and height of the tiles
+   * @return the tables for the size
+   */
+  private static Tables tablesFor(int size) {
+    synchronized (TABLES) {
+      Tables out = TABLES.get(size);
+      if (out == null) {
+        out = new Tables(size);
+        TABLES.put(size, out);
+      }
+      return out;
+    }
+  }
+
+  /**
+   * Divides two positive whole numbers, rounding up.
+   *
+   * @param num   the number to divide
+   * @param denom the number to divide by
+   * @return the rounded up result
+   */
+  private static int ceil(int num, int denom) {
+    return (num + denom - 1) / denom;
+  }
+
+  /**
+   * The weights of a kernel and the size of tile it was transformed for, used to find its
+   * transform again. The weights are copied, so changing the kernel later does not change the key.
+   */
+  private static final class SpectrumKey {
+    //the weights of the kernel, arranged as col x row
+    private final double[][] kernel;
+    //the width and height of the tiles
+    private final int size;
+
+    /**
+     * Constructs the key for a kernel and a size of tile.
+     *
+     * @param kernel kernel arranged as col x row
+     * @param size   the width and height of the tiles
+     */
+    private SpectrumKey(double[][] kernel, int size) {
+      this.kernel = new double[kernel.length][];
+      for (int col = 0; col < kernel.length; col = col + 1) {
+        this.kernel[col] = kernel[col].clone();
+      }
+      this.size = size;
+    }
+
+    /**
+     * Tells if another key has the same weights and size of tile.
+     *
+     * @param other the object to compare to
+     * @return true if both keys are for the same transform
+     */
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof SpectrumKey)) {
+        return false;
+      }
+      SpectrumKey that = (SpectrumKey) other;
+      return this.size == that.size && Arrays.deepEquals(this.kernel, that.kernel);
+    }
+
+    /**
+     * Gets a hash code from the weights and the size of tile.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+      return Arrays.deepHashCode(this.kernel) * 31 + this.size;
+    }
+  }
+
+  /**
+   * The tables that the transforms of one size of tile use, which never change once they are made.
+   */
+  private static final class Tables {
+    //the position that each value goes to before the halves are joined
+    private final int[] reversed;
+    //the cosines and sines of the angles of the roots of unity used to join the halves
+    private final double[] cos;
+    private final double[] sin;
+
+    /**
+     * Constructs the tables for a size of tile.
+     *
+     * @param size the width and height of the tiles, a power of 2
+     */
+    private Tables(int size) {
+      int bits = Integer.numberOfTrailingZeros(size);
+      this.reversed = new int[size];
+      for (int i = 0; i < size; i = i + 1) {
+        this.reversed[i] = Integer.reverse(i) >>> (32 - bits);
+      }
+      this.cos = new double[size / 2];
+      this.sin = new double[size / 2];
+      for (int k = 0; k < size / 2; k = k + 1) {
+        this.cos[k] = Math.cos(2 * Math.PI * k / size);
+        this.sin[k] = Math.sin(2 * Math.PI * k / size);
+      }
+    }
+  }
+}
@@ -2,6 +2,8 @@ package model;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 /**
  * Implementation of the IPModelGUI interface. Uses an ImageProcessorModel to carry out functions
@@ -32,15 +34,17 @@ public class IPModelGuiImpl implements IPModelGUI {
   public int[][] getHistogram(String key) throws IllegalArgumentException {
     ImageModel base = this.model.getImageAt(key);
     int[][] histo = new int[4][base.getMaxColorValue() + 1];
-    for (int w = 0; w < base.getWidth(); w = w + 1) {
-      for (int h = 0; h < base.getHeight(); h = h + 1) {
+    int comps = base.getNumComponents();
+    int[] row = new int[base.getWidth() * comps];
+    for (int h = 0; h < base.getHeight(); h = h + 1) {
+      base.getRegion(0, h, base.getWidth(), 1, row, 0);
+      for (int pixel = 0; pixel < row.length; pixel = pixel + comps) {
         //adds one to that specific value for a component
-        histo[0][base.getComponentValue(w, h, 0)] += 1;
-        histo[1][base.getComponentValue(w, h, 1)] += 1;
-        histo[2][base.getComponentValue(w, h, 2)] += 1;
+        histo[0][row[pixel]] += 1;
+        histo[1][row[pixel + 1]] += 1;
+        histo[2][row[pixel + 2]] += 1;
         //does the intensity as the fourth one
-        int intensity = (base.getComponentValue(w, h, 0) + base.getComponentValue(w, h, 1)
-            + base.getComponentValue(w, h, 2)) / 3;
+        int intensity = (row[pixel] + row[pixel + 1] + row[pixel + 2]) / 3;
         histo[3][intensity] += 1;
       }
     }
@@ -66,15 +70,20 @@ public class IPModelGuiImpl implements IPModelGUI {
     //the bufferedImage version of the ImageModel object we are trying to convert
     BufferedImage end = new BufferedImage(base.getWidth(), base.getHeight(),
         BufferedImage.TYPE_INT_RGB);
-    //goes through the ImageModel and puts data of each pixel to the BufferedImage
-    for (int w = 0; w < base.getWidth(); w = w + 1) {
-      for (int h = 0; h < base.getHeight(); h = h + 1) {
+    //goes through the ImageModel a row at a time and puts data of each pixel to the BufferedImage
+    int comps = base.getNumComponents();
+    int[] row = new int[base.getWidth() * comps];
+    int[] rgbRow = new int[base.getWidth()];
+    for (int h = 0; h < base.getHeight(); h = h + 1) {
+      base.getRegion(0, h, base.getWidth(), 1, row, 0);
+      for (int w = 0; w < base.getWidth(); w = w + 1) {
         //fits the values so that it is in a 255 scale
-        int red = (int) (base.getComponentValue(w, h, 0) / (base.getMaxColorValue() / 255.0));
-        int green = (int) (base.getComponentValue(w, h, 1) / (base.getMaxColorValue() / 255.0));
-        int blue = (int) (base.getComponentValue(w, h, 2) / (base.getMaxColorValue() / 255.0));
-        end.setRGB(w, h, new Color(red, green, blue).getRGB());
+        int red = (int) (row[w * comps] / (base.getMaxColorValue() / 255.0));
+        int green = (int) (row[w * comps + 1] / (base.getMaxColorValue() / 255.0));
+        int blue = (int) (row[w * comps + 2] / (base.getMaxColorValue() / 255.0));
+        rgbRow[w] = new Color(red, green, blue).getRGB();
       }
+      end.setRGB(0, h, base.getWidth(), 1, rgbRow, 0, base.getWidth());
     }
     return end;
   }
@@ -91,6 +100,46 @@ public class IPModelGuiImpl implements IPModelGUI {
     return this.model.getImageAt(key);
   }
 
+  /**
+   * Gets the image at a key so that it can be changed and then set back at the same key, without
+   * a copy when nothing else in the model refers to it.
+   *
+   * @param key where we can find the image that we are looking for
+   * @return the image at the key, or a copy of it
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  @Override
+  public ImageModel getImageForUpdate(String key) {
+    return this.model.getImageForUpdate(key);
+  }
+
+  /**
+   * Reads the image at a key.
+   *
+   * @param key    where we can find the image that we are looking for
+   * @param reader what is done with the image
+   * @param <T>    the type of what the reader gives back
+   * @return what the reader gave back
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  @Override
+  public <T> T readImageAt(String key, Function<ImageModel, T> reader) {
+    return this.model.readImageAt(key, reader);
+  }
+
+  /**
+   * Changes the image at a key and sets the result back at the key in one step.
+   *
+   * @param key    where we can find the image that we are looking for
+   * @param change the change to make, which gives back the image to set at the key
+   * @return the changed image
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  @Override
+  public ImageModel updateImageAt(String key, UnaryOperator<ImageModel> change) {
+    return this.model.updateImageAt(key, change);
+  }
+
   /**
    * Sets the Image based on the key given by the key for it.
    *
@@ -126,6 +175,23 @@ public class IPModelGuiImpl implements IPModelGUI {
     this.model.filterImage(key, kernel);
   }
 
+  /**
+   * Filters an image using the kernel that is supplied to the function, reading the pixels that
+   * the kernel reaches past the edges of the image as the border mode says.
+   *
+   * @param key    the name of the image that we are to filter
+   * @param kernel the Image that is used to filter the image
+   * @param border what is read for pixels past the edges of the image
+   * @throws IllegalArgumentException image is not in model
+   * @throws IllegalArgumentException kernel is not of odd dimensions
+   * @throws IllegalArgumentException border mode is null
+   */
+  @Override
+  public void filterImage(String key, double[][] kernel, BorderMode border)
+      throws IllegalArgumentException {
+    this.model.filterImage(key, kernel, border);
+  }
+
   /**
    * Does a linear transformation on the specified image, using the matrix.
    *
@@ -138,4 +204,35 @@ public class IPModelGuiImpl implements IPModelGUI {
   public void transformImage(String key, double[][] tMatrix) throws IllegalArgumentException {
     this.model.transformImage(key, tMatrix);
   }
+
+  /**
+   * Gets a summary of the memory used by the images in this model.
+   *
+   * @return summary of the memory used by the images
+   */
+  @Override
+  public MemorySummary getMemorySummary() {
+    return this.model.getMemorySummary();
+  }
+
+  /**
+   * Sets how many threads the operations of this model can split an image between.
+   *
+   * @param parallelism the settings for splitting images
+   * @throws IllegalArgumentException settings are null
+   */
+  @Override
+  public void setParallelism(Parallelism parallelism) {
+    this.model.setParallelism(parallelism);
+  }
+
+  /**
+   * Gets how many threads the operations of this model can split an image between.
+   *
+   * @return the settings for splitting images
+   */
+  @Override
+  public Parallelism getParallelism() {
+    return this.model.getParallelism();
+  }
 }
@@ -0,0 +1,115 @@
+package model;
+
+/**
+ * Builds an ImageRGB one component at a time, straight into the storage that the image will use.
+ * Each value is checked as it is set, so the finished image takes the filled buffer as is instead
+ * of copying and checking every value again. Meant for code that reads an image from somewhere,
+ * like the file utilities. A builder can only build one image.
+ */
+public class ImageBuilder {
+  //width of the image in pixels
+  private final int width;
+  //height of the image in pixels
+  private final int height;
+  //the maximum number value for an individual component in the image
+  private final int maxColorVal;
+  //packed buffer that is being filled, or null once the image has been built
+  private PixelBuffer pixels;
+
+  /**
+   * Constructs a builder for an image of the given size whose pixels are all black to start and
+   * are kept on the heap.
+   *
+   * @param width       width of the image in pixels
+   * @param height      height of the image in pixels
+   * @param maxColorVal maximum integer value for a color, includes it and 0
+   * @throws IllegalArgumentException dimensions or max value are not positive
+   */
+  public ImageBuilder(int width, int height, int maxColorVal) {
+    this(width, height, maxColorVal, PixelStorage.HEAP);
+  }
+
+  /**
+   * Constructs a builder for an image of the given size whose pixels are all black to start and
+   * are kept in the given storage.
+   *
+   * @param width       width of the image in pixels
+   * @param height      height of the image in pixels
+   * @param maxColorVal maximum integer value for a color, includes it and 0
+   * @param storage     where the pixels are kept in memory
+   * @throws IllegalArgumentException dimensions or max value are not positive
+   * @throws IllegalArgumentException storage is null or too small for the image
+   */
+  public ImageBuilder(int width, int height, int maxColorVal, PixelStorage storage) {
+    if (width <= 0 || height <= 0 || maxColorVal <= 0) {
+      throw new IllegalArgumentException("Image must have a positive size and max value");
+    }
+    if ((long) width * height * 3 > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image is too large");
+    }
+    this.width = width;
+    this.height = height;
+    this.maxColorVal = maxColorVal;
+    this.pixels = PixelBuffers.allocate(width * height * 3, maxColorVal, storage);
+  }
+
+  /**
+   * Sets the value of the specified component for a specified pixel.
+   *
+   * @param width  column in which the pixel is located
+   * @param height row in which the pixel is located
+   * @param comp   component that is to be set (0 for red, 1 for green, 2 for blue)
+   * @param val    new value for the component
+   * @throws IllegalStateException image was already built
+   * @throws IllegalArgumentException specified location/component does not exist
+   * @throws IllegalArgumentException value is not between 0 and the max value
+   */
+  public void setComponentValue(int width, int height, int comp, int val) {
+    if (this.pixels == null) {
+      throw new IllegalStateException("Image was already built");
+    }
+    if (width < 0 || width >= this.width || height < 0 || height >= this.height
+        || comp < 0 || comp >= 3) {
+      throw new IllegalArgumentException("Given component does not exist");
+    }
+    if (val < 0 || val > this.maxColorVal) {
+      throw new IllegalArgumentException(
+          "Component values must be between 0 and the max value, inclusive");
+    }
+    this.pixels.set(((height * this.width) + width) * 3 + comp, val);
+  }
+
+  /**
+   * Sets all three components of a pixel at once.
+   *
+   * @param width  column in which the pixel is located
+   * @param height row in which the pixel is located
+   * @param red    new value for the red component
+   * @param green  new value for the green component
+   * @param blue   new value for the blue component
+   * @throws IllegalStateException image was already built
+   * @throws IllegalArgumentException specified location does not exist
+   * @throws IllegalArgumentException a value is not between 0 and the max value
+   */
+  public void setPixel(int width, int height, int red, int green, int blue) {
+    this.setComponentValue(width, height, 0, red);
+    this.setComponentValue(width, height, 1, green);
+    this.setComponentValue(width, height, 2, blue);
+  }
+
+  /**
+   * Finishes the image. The image takes the filled buffer as is, and the builder can not be used
+   * anymore afterwards.
+   *
+   * @return the built image
+   * @throws IllegalStateException image was already built
+   */
+  public ImageRGB build() {
+    if (this.pixels == null) {
+      throw new IllegalStateException("Image was already built");
+    }
+    ImageRGB out = new ImageRGB(this.width, this.height, this.pixels, this.maxColorVal);
+    this.pixels = null;
+    return out;
+  }
+}
@@ -1,5 +1,9 @@
 package model;
 
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
 /**
  * Interface that represents an image. An image has a width and a height, both in pixels. Each
  * pixel has a specific amount of components, depending on the implementation (3 in RGB, 4 for
@@ -42,6 +46,47 @@ public interface ImageModel {
    */
   ImageModel getImageCopy();
 
+  /**
+   * Gets an exact copy of an image whose pixels are kept in the given storage.
+   *
+   * @param storage where the pixels of the copy are kept
+   * @return copy of the image as an image
+   * @throws IllegalArgumentException storage is null or not supported by the image type
+   */
+  ImageModel getImageCopy(PixelStorage storage);
+
+  /**
+   * Gets where the pixels of this image are kept in memory.
+   *
+   * @return the storage used for the pixels
+   */
+  PixelStorage getStorage();
+
+  /**
+   * Gets the number of bytes of memory that hold the pixels of this image, counting pixels that
+   * are still shared with copies of it. Where that memory is kept is given by getStorage.
+   *
+   * @return bytes used by the pixels of the image
+   */
+  long getFootprint();
+
+  /**
+   * Gets the number of bytes of memory that hold the pixels of this image and are not held by the
+   * given buffers, adding the buffers of this image to them. Images that still share pixels with
+   * each other then count those pixels once between them when they are given the same set.
+   *
+   * @param counted buffers that were already counted, compared by identity
+   * @return bytes used by the pixels of the image that were not counted yet
+   */
+  long getFootprint(Set<PixelBuffer> counted);
+
+  /**
+   * Gives back any memory that the image holds outside of the Java heap, and gives pixels on the
+   * heap back to the pool they came from, if any. The image must not be used after it has been
+   * released. Other images on the heap are not affected.
+   */
+  void release();
+
   /**
    * Gets the value of the specified component for a specified pixel.
    *
@@ -61,4 +106,59 @@ public interface ImageModel {
    * @param val new value for the component
    */
   void setComponentValue(int width, int height, int comp, int val);
+
+  /**
+   * Reads the components of every pixel in a rectangular region into the given array. Values are
+   * written row by row, with the components of each pixel next to each other, so the component
+   * (x, y, c) of the region ends up at offset + ((y * regionWidth) + x) * numComponents + c.
+   *
+   * @param width        column of the left edge of the region
+   * @param height       row of the top edge of the region
+   * @param regionWidth  width of the region in pixels
+   * @param regionHeight height of the region in pixels
+   * @param dest         array to read the values into
+   * @param offset       position in the array for the first value
+   * @throws IllegalArgumentException region is not inside the image or does not fit the array
+   */
+  void getRegion(int width, int height, int regionWidth, int regionHeight, int[] dest,
+                 int offset);
+
+  /**
+   * Sets the components of every pixel in a rectangular region from the given array, which is
+   * laid out the same way as for getRegion. Clamps each value to 0 or to the max if it exceeds
+   * either bound.
+   *
+   * @param width        column of the left edge of the region
+   * @param height       row of the top edge of the region
+   * @param regionWidth  width of the region in pixels
+   * @param regionHeight height of the region in pixels
+   * @param src          array holding the new values
+   * @param offset       position in the array of the first value
+   * @throws IllegalArgumentException region is not inside the image or does not fit the array
+   */
+  void setRegion(int width, int height, int regionWidth, int regionHeight, int[] src,
+                 int offset);
+
+  /**
+   * Gets unchecked views straight over the buffers that hold the pixels of this image, which
+   * together cover the whole image without overlapping. Only meant for engines inside of this
+   * program that check their own positions and clamp their own values, since the views do
+   * neither. Views asked for writing belong to this image alone, so writing through them does not
+   * change any copies, and leave out the parts of the image that have no storage of their own and
+   * read as a fill, which are changed through mapFill. The views must not be kept after the image
+   * is changed in any other way.
+   *
+   * @param forWriting true if the pixels will be written through the views
+   * @return views of the blocks of pixels that make up the image
+   */
+  List<RawPixels> getRawPixels(boolean forWriting);
+
+  /**
+   * Runs a change that was made to every view for writing of this image on the fill that the
+   * parts of the image without storage of their own read as, through a view of a single pixel
+   * holding the fill. Does nothing for images that keep every pixel in storage.
+   *
+   * @param change the change made to every view for writing
+   */
+  void mapFill(Consumer<RawPixels> change);
 }
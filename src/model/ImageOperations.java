@@ -0,0 +1,595 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The filtering and color transforming done by the models, on images that are already known to be
+ * valid for them. Kept apart from the models so that every model runs the same operations, and
+ * checks of keys and kernels stay with the models that own the images.
+ */
+final class ImageOperations {
+  //how close a filtered value has to be to a whole number to be taken as that number, since sums
+  //of products that are not exact in binary come out a little above or below it depending on the
+  //order they are added in
+  private static final double SNAP = 1e-6;
+
+  private ImageOperations() {
+    //only has static methods
+  }
+
+  /**
+   * Filters an image in place using the given kernel, which must have odd dimensions and be
+   * arranged in the format of col x row. Only the RGB components are filtered, and the pixels that
+   * the kernel reaches past the edges of the image are read as the border mode says. Kernels that
+   * can be split into a few terms that are each the outer product of a row and a column, like
+   * blurs, are done as a pass across each row and then a pass down each column for each term, when
+   * that takes fewer multiplications than going through the whole kernel for each pixel. Kernels
+   * large enough that fast Fourier transforms take fewer steps than either are filtered through
+   * transforms of tiles of the image, in bands of rows as tall as the tiles. Large enough images
+   * are split into bands of rows that are filtered at the same time on the threads of the given
+   * settings.
+   *
+   * @param image       image to filter
+   * @param kernel      kernel arranged as col x row
+   * @param border      what is read for pixels past the edges of the image
+   * @param parallelism how many threads the image can be split between
+   */
+  static void filter(ImageModel image, double[][] kernel, BorderMode border,
+                     Parallelism parallelism) {
+    KernelPlan plan = KernelPlan.of(kernel);
+    FftPlan fft = FftPlan.choose(kernel, plan, image.getWidth(), image.getHeight());
+    int halfRows = kernel[0].length / 2;
+    int parts = Math.min(parallelism.partsFor(image), image.getHeight());
+    //only the images of this package are known to take writes to separate rows at the same time
+    boolean together = parts > 1 && (image instanceof AbstractImage || image instanceof TiledImage);
+    if (together) {
+      ImageOperations.prepareForWrites(image);
+    }
+    //every band is made before any of them starts, since each copies the unmodified rows outside
+    //of itself that it reads
+    List<Runnable> work = new ArrayList<Runnable>();
+    int[] tops = ImageOperations.sections(image, together ? parts : 1);
+    for (int section = 0; section + 1 < tops.length; section = section + 1) {
+      List<Band> bands = new ArrayList<Band>();
+      if (fft != null) {
+        //each band is at most as tall as the rows that a tile filters
+        int height = tops[section + 1] - tops[section];
+        int strips = (height + fft.getTileHeight() - 1) / fft.getTileHeight();
+        for (int strip = 0; strip < strips; strip = strip + 1) {
+          bands.add(new Band(image, tops[section] + height * strip / strips,
+              tops[section] + height * (strip + 1) / strips, halfRows, border));
+        }
+      } else {
+        bands.add(new Band(image, tops[section], tops[section + 1], halfRows, border));
+      }
+      work.add(() -> {
+        for (Band band : bands) {
+          if (fft != null) {
+            ImageOperations.filterFft(image, fft, kernel.length, band);
+          } else if (plan.isSeparable()) {
+            ImageOperations.filterSeparable(image, plan, kernel[0].length, band);
+          } else {
+            ImageOperations.filterDirect(image, kernel, band);
+          }
+        }
+      });
+    }
+    parallelism.runAll(work);
+  }
+
+  /**
+   * Splits the rows of an image into sections that are each filtered by one thread. The sections
+   * of a tiled image start on the first row of a row of tiles, so that no tile is written by two
+   * threads, which could both give it storage at once.
+   *
+   * @param image image to split
+   * @param parts the most sections to split it into
+   * @return the first row of each section, followed by the height of the image
+   */
+  private static int[] sections(ImageModel image, int parts) {
+    int align = image instanceof TiledImage ? TiledImage.TILE_SIZE : 1;
+    int units = (image.getHeight() + align - 1) / align;
+    int count = Math.max(1, Math.min(parts, units));
+    int[] tops = new int[count + 1];
+    for (int section = 0; section <= count; section = section + 1) {
+      tops[section] = (int) Math.min(image.getHeight(), (long) units * section / count * align);
+    }
+    return tops;
+  }
+
+  /**
+   * Makes sure that no part of an image is shared with a copy of it, so that bands of it can be
+   * written by several threads at once without any of them taking their own copy of pixels that
+   * another one is writing. Parts of a tiled image that have no storage yet are left without it.
+   *
+   * @param image image that is about to be written, one of the images of this package
+   */
+  private static void prepareForWrites(ImageModel image) {
+    if (image instanceof AbstractImage) {
+      ((AbstractImage) image).unshare();
+    } else {
+      ((TiledImage) image).unshare();
+    }
+  }
+
+  /**
+   * Filters a band of an image in place through fast Fourier transforms. The unmodified rows that
+   * the tiles of the band reach are read first, and then the band is cut across into tiles, whose
+   * components are filtered two at a time. The filtered rows are only written once every tile of
+   * the band is done.
+   *
+   * @param image image to filter
+   * @param fft   the plan for the transforms
+   * @param cols  the number of columns in the kernel
+   * @param band  the rows to filter
+   */
+  private static void filterFft(ImageModel image, FftPlan fft, int cols, Band band) {
+    int comps = image.getNumComponents();
+    int imgWidth = image.getWidth();
+    int size = fft.getSize();
+    int halfCols = cols / 2;
+    int halfRows = (size - fft.getTileHeight()) / 2;
+    //the unmodified rows that the tiles reach, starting half of the kernel above the band, with
+    //rows that read nothing or that no kept pixel needs left as zeros
+    int[][] window = new int[Math.min(size, band.bottom - band.top + 2 * halfRows)][];
+    for (int row = 0; row < window.length; row = row + 1) {
+      window[row] = new int[imgWidth * comps];
+      if (band.reads(band.top - halfRows + row)) {
+        band.read(image, band.top - halfRows + row, window[row]);
+      }
+    }
+    int[][] out = new int[band.bottom - band.top][imgWidth * comps];
+    //every component of every tile of the band, as the column that the tile starts at and the
+    //component, which are filtered in pairs
+    List<int[]> jobs = new ArrayList<int[]>();
+    for (int left = 0; left < imgWidth; left = left + fft.getTileWidth()) {
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        jobs.add(new int[]{left, comp});
+      }
+    }
+    double[] re = new double[size * size];
+    double[] im = new double[size * size];
+    double[] tmpRe = new double[size];
+    double[] tmpIm = new double[size];
+    int[] from = new int[size];
+    for (int job = 0; job < jobs.size(); job = job + 2) {
+      ImageOperations.fillTile(re, jobs.get(job), window, from, size, halfCols, imgWidth, comps,
+          band.border);
+      if (job + 1 < jobs.size()) {
+        ImageOperations.fillTile(im, jobs.get(job + 1), window, from, size, halfCols, imgWidth,
+            comps, band.border);
+      } else {
+        Arrays.fill(im, 0);
+      }
+      fft.filter(re, im, tmpRe, tmpIm);
+      ImageOperations.takeTile(re, jobs.get(job), out, fft, cols, imgWidth, comps);
+      if (job + 1 < jobs.size()) {
+        ImageOperations.takeTile(im, jobs.get(job + 1), out, fft, cols, imgWidth, comps);
+      }
+    }
+    for (int height = band.top; height < band.bottom; height = height + 1) {
+      //components past RGB are kept as they were
+      ImageOperations.keepExtra(window[height - band.top + halfRows], out[height - band.top],
+          imgWidth, comps);
+      image.setRegion(0, height, imgWidth, 1, out[height - band.top], 0);
+    }
+  }
+
+  /**
+   * Fills a tile with one component of the unmodified rows, starting half of the kernel to the
+   * left of the first column that it filters, and reading past the edges of the image as the
+   * border mode says.
+   *
+   * @param tile     the values of the tile, with rows of the tile size one after another
+   * @param job      the column that the tile filters first, and the component
+   * @param window   the unmodified rows that the tiles of the band reach
+   * @param from     space for the column of the image that each column of the tile reads
+   * @param size     the width and height of the tile
+   * @param halfCols half of the width of the kernel
+   * @param imgWidth width of the image in pixels
+   * @param comps    number of components per pixel
+   * @param border   what is read for pixels past the edges of the image
+   */
+  private static void fillTile(double[] tile, int[] job, int[][] window, int[] from, int size,
+                               int halfCols, int imgWidth, int comps, BorderMode border) {
+    for (int col = 0; col < size; col = col + 1) {
+      from[col] = border.source(job[0] - halfCols + col, imgWidth);
+    }
+    Arrays.fill(tile, 0);
+    for (int row = 0; row < window.length; row = row + 1) {
+      for (int col = 0; col < size; col = col + 1) {
+        if (from[col] >= 0) {
+          tile[row * size + col] = window[row][from[col] * comps + job[1]];
+        }
+      }
+    }
+  }
+
+  /**
+   * Takes the filtered values of one component out of a tile, keeping those inside of the band.
+   *
+   * @param tile     the filtered values of the tile
+   * @param job      the column that the tile filters first, and the component
+   * @param out      the filtered rows of the band
+   * @param fft      the plan for the transforms
+   * @param cols     the number of columns in the kernel
+   * @param imgWidth width of the image in pixels
+   * @param comps    number of components per pixel
+   */
+  private static void takeTile(double[] tile, int[] job, int[][] out, FftPlan fft, int cols,
+                               int imgWidth, int comps) {
+    int size = fft.getSize();
+    int rows = size - fft.getTileHeight() + 1;
+    int width = Math.min(fft.getTileWidth(), imgWidth - job[0]);
+    for (int row = 0; row < out.length; row = row + 1) {
+      int start = (row + rows - 1) * size + cols - 1;
+      for (int col = 0; col < width; col = col + 1) {
+        out[row][(job[0] + col) * comps + job[1]] = ImageOperations.toComponent(tile[start + col]);
+      }
+    }
+  }
+
+  /**
+   * Gets the component value for a filtered value, taking values very close to a whole number as
+   * that number and clamping values below 0. Every way of filtering uses this, so that adding up
+   * the same products in a different order, or through transforms, gives the same pixels.
+   *
+   * @param value the filtered value
+   * @return the component value
+   */
+  private static int toComponent(double value) {
+    double whole = Math.rint(value);
+    if (Math.abs(value - whole) < SNAP) {
+      value = whole;
+    }
+    return Math.max(0, (int) value);
+  }
+
+  /**
+   * Filters a band of an image in place by going through the whole kernel for each component. For
+   * each place in the kernel, the matching rows of the image are added to the new values of every
+   * pixel in the row at once, which gives the same sums in the same order as going through the
+   * kernel one pixel at a time. The rows are padded on both sides with what the border mode reads
+   * past the edges, so no pixel needs its own bounds checks.
+   *
+   * @param image  image to filter
+   * @param kernel kernel arranged as col x row
+   * @param band   the rows to filter
+   */
+  private static void filterDirect(ImageModel image, double[][] kernel, Band band) {
+    PixelEngine engine = PixelEngines.get();
+    int comps = image.getNumComponents();
+    int imgWidth = image.getWidth();
+    int halfCols = kernel.length / 2;
+    int halfRows = kernel[0].length / 2;
+    int rows = kernel[0].length;
+    //keeps the unmodified rows that the kernel reaches for the row being filtered, and each of
+    //their RGB components as its own padded row of values, where row y is held at index y mod rows
+    //once it has been read
+    int[][] window = new int[rows][imgWidth * comps];
+    double[][][] planes = new double[rows][3][imgWidth + 2 * halfCols];
+    for (int y = band.top - halfRows; y < band.top + halfRows; y = y + 1) {
+      if (band.reads(y)) {
+        ImageOperations.readPlanes(image, y, window, planes, band);
+      }
+    }
+    double[] sums = new double[imgWidth];
+    int[] out = new int[imgWidth * comps];
+    for (int height = band.top; height < band.bottom; height = height + 1) {
+      //reads the next unmodified row before the row it overwrites in the window is needed
+      if (band.reads(height + halfRows)) {
+        ImageOperations.readPlanes(image, height + halfRows, window, planes, band);
+      }
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        Arrays.fill(sums, 0);
+        //goes through the kernel columns, and then the kernel rows that read anything
+        for (int col = -halfCols; col <= halfCols; col = col + 1) {
+          for (int row = -halfRows; row <= halfRows; row = row + 1) {
+            if (band.reads(height + row)) {
+              engine.addScaled(planes[Math.floorMod(height + row, rows)][comp], col + halfCols,
+                  kernel[col + halfCols][row + halfRows], sums, 0, imgWidth);
+            }
+          }
+        }
+        //clamps the final values if needed
+        for (int width = 0; width < imgWidth; width = width + 1) {
+          out[width * comps + comp] = ImageOperations.toComponent(sums[width]);
+        }
+      }
+      //components past RGB are kept as they were
+      ImageOperations.keepExtra(window[height % rows], out, imgWidth, comps);
+      //the unmodified copy of this row is still in the window, so it can be written right away
+      image.setRegion(0, height, imgWidth, 1, out, 0);
+    }
+  }
+
+  /**
+   * Filters an image in place with a kernel that is split into separable terms. Each row is summed
+   * across once for each term when it is read, and each component is then the sum down the column
+   * of those row sums for every term. Pixels past the edges of the image are read as the border
+   * mode says, just like when filtering with the whole kernel.
+   *
+   * @param image image to filter
+   * @param plan  the separable terms of the kernel
+   * @param rows  the number of rows in the kernel
+   * @param band  the rows to filter
+   */
+  private static void filterSeparable(ImageModel image, KernelPlan plan, int rows, Band band) {
+    PixelEngine engine = PixelEngines.get();
+    int comps = image.getNumComponents();
+    int imgWidth = image.getWidth();
+    int halfRows = rows / 2;
+    int halfCols = plan.getAcross(0).length / 2;
+    //keeps the unmodified rows that the kernel reaches, each of their RGB components as its own
+    //padded row of values, and their sums across for each term, where row y is held at index
+    //y mod rows once it has been read
+    int[][] window = new int[rows][imgWidth * comps];
+    double[][][] planes = new double[rows][3][imgWidth + 2 * halfCols];
+    double[][][][] sums = new double[plan.getTerms()][rows][3][imgWidth];
+    for (int y = band.top - halfRows; y < band.top + halfRows; y = y + 1) {
+      if (band.reads(y)) {
+        ImageOperations.readAcross(image, y, window, planes, sums, plan, band);
+      }
+    }
+    double[] total = new double[imgWidth];
+    int[] out = new int[imgWidth * comps];
+    for (int height = band.top; height < band.bottom; height = height + 1) {
+      //reads the next unmodified row before the row it overwrites in the window is needed
+      if (band.reads(height + halfRows)) {
+        ImageOperations.readAcross(image, height + halfRows, window, planes, sums, plan, band);
+      }
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        Arrays.fill(total, 0);
+        for (int term = 0; term < sums.length; term = term + 1) {
+          double[] down = plan.getDown(term);
+          //only goes through the kernel rows that read anything
+          for (int row = -halfRows; row <= halfRows; row = row + 1) {
+            if (band.reads(height + row)) {
+              engine.addScaled(sums[term][Math.floorMod(height + row, rows)][comp], 0,
+                  down[row + halfRows], total, 0, imgWidth);
+            }
+          }
+        }
+        //clamps the final values if needed
+        for (int width = 0; width < imgWidth; width = width + 1) {
+          out[width * comps + comp] = ImageOperations.toComponent(total[width]);
+        }
+      }
+      //components past RGB are kept as they were
+      ImageOperations.keepExtra(window[height % rows], out, imgWidth, comps);
+      //the unmodified copy of this row is still in the window, so it can be written right away
+      image.setRegion(0, height, imgWidth, 1, out, 0);
+    }
+  }
+
+  /**
+   * Reads an unmodified row into the window, and sums each of its RGB components across using the
+   * weights of each term of the kernel.
+   *
+   * @param image  image to read from
+   * @param y      the row to read, which may be past the edges of the image
+   * @param window unmodified rows, where row y goes to window[y mod window.length]
+   * @param planes padded RGB components of the unmodified rows, where component comp of row y goes
+   *               to planes[y mod window.length][comp]
+   * @param sums   sums across of the rows for each term, where component comp of row y goes to
+   *               sums[term][y mod window.length][comp]
+   * @param plan   the separable terms of the kernel
+   * @param band   the band being filtered, which gives the unmodified rows
+   */
+  private static void readAcross(ImageModel image, int y, int[][] window, double[][][] planes,
+                                 double[][][][] sums, KernelPlan plan, Band band) {
+    PixelEngine engine = PixelEngines.get();
+    int imgWidth = image.getWidth();
+    int slot = Math.floorMod(y, window.length);
+    ImageOperations.readPlanes(image, y, window, planes, band);
+    for (int term = 0; term < sums.length; term = term + 1) {
+      double[] across = plan.getAcross(term);
+      int halfCols = across.length / 2;
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        double[] sum = sums[term][slot][comp];
+        Arrays.fill(sum, 0);
+        for (int col = -halfCols; col <= halfCols; col = col + 1) {
+          engine.addScaled(planes[slot][comp], col + halfCols, across[col + halfCols], sum, 0,
+              imgWidth);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads an unmodified row into the window, and splits its RGB components into their own rows of
+   * values, padded on both sides with what the border mode reads past the edges of the image.
+   *
+   * @param image  image to read from
+   * @param y      the row to read, which may be past the edges of the image
+   * @param window unmodified rows, where row y goes to window[y mod window.length]
+   * @param planes padded RGB components of the unmodified rows, where component comp of row y goes
+   *               to planes[y mod window.length][comp]
+   * @param band   the band being filtered, which gives the unmodified rows
+   */
+  private static void readPlanes(ImageModel image, int y, int[][] window, double[][][] planes,
+                                 Band band) {
+    int comps = image.getNumComponents();
+    int imgWidth = image.getWidth();
+    int slot = Math.floorMod(y, window.length);
+    int[] raw = window[slot];
+    band.read(image, y, raw);
+    double[][] plane = planes[slot];
+    int halfCols = (plane[0].length - imgWidth) / 2;
+    //the pixels inside of the image are copied straight across
+    for (int width = 0; width < imgWidth; width = width + 1) {
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        plane[comp][width + halfCols] = raw[width * comps + comp];
+      }
+    }
+    //only the pads on either side need the border mode
+    for (int pad = 0; pad < halfCols; pad = pad + 1) {
+      ImageOperations.pad(plane, raw, comps, pad - halfCols, halfCols, band.border);
+      ImageOperations.pad(plane, raw, comps, imgWidth + pad, halfCols, band.border);
+    }
+  }
+
+  /**
+   * Fills one padded column of the RGB components of a row with what the border mode reads there.
+   *
+   * @param plane    padded RGB components of the row
+   * @param raw      the unmodified row
+   * @param comps    number of components per pixel
+   * @param width    the column past the edges of the image
+   * @param halfCols half of the width of the kernel
+   * @param border   what is read for pixels past the edges of the image
+   */
+  private static void pad(double[][] plane, int[] raw, int comps, int width, int halfCols,
+                          BorderMode border) {
+    int from = border.source(width, plane[0].length - 2 * halfCols);
+    for (int comp = 0; comp < 3; comp = comp + 1) {
+      plane[comp][width + halfCols] = from < 0 ? 0 : raw[from * comps + comp];
+    }
+  }
+
+  /**
+   * Copies the components past RGB of a row of pixels into the filtered row, unchanged.
+   *
+   * @param raw      the unmodified row
+   * @param out      the filtered row
+   * @param imgWidth width of the image in pixels
+   * @param comps    number of components per pixel
+   */
+  private static void keepExtra(int[] raw, int[] out, int imgWidth, int comps) {
+    for (int width = 0; width < imgWidth; width = width + 1) {
+      for (int comp = 3; comp < comps; comp = comp + 1) {
+        out[width * comps + comp] = raw[width * comps + comp];
+      }
+    }
+  }
+
+  /**
+   * Does a linear transformation of the RGB components of an image in place. Each pixel only
+   * depends on itself, so large enough images are split into parts that are transformed at the
+   * same time on the threads of the given settings.
+   *
+   * @param image       image to transform
+   * @param tMatrix     a 3 x 3 matrix to use to transform the RGB components
+   * @param parallelism how many threads the image can be split between
+   */
+  static void transform(ImageModel image, double[][] tMatrix, Parallelism parallelism) {
+    List<Runnable> parts = new ArrayList<Runnable>();
+    for (RawPixels block : RawPixels.split(image.getRawPixels(true),
+        parallelism.partsFor(image))) {
+      parts.add(() -> ImageOperations.transformBlock(block, tMatrix));
+    }
+    parallelism.runAll(parts);
+    image.mapFill(block -> ImageOperations.transformBlock(block, tMatrix));
+  }
+
+  /**
+   * Does a linear transformation of the RGB components of one block of an image in place, a row
+   * at a time through the pixel engine.
+   *
+   * @param block   the block to transform
+   * @param tMatrix a 3 x 3 matrix to use to transform the RGB components
+   */
+  private static void transformBlock(RawPixels block, double[][] tMatrix) {
+    PixelEngine engine = PixelEngines.get();
+    int comps = block.getNumComponents();
+    int[] row = new int[block.getWidth() * comps];
+    for (int height = block.getRow(); height < block.getRow() + block.getHeight();
+         height = height + 1) {
+      int index = block.index(block.getCol(), height);
+      block.getBuffer().get(index, row, 0, row.length);
+      //the engine clamps the new values, since the view does not
+      engine.transformRow(row, block.getWidth(), comps, tMatrix, block.getMaxColorValue());
+      block.getBuffer().set(index, row, 0, row.length);
+    }
+  }
+
+  /**
+   * A band of rows of an image that is filtered by itself, holding copies of the unmodified rows
+   * just outside of it that the kernel reaches, since the bands next to it may change them first.
+   * Rows past the edges of the image are copies of the rows that the border mode reads for them.
+   */
+  private static final class Band {
+    //the first row of the band
+    private final int top;
+    //the row just past the last row of the band
+    private final int bottom;
+    //what is read for pixels past the edges of the image
+    private final BorderMode border;
+    //the height of the image
+    private final int imgHeight;
+    //copies of the rows just above the band, in order, or null for rows that read nothing
+    private final int[][] above;
+    //copies of the rows just below the band, in order, or null for rows that read nothing
+    private final int[][] below;
+
+    /**
+     * Constructs a band of rows, copying the rows outside of it that the kernel reaches.
+     *
+     * @param image    image that the band is in
+     * @param top      first row of the band
+     * @param bottom   row just past the last row of the band
+     * @param halfRows half of the height of the kernel
+     * @param border   what is read for pixels past the edges of the image
+     */
+    private Band(ImageModel image, int top, int bottom, int halfRows, BorderMode border) {
+      this.top = top;
+      this.bottom = bottom;
+      this.border = border;
+      this.imgHeight = image.getHeight();
+      this.above = new int[halfRows][];
+      this.below = new int[halfRows][];
+      for (int row = 0; row < halfRows; row = row + 1) {
+        this.above[row] = this.copy(image, top - halfRows + row);
+        this.below[row] = this.copy(image, bottom + row);
+      }
+    }
+
+    /**
+     * Copies the row of the image that is read for a row outside of the band.
+     *
+     * @param image image that the band is in
+     * @param y     the row outside of the band, which may be past the edges of the image
+     * @return a copy of the row that is read, or null if nothing is read
+     */
+    private int[] copy(ImageModel image, int y) {
+      int from = this.border.source(y, this.imgHeight);
+      if (from < 0) {
+        return null;
+      }
+      int[] out = new int[image.getWidth() * image.getNumComponents()];
+      image.getRegion(0, from, image.getWidth(), 1, out, 0);
+      return out;
+    }
+
+    /**
+     * Tells if anything is read for a row, which is every row inside of the image and the rows
+     * past its edges unless the border mode counts them as nothing.
+     *
+     * @param y the row, which may be past the edges of the image
+     * @return true if the row is read
+     */
+    private boolean reads(int y) {
+      return this.border.source(y, this.imgHeight) >= 0;
+    }
+
+    /**
+     * Reads an unmodified row, from the copies if it is outside of the band or from the image if
+     * it is inside, where it is only changed once the band is done with it.
+     *
+     * @param image image that the band is in
+     * @param y     the row to read, which must be one that is read
+     * @param into  array to read the row into
+     */
+    private void read(ImageModel image, int y, int[] into) {
+      if (y < this.top) {
+        System.arraycopy(this.above[y - this.top + this.above.length], 0, into, 0, into.length);
+      } else if (y >= this.bottom) {
+        System.arraycopy(this.below[y - this.bottom], 0, into, 0, into.length);
+      } else {
+        image.getRegion(0, y, image.getWidth(), 1, into, 0);
+      }
+    }
+  }
+}
@@ -1,5 +1,8 @@
 package model;
 
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
 /**
  * Represents a collection of Images that can be modified as needed with commands input by a
  * controller. Should be able to add and remove new Images,and should ImageModels stored
@@ -15,6 +18,45 @@ public interface ImageProcessorModel {
    */
   ImageModel getImageAt(String key);
 
+  /**
+   * Gets the image at a key so that it can be changed and then set back at the same key.
+   * Implementations may hand out the stored image itself when nothing else in the collection
+   * refers to it, so that it is changed where it is instead of copied; otherwise a copy is handed
+   * out. Either way, the image should be set back at the key once it has been changed.
+   *
+   * @param key where we can find the image that we are looking for
+   * @return the image at the key, or a copy of it
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  ImageModel getImageForUpdate(String key);
+
+  /**
+   * Reads the image at a key. Implementations that are used from many threads keep the image from
+   * being released while the reader runs, even if another thread drops it from the collection, so
+   * the reader may also make a copy of it that outlives it.
+   *
+   * @param key    where we can find the image that we are looking for
+   * @param reader what is done with the image
+   * @param <T>    the type of what the reader gives back
+   * @return what the reader gave back
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  <T> T readImageAt(String key, Function<ImageModel, T> reader);
+
+  /**
+   * Changes the image at a key and sets the result back at the key in one step. The change is
+   * given the image as getImageForUpdate would give it, and whatever it gives back takes the place
+   * of the image. Implementations that are used from many threads make sure no other change to the
+   * key happens in between, so changes to the same key from different threads are never lost.
+   * Nothing is set if the change throws an exception.
+   *
+   * @param key    where we can find the image that we are looking for
+   * @param change the change to make, which gives back the image to set at the key
+   * @return the changed image
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  ImageModel updateImageAt(String key, UnaryOperator<ImageModel> change);
+
   /**
    * Sets the Image based on the key given by the key for it.
    *
@@ -41,6 +83,21 @@ public interface ImageProcessorModel {
    */
   void filterImage(String key, double[][] kernel) throws IllegalArgumentException;
 
+  /**
+   * Filters an image using the kernel that is supplied to the function, reading the pixels that
+   * the kernel reaches past the edges of the image as the border mode says. Kernels should be
+   * arranged in the format of col x row, which matches the ImageModels that are in width x height.
+   *
+   * @param key    the name of the image that we are to filter
+   * @param kernel the Image that is used to filter the image
+   * @param border what is read for pixels past the edges of the image
+   * @throws IllegalArgumentException image is not in model
+   * @throws IllegalArgumentException kernel is not of odd dimensions
+   * @throws IllegalArgumentException border mode is null
+   */
+  void filterImage(String key, double[][] kernel, BorderMode border)
+      throws IllegalArgumentException;
+
   /**
    * Does a linear transformation on the specified image, using the matrix.
    *
@@ -50,4 +107,26 @@ public interface ImageProcessorModel {
    * @throws IllegalArgumentException transformation matrix is not 3 x 3
    */
   void transformImage(String key, double[][] tMatrix) throws IllegalArgumentException;
+
+  /**
+   * Gets a summary of the memory used by the images in this model.
+   *
+   * @return summary of the memory used by the images
+   */
+  MemorySummary getMemorySummary();
+
+  /**
+   * Sets how many threads the operations of this model can split an image between.
+   *
+   * @param parallelism the settings for splitting images
+   * @throws IllegalArgumentException settings are null
+   */
+  void setParallelism(Parallelism parallelism);
+
+  /**
+   * Gets how many threads the operations of this model can split an image between.
+   *
+   * @return the settings for splitting images
+   */
+  Parallelism getParallelism();
 }
@@ -1,26 +1,136 @@
 package model;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 /**
  * Implementation of the ImageProcessorModel interface. Uses a map to store the images. Allows for
  * the direct adding and removing of images. Also allows for the filtering and linear transforming
- * of the colors in an image.
+ * of the colors in an image. Images are kept in the storage that the model was made with, and an
+ * image that is dropped from the model is released once no key refers to it anymore. A model can
+ * be given a pool, in which case the pixels of its images on the heap go back to the pool when
+ * they are released, and copies made by commands take their pixels from it.
+ *
+ * <p>A model can also be given a budget in bytes for the pixels of the images it keeps in memory.
+ * Once the images go over the budget, the least recently used ones are written to a spill file on
+ * disk and released, and they are read back the next time they are used. Images handed out by a
+ * model with a budget should not be kept past the next change to the model, since they may have
+ * been spilled and released by then. A model can instead be made to refuse images that would put
+ * it over its budget, so that running out of memory shows up as an error for that one image.
  */
 public class ImageProcessorModelImpl implements ImageProcessorModel {
-  //collection of all the Images
+  //no budget, so images are never spilled
+  public static final long NO_BUDGET = Long.MAX_VALUE;
+
+  //collection of all the Images in memory, from least to most recently used
   private final Map<String, ImageModel> images;
+  //where the images that were spilled to disk are in the spill file
+  private final Map<String, ImageSpillFile.Entry> spilled;
+  //where the pixels of the images in this model are kept
+  private final PixelStorage storage;
+  //pool that the pixels of the images go back to, or null if there is none
+  private final PixelBufferPool pool;
+  //most bytes of pixels that the images in memory may take
+  private final long budget;
+  //what happens when an image would put the images in memory over the budget
+  private final BudgetPolicy policy;
+  //file that images are spilled to, made the first time it is needed
+  private ImageSpillFile spill;
+  //how many threads images can be split between by the operations
+  private Parallelism parallelism;
 
   /**
-   * Constructs a model with a blank HashMap.
+   * Constructs a model with a blank HashMap that keeps its images on the heap.
    */
   public ImageProcessorModelImpl() {
-    this.images = new HashMap<String, ImageModel>();
+    this(PixelStorage.HEAP);
+  }
+
+  /**
+   * Constructs a model with a blank HashMap that keeps the pixels of its images in the given
+   * storage. Images that are set in another storage are moved into it.
+   *
+   * @param storage where the pixels of the images are kept
+   * @throws IllegalArgumentException storage is null
+   */
+  public ImageProcessorModelImpl(PixelStorage storage) {
+    this(storage, null);
+  }
+
+  /**
+   * Constructs a model with a blank HashMap that keeps the pixels of its images in the given
+   * storage, and gives pixels on the heap back to the given pool when their images are dropped.
+   * Images that are set in another storage are moved into it.
+   *
+   * @param storage where the pixels of the images are kept
+   * @param pool    pool for pixels on the heap, or null to not pool them
+   * @throws IllegalArgumentException storage is null
+   */
+  public ImageProcessorModelImpl(PixelStorage storage, PixelBufferPool pool) {
+    this(storage, pool, NO_BUDGET);
+  }
+
+  /**
+   * Constructs a model with a blank map that keeps the pixels of its images in the given storage,
+   * pooling pixels on the heap if given a pool. When the pixels of the images in memory take more
+   * bytes than the budget, the least recently used images are spilled to disk until they fit.
+   *
+   * @param storage where the pixels of the images are kept
+   * @param pool    pool for pixels on the heap, or null to not pool them
+   * @param budget  most bytes of pixels kept in memory, or NO_BUDGET to never spill
+   * @throws IllegalArgumentException storage is null
+   * @throws IllegalArgumentException budget is negative
+   */
+  public ImageProcessorModelImpl(PixelStorage storage, PixelBufferPool pool, long budget) {
+    this(storage, pool, budget, BudgetPolicy.SPILL);
+  }
+
+  /**
+   * Constructs a model with a blank map that keeps the pixels of its images in the given storage,
+   * pooling pixels on the heap if given a pool. When setting an image would make the pixels of the
+   * images in memory take more bytes than the budget, the policy decides if the least recently
+   * used images are spilled to disk or if the image is refused.
+   *
+   * @param storage where the pixels of the images are kept
+   * @param pool    pool for pixels on the heap, or null to not pool them
+   * @param budget  most bytes of pixels kept in memory, or NO_BUDGET for no limit
+   * @param policy  what to do when an image would go over the budget
+   * @throws IllegalArgumentException storage or policy is null
+   * @throws IllegalArgumentException budget is negative
+   */
+  public ImageProcessorModelImpl(PixelStorage storage, PixelBufferPool pool, long budget,
+                                 BudgetPolicy policy) {
+    if (storage == null) {
+      throw new IllegalArgumentException("Storage can not be null");
+    }
+    if (policy == null) {
+      throw new IllegalArgumentException("Policy can not be null");
+    }
+    if (budget < 0) {
+      throw new IllegalArgumentException("Budget can not be negative");
+    }
+    //ordered by access so that the least recently used images come first
+    this.images = new LinkedHashMap<String, ImageModel>(16, 0.75f, true);
+    this.spilled = new HashMap<String, ImageSpillFile.Entry>();
+    this.storage = storage;
+    this.pool = pool;
+    this.budget = budget;
+    this.policy = policy;
+    this.spill = null;
+    this.parallelism = new Parallelism(1);
   }
 
   /**
-   * Gets the Image based on the key given by the key for it.
+   * Gets the Image based on the key given by the key for it. An image that was spilled to disk
+   * is read back into memory first.
    *
    * @param key where we can find the image that we are looking for
    * @return copy of the image at the key
@@ -28,7 +138,7 @@ public class ImageProcessorModelImpl implements ImageProcessorModel {
    */
   @Override
   public ImageModel getImageAt(String key) {
-    ImageModel out = this.images.getOrDefault(key, null);
+    ImageModel out = this.live(key);
     if (out == null) {
       throw new IllegalArgumentException("Desired Image could not be found by that key");
     }
@@ -36,24 +146,286 @@ public class ImageProcessorModelImpl implements ImageProcessorModel {
   }
 
   /**
-   * Sets the Image based on the key given by the key for it.
+   * Gets the image at a key so that it can be changed and then set back at the same key. The
+   * stored image itself is handed out unless another key refers to it, in which case a copy is.
+   * Pixels that the stored image still shares with copies outside of this model are copied on the
+   * first write as usual.
+   *
+   * @param key where we can find the image that we are looking for
+   * @return the image at the key, or a copy of it
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  @Override
+  public ImageModel getImageForUpdate(String key) {
+    ImageModel image = this.getImageAt(key);
+    for (Map.Entry<String, ImageModel> other : this.images.entrySet()) {
+      if (other.getValue() == image && !other.getKey().equals(key)) {
+        return image.getImageCopy();
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Reads the image at a key. Only one thread uses this model, so the image is simply handed to
+   * the reader.
+   *
+   * @param key    where we can find the image that we are looking for
+   * @param reader what is done with the image
+   * @param <T>    the type of what the reader gives back
+   * @return what the reader gave back
+   * @throws IllegalArgumentException key does not match any of the images
+   */
+  @Override
+  public <T> T readImageAt(String key, Function<ImageModel, T> reader) {
+    return reader.apply(this.getImageAt(key));
+  }
+
+  /**
+   * Changes the image at a key and sets the result back at the key. The change is given the image
+   * itself when nothing else in the model refers to it, and a copy otherwise.
+   *
+   * @param key    where we can find the image that we are looking for
+   * @param change the change to make, which gives back the image to set at the key
+   * @return the changed image
+   * @throws IllegalArgumentException key does not match any of the images
+   * @throws IllegalArgumentException image would go over the budget of a model that fails
+   */
+  @Override
+  public ImageModel updateImageAt(String key, UnaryOperator<ImageModel> change) {
+    ImageModel image = change.apply(this.getImageForUpdate(key));
+    this.setImageAt(image, key);
+    return image;
+  }
+
+  /**
+   * Sets the Image based on the key given by the key for it. If the image is not kept in the
+   * storage of this model, a copy of it in that storage is placed instead. Pixels of the placed
+   * image on the heap join the pool of this model, if it has one. The image that was at the key
+   * before is released if no other key refers to it. Other images may be spilled to disk to keep
+   * the images in memory within the budget, or the image is refused if the model fails instead.
    *
    * @param image image to be placed into the collection
    * @param key   where we can find the image that we are looking for
+   * @throws IllegalArgumentException image would go over the budget of a model that fails
    */
   @Override
   public void setImageAt(ImageModel image, String key) {
-    this.images.put(key, image);
+    if (image != null && this.policy == BudgetPolicy.FAIL && this.budget != NO_BUDGET) {
+      this.checkBudget(image, key);
+    }
+    ImageModel toStore = image;
+    if (image != null && image.getStorage() != this.storage) {
+      toStore = image.getImageCopy(this.storage);
+    }
+    if (toStore != null && this.pool != null) {
+      this.pool.adopt(toStore);
+    }
+    this.forgetSpilled(key);
+    this.drop(this.images.put(key, toStore), toStore);
+    this.fit(toStore);
   }
 
   /**
-   * Removes an Image based on the key given.
+   * Removes an Image based on the key given. The image is released if no other key refers to it.
    *
    * @param key where we can find the image that we are looking for
    */
   @Override
   public void removeImageAt(String key) {
-    this.images.remove(key);
+    this.forgetSpilled(key);
+    this.drop(this.images.remove(key), null);
+  }
+
+  /**
+   * Releases an image that was taken out of the collection, unless it is still stored under
+   * another key or is the image that took its place.
+   *
+   * @param old         image that was taken out of the collection
+   * @param replacement image that took its place, or null if there is none
+   */
+  private void drop(ImageModel old, ImageModel replacement) {
+    if (old != null && old != replacement && !this.images.containsValue(old)) {
+      old.release();
+    }
+  }
+
+  /**
+   * Gets a summary of the memory used by the images in this model, counting images that are
+   * stored under more than one key once.
+   *
+   * @return summary of the memory used by the images
+   */
+  @Override
+  public MemorySummary getMemorySummary() {
+    Set<ImageSpillFile.Entry> onDisk =
+        Collections.newSetFromMap(new IdentityHashMap<ImageSpillFile.Entry, Boolean>());
+    long bytesOnDisk = 0;
+    for (ImageSpillFile.Entry entry : this.spilled.values()) {
+      if (onDisk.add(entry)) {
+        bytesOnDisk = bytesOnDisk + entry.getLength();
+      }
+    }
+    return MemorySummary.of(this.images, this.images.size() + this.spilled.size(), onDisk.size(),
+        bytesOnDisk, this.budget);
+  }
+
+  /**
+   * Checks that setting an image at a key keeps the images in memory within the budget, counting
+   * the image that is at the key now as dropped and pixels shared between copies once.
+   *
+   * @param image image to be placed into the collection
+   * @param key   where the image would be placed
+   * @throws IllegalArgumentException image would go over the budget
+   */
+  private void checkBudget(ImageModel image, String key) {
+    Set<PixelBuffer> counted =
+        Collections.newSetFromMap(new IdentityHashMap<PixelBuffer, Boolean>());
+    long total = image.getFootprint(counted);
+    for (Map.Entry<String, ImageModel> other : this.images.entrySet()) {
+      if (!other.getKey().equals(key)) {
+        total = total + other.getValue().getFootprint(counted);
+      }
+    }
+    if (total > this.budget) {
+      throw new IllegalArgumentException("Image would go over the memory budget of the model");
+    }
+  }
+
+  /**
+   * Checks that an image in the model can be changed within the budget of a model that fails,
+   * counting its pixels as no longer shared with the copies it shares them with now, since
+   * changing it gives it pixels of its own.
+   *
+   * @param image image that is about to be changed
+   * @throws IllegalArgumentException changing the image would go over the budget
+   */
+  private void checkUnshared(ImageModel image) {
+    if (this.policy != BudgetPolicy.FAIL || this.budget == NO_BUDGET) {
+      return;
+    }
+    Set<PixelBuffer> counted =
+        Collections.newSetFromMap(new IdentityHashMap<PixelBuffer, Boolean>());
+    long total = image.getFootprint();
+    for (ImageModel other : this.images.values()) {
+      if (other != image) {
+        total = total + other.getFootprint(counted);
+      }
+    }
+    if (total > this.budget) {
+      throw new IllegalArgumentException("Image would go over the memory budget of the model");
+    }
+  }
+
+  /**
+   * Gets the image at a key, reading it back into memory if it was spilled to disk. Other keys
+   * that referred to the same spilled image get the same image back.
+   *
+   * @param key where we can find the image that we are looking for
+   * @return the image in memory, or null if no image is at the key
+   */
+  private ImageModel live(String key) {
+    ImageModel image = this.images.get(key);
+    ImageSpillFile.Entry entry = this.spilled.get(key);
+    if (image != null || entry == null) {
+      return image;
+    }
+    image = this.spill.read(entry, this.storage, this.pool);
+    List<String> keys = new ArrayList<String>();
+    for (Map.Entry<String, ImageSpillFile.Entry> other : this.spilled.entrySet()) {
+      if (other.getValue() == entry) {
+        keys.add(other.getKey());
+      }
+    }
+    for (String other : keys) {
+      this.spilled.remove(other);
+      this.images.put(other, image);
+    }
+    this.closeSpillIfEmpty();
+    //the key asked for becomes the most recently used
+    this.images.get(key);
+    this.fit(image);
+    return image;
+  }
+
+  /**
+   * Forgets that the image at a key was spilled to disk, freeing its place in the spill file if
+   * no other key refers to it.
+   *
+   * @param key where the image was
+   */
+  private void forgetSpilled(String key) {
+    ImageSpillFile.Entry entry = this.spilled.remove(key);
+    if (entry != null && !this.spilled.containsValue(entry)) {
+      this.spill.free(entry);
+      this.closeSpillIfEmpty();
+    }
+  }
+
+  /**
+   * Closes and deletes the spill file once no image is left in it, so that a model that no longer
+   * spills does not keep the file open. A new file is made if images are spilled again.
+   */
+  private void closeSpillIfEmpty() {
+    if (this.spill != null && this.spilled.isEmpty()) {
+      this.spill.close();
+      this.spill = null;
+    }
+  }
+
+  /**
+   * Spills the least recently used images to disk until the images in memory fit the budget. The
+   * given image is kept in memory, as are images that can not be spilled.
+   *
+   * @param keep image that was just used, which is never spilled
+   */
+  private void fit(ImageModel keep) {
+    if (this.budget == NO_BUDGET || this.policy != BudgetPolicy.SPILL) {
+      return;
+    }
+    while (this.bytesInMemory() > this.budget) {
+      ImageModel victim = null;
+      for (ImageModel image : this.images.values()) {
+        if (image != keep && ImageSpillFile.canSpill(image)) {
+          victim = image;
+          break;
+        }
+      }
+      if (victim == null) {
+        return;
+      }
+      if (this.spill == null) {
+        this.spill = new ImageSpillFile();
+      }
+      ImageSpillFile.Entry entry = this.spill.write(victim);
+      List<String> keys = new ArrayList<String>();
+      for (Map.Entry<String, ImageModel> other : this.images.entrySet()) {
+        if (other.getValue() == victim) {
+          keys.add(other.getKey());
+        }
+      }
+      for (String other : keys) {
+        this.images.remove(other);
+        this.spilled.put(other, entry);
+      }
+      victim.release();
+    }
+  }
+
+  /**
+   * Gets the bytes taken by the pixels of the images in memory, counting images that are stored
+   * under more than one key, and pixels that copies still share, once.
+   *
+   * @return bytes of pixels in memory
+   */
+  private long bytesInMemory() {
+    Set<PixelBuffer> counted =
+        Collections.newSetFromMap(new IdentityHashMap<PixelBuffer, Boolean>());
+    long total = 0;
+    for (ImageModel image : this.images.values()) {
+      total = total + image.getFootprint(counted);
+    }
+    return total;
   }
 
   /**
@@ -67,87 +439,90 @@ public class ImageProcessorModelImpl implements ImageProcessorModel {
    */
   @Override
   public void filterImage(String key, double[][] kernel) {
+    this.filterImage(key, kernel, BorderMode.ZERO);
+  }
+
+  /**
+   * Filters an image using the kernel that is supplied to the function, reading the pixels that
+   * the kernel reaches past the edges of the image as the border mode says. An image that shares
+   * its pixels with a copy takes pixels of its own, so other images may be spilled to disk
+   * afterwards, or the image is left as it was if a model that fails would go over its budget.
+   *
+   * @param key    the name of the image that we are to filter
+   * @param kernel the Image that is used to filter the image
+   * @param border what is read for pixels past the edges of the image
+   * @throws IllegalArgumentException image is not in model
+   * @throws IllegalArgumentException kernel is not of odd dimensions
+   * @throws IllegalArgumentException border mode is null
+   * @throws IllegalArgumentException image would go over the budget of a model that fails
+   */
+  @Override
+  public void filterImage(String key, double[][] kernel, BorderMode border) {
     //checks that we match and that the dimensions are odd too
     if (kernel.length % 2 == 0 || kernel[0].length % 2 == 0) {
       throw new IllegalArgumentException("Kernel must have odd matching dimensions");
     }
+    if (border == null) {
+      throw new IllegalArgumentException("Border mode can not be null");
+    }
     //gets the image and a base image to do the filtering on
-    ImageModel image = this.images.get(key);
+    ImageModel image = this.live(key);
     //checks that the image exists in this model
     if (image == null) {
       throw new IllegalArgumentException("Desired Image could not be found by that key");
     }
-    ImageModel base = image.getImageCopy();
-    for (int width = 0; width < image.getWidth(); width = width + 1) {
-      for (int height = 0; height < image.getHeight(); height = height + 1) {
-        this.filterImageHelp(image, base, width, height, 0, kernel);
-        this.filterImageHelp(image, base, width, height, 1, kernel);
-        this.filterImageHelp(image, base, width, height, 2, kernel);
-      }
-    }
-  }
-
-  private void filterImageHelp(ImageModel end, ImageModel base,
-                               int width, int height, int comp, double[][] kernel) {
-    //stores half the kernel length
-    int halfK = kernel.length / 2;
-    //keeps track of the new value that the component will be
-    double endVal = 0;
-    //goes through the kernel, first going through columns that are inside the image
-    for (int col = halfK * -1; col <= halfK; col = col + 1) {
-      if (col + width >= 0 && col + width < end.getWidth()) {
-        //then goes through the kernel rows that are inside the image
-        for (int row = halfK * -1; row <= halfK; row = row + 1) {
-          if (row + height >= 0 && row + height < end.getHeight()) {
-            //adds the value to the running total, using the unmodified base
-            endVal = endVal + (kernel[col + halfK][row + halfK]
-                * base.getComponentValue(width + col, height + row, comp));
-          }
-        }
-      }
-    }
-    //sets the final image component to it, clamping if needed
-    end.setComponentValue(width, height, comp,
-        Math.max(0, Math.min(base.getMaxColorValue() ,(int) endVal)));
+    this.checkUnshared(image);
+    ImageOperations.filter(image, kernel, border, this.parallelism);
+    this.fit(image);
   }
 
   /**
-   * Does a linear transformation on the specified image, using the matrix.
+   * Does a linear transformation on the specified image, using the matrix. An image that shares
+   * its pixels with a copy takes pixels of its own, so other images may be spilled to disk
+   * afterwards, or the image is left as it was if a model that fails would go over its budget.
    *
    * @param key     the name of the image in the model
    * @param tMatrix a 3 x 3 matrix to use to transform the RGB components
    * @throws IllegalArgumentException image is not in model
    * @throws IllegalArgumentException transformation matrix is not 3 x 3
+   * @throws IllegalArgumentException image would go over the budget of a model that fails
    */
   @Override
   public void transformImage(String key, double[][] tMatrix) {
     if (tMatrix.length != 3 || tMatrix[0].length != 3) {
       throw new IllegalArgumentException("Transformation must use 3x3 matrix");
     }
-    ImageModel image = this.images.get(key);
+    ImageModel image = this.live(key);
     //checks if image is in the model
     if (image == null) {
       throw new IllegalArgumentException("Desired Image could not be found by that key");
     }
-    //goes through each pixel in the image
-    for (int width = 0; width < image.getWidth(); width = width + 1) {
-      for (int height = 0; height < image.getHeight(); height = height + 1) {
-        //temporarily stores the base values for each component
-        int rBase = image.getComponentValue(width, height, 0);
-        int gBase = image.getComponentValue(width, height, 1);
-        int bBase = image.getComponentValue(width, height, 2);
-        //gets the new value for the components
-        int rVal = (int) (tMatrix[0][0] * rBase + tMatrix[0][1] * gBase + tMatrix[0][2] * bBase);
-        int gVal = (int) (tMatrix[1][0] * rBase + tMatrix[1][1] * gBase + tMatrix[1][2] * bBase);
-        int bVal = (int) (tMatrix[2][0] * rBase + tMatrix[2][1] * gBase + tMatrix[2][2] * bBase);
-        //sets all the components to the new value to visualize, and clamps if needed
-        image.setComponentValue(width, height, 0,
-            Math.max(0, Math.min(rVal, image.getMaxColorValue())));
-        image.setComponentValue(width, height, 1,
-            Math.max(0, Math.min(gVal, image.getMaxColorValue())));
-        image.setComponentValue(width, height, 2,
-            Math.max(0, Math.min(bVal, image.getMaxColorValue())));
-      }
+    this.checkUnshared(image);
+    ImageOperations.transform(image, tMatrix, this.parallelism);
+    this.fit(image);
+  }
+
+  /**
+   * Sets how many threads filtering and transforming can split an image between.
+   *
+   * @param parallelism the settings for splitting images
+   * @throws IllegalArgumentException settings are null
+   */
+  @Override
+  public void setParallelism(Parallelism parallelism) {
+    if (parallelism == null) {
+      throw new IllegalArgumentException("Parallelism can not be null");
     }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Gets how many threads filtering and transforming can split an image between.
+   *
+   * @return the settings for splitting images
+   */
+  @Override
+  public Parallelism getParallelism() {
+    return this.parallelism;
   }
 }
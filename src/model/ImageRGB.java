@@ -1,13 +1,15 @@
 package model;
 
 /**
- * Implementation of the Image interface. Stores each pixel in a 3D array of integers, with the
- * format being [x][y][RGB value]. This implementation uses 3 rgb values to store information
- * about a pixel. Individual component values go from 0 to a set limit, inclusive.
+ * Implementation of the Image interface. Stores the pixels packed in one buffer, row by row, with
+ * the RGB values of each pixel next to each other. The buffer holds 8-bit, 16-bit, or int values
+ * depending on the maximum color value, so images with a maximum of 255 use one byte per value.
+ * This implementation uses 3 rgb values to store information about a pixel. Individual component
+ * values go from 0 to a set limit, inclusive.
  */
 public class ImageRGB extends AbstractImage {
   /**
-   * Constructs the image by using a given 3D array of pixels.
+   * Constructs the image by using a given 3D array of pixels, arranged as [x][y][RGB value].
    *
    * @param pixels      array to be used for the image
    * @param maxColorVal maximum integer value for a color, includes it and 0
@@ -19,12 +21,72 @@ public class ImageRGB extends AbstractImage {
   }
 
   /**
-   * Constructs an image of this type and returns it. Uses the max pixels of this image and
-   * sets the number of components to 3.
+   * Constructs the image by using a given 3D array of pixels, arranged as [x][y][RGB value], and
+   * keeps the pixels in the given storage.
+   *
+   * @param pixels      array to be used for the image
+   * @param maxColorVal maximum integer value for a color, includes it and 0
+   * @param storage     where the pixels are kept in memory
+   * @throws IllegalArgumentException must have 3 components in an ImageRGB
+   * @throws IllegalArgumentException components must fit within range
+   * @throws IllegalArgumentException storage is null or too small for the image
+   */
+  public ImageRGB(int[][][] pixels, int maxColorVal, PixelStorage storage) {
+    super(pixels, maxColorVal, 3, storage);
+  }
+
+  /**
+   * Constructs the image around an already filled buffer of packed pixels, taking ownership of
+   * it without copying or checking the values again.
+   *
+   * @param width       width of the image in pixels
+   * @param height      height of the image in pixels
+   * @param pixels      packed pixels of the image, with values known to fit the max value
+   * @param maxColorVal maximum integer value for a color, includes it and 0
+   * @throws IllegalArgumentException buffer does not match the size of the image
+   */
+  ImageRGB(int width, int height, PixelBuffer pixels, int maxColorVal) {
+    super(width, height, pixels, maxColorVal, 3);
+  }
+
+  /**
+   * Constructs a copy of the given image that shares its pixels until either is written to.
+   *
+   * @param source image to copy
+   */
+  protected ImageRGB(ImageRGB source) {
+    super(source);
+  }
+
+  /**
+   * Constructs a copy of this image that shares its pixels until either of them is written to.
+   *
+   * @return copy of the image as an ImageRGB
+   */
+  @Override
+  protected ImageModel constructSharedCopy() {
+    return new ImageRGB(this);
+  }
+
+  /**
+   * Constructs an image of this type and returns it. Uses the max pixels and storage of this
+   * image and sets the number of components to 3.
    *
    * @param pixels pixels for the image
    */
   protected ImageModel constructImage(int[][][] pixels) {
-    return new ImageRGB(pixels, this.maxColorVal);
+    return new ImageRGB(pixels, this.maxColorVal, this.getStorage());
+  }
+
+  /**
+   * Constructs an image of this type around the given buffer and returns it, without copying or
+   * checking the values. Uses the size and max pixels of this image.
+   *
+   * @param pixels packed pixels for the image, which now belong to the new image
+   * @return the new image
+   */
+  @Override
+  protected ImageModel constructImage(PixelBuffer pixels) {
+    return new ImageRGB(this.width, this.height, pixels, this.maxColorVal);
   }
 }
@@ -0,0 +1,286 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Scratch file that images are written to when a model has to make room for others, and read
+ * back from when they are needed again. Each image takes one run of bytes in the file, with values
+ * packed into 1, 2, or 4 bytes depending on its maximum color value. Runs of images that were read
+ * back or dropped are reused by later images, and the file shrinks when its last run is freed.
+ * The file is made in the default temporary directory and is deleted when it is closed, which the
+ * model does once the last image in it is read back or dropped.
+ */
+final class ImageSpillFile {
+  //the scratch file
+  private final File scratch;
+  //channel used to read and write the scratch file
+  private final FileChannel channel;
+  //free runs of bytes before the end of the file, by the position where they start
+  private final TreeMap<Long, Long> free;
+  //position just past the last run in use
+  private long end;
+
+  /**
+   * Where an image was written in the spill file, along with what is needed to rebuild it.
+   */
+  static final class Entry {
+    //position of the first byte of the image
+    private final long position;
+    //number of bytes taken by the image
+    private final long length;
+    //width of the image in pixels
+    private final int width;
+    //height of the image in pixels
+    private final int height;
+    //maximum value for a component of the image
+    private final int maxColorVal;
+
+    /**
+     * Constructs the record of a written image.
+     *
+     * @param position    position of the first byte of the image
+     * @param length      number of bytes taken by the image
+     * @param width       width of the image in pixels
+     * @param height      height of the image in pixels
+     * @param maxColorVal maximum value for a component
+     */
+    private Entry(long position, long length, int width, int height, int maxColorVal) {
+      this.position = position;
+      this.length = length;
+      this.width = width;
+      this.height = height;
+      this.maxColorVal = maxColorVal;
+    }
+
+    /**
+     * Gets the number of bytes that the image takes in the file.
+     *
+     * @return bytes on disk
+     */
+    long getLength() {
+      return this.length;
+    }
+  }
+
+  /**
+   * Constructs an empty spill file that is also deleted when the program exits, in case it is
+   * never closed.
+   *
+   * @throws IllegalArgumentException the file could not be made
+   */
+  ImageSpillFile() {
+    try {
+      this.scratch = File.createTempFile("images", ".spill");
+      this.scratch.deleteOnExit();
+      this.channel = new RandomAccessFile(this.scratch, "rw").getChannel();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Could not make a spill file for the images");
+    }
+    this.free = new TreeMap<Long, Long>();
+    this.end = 0;
+  }
+
+  /**
+   * Tells if an image can be written to the spill file and read back as the same kind of image.
+   *
+   * @param image image to check
+   * @return true if the image can be spilled
+   */
+  static boolean canSpill(ImageModel image) {
+    return image instanceof ImageRGB;
+  }
+
+  /**
+   * Writes the pixels of an image to the file. The image itself is left as it was.
+   *
+   * @param image image to write, which must be one that can be spilled
+   * @return where the image was written
+   * @throws IllegalArgumentException the image could not be written
+   */
+  Entry write(ImageModel image) {
+    int valueBytes = DirectPixelBuffer.valueBytesFor(image.getMaxColorValue());
+    int rowLength = image.getWidth() * image.getNumComponents();
+    long length = (long) rowLength * valueBytes * image.getHeight();
+    long position = this.take(length);
+    int[] row = new int[rowLength];
+    ByteBuffer bytes = ByteBuffer.allocate(rowLength * valueBytes);
+    try {
+      for (int h = 0; h < image.getHeight(); h = h + 1) {
+        image.getRegion(0, h, image.getWidth(), 1, row, 0);
+        bytes.clear();
+        for (int val : row) {
+          ImageSpillFile.putValue(bytes, val, valueBytes);
+        }
+        bytes.flip();
+        long at = position + (long) h * bytes.limit();
+        while (bytes.hasRemaining()) {
+          at = at + this.channel.write(bytes, at);
+        }
+      }
+    } catch (IOException e) {
+      this.give(position, length);
+      throw new IllegalArgumentException("Could not write the image to the spill file");
+    }
+    return new Entry(position, length, image.getWidth(), image.getHeight(),
+        image.getMaxColorValue());
+  }
+
+  /**
+   * Reads an image back from the file, keeping its pixels in the given storage, and frees the
+   * bytes it took.
+   *
+   * @param entry   where the image was written
+   * @param storage where the pixels of the rebuilt image are kept
+   * @param pool    pool to take pixels on the heap from, or null if there is none
+   * @return the rebuilt image
+   * @throws IllegalArgumentException the image could not be read
+   */
+  ImageModel read(Entry entry, PixelStorage storage, PixelBufferPool pool) {
+    int valueBytes = DirectPixelBuffer.valueBytesFor(entry.maxColorVal);
+    int rowLength = entry.width * 3;
+    int size = rowLength * entry.height;
+    PixelBuffer pixels;
+    if (pool != null && storage == PixelStorage.HEAP) {
+      pixels = pool.allocate(size, entry.maxColorVal);
+    } else {
+      pixels = PixelBuffers.allocate(size, entry.maxColorVal, storage);
+    }
+    int[] row = new int[rowLength];
+    ByteBuffer bytes = ByteBuffer.allocate(rowLength * valueBytes);
+    try {
+      for (int h = 0; h < entry.height; h = h + 1) {
+        bytes.clear();
+        long at = entry.position + (long) h * bytes.capacity();
+        while (bytes.hasRemaining()) {
+          int read = this.channel.read(bytes, at);
+          if (read < 0) {
+            throw new IOException("Spill file ended early");
+          }
+          at = at + read;
+        }
+        bytes.flip();
+        for (int i = 0; i < rowLength; i = i + 1) {
+          row[i] = ImageSpillFile.getValue(bytes, valueBytes);
+        }
+        pixels.set(h * rowLength, row, 0, rowLength);
+      }
+    } catch (IOException e) {
+      pixels.release();
+      throw new IllegalArgumentException("Could not read the image from the spill file");
+    }
+    this.free(entry);
+    return new ImageRGB(entry.width, entry.height, pixels, entry.maxColorVal);
+  }
+
+  /**
+   * Frees the bytes taken by an image that is no longer needed.
+   *
+   * @param entry where the image was written
+   */
+  void free(Entry entry) {
+    this.give(entry.position, entry.length);
+  }
+
+  /**
+   * Closes and deletes the file. Images still in it are lost.
+   */
+  void close() {
+    try {
+      this.channel.close();
+    } catch (IOException e) {
+      //the file is deleted either way
+    }
+    this.scratch.delete();
+  }
+
+  /**
+   * Finds room for a run of bytes, using the first free run that fits before growing the file.
+   *
+   * @param length number of bytes needed
+   * @return position of the first byte of the room
+   */
+  private long take(long length) {
+    for (Map.Entry<Long, Long> run : this.free.entrySet()) {
+      if (run.getValue() >= length) {
+        this.free.remove(run.getKey());
+        if (run.getValue() > length) {
+          this.free.put(run.getKey() + length, run.getValue() - length);
+        }
+        return run.getKey();
+      }
+    }
+    long position = this.end;
+    this.end = this.end + length;
+    return position;
+  }
+
+  /**
+   * Frees a run of bytes, joining it with the free runs next to it and shrinking the file if the
+   * run was at its end.
+   *
+   * @param position position of the first byte of the run
+   * @param length   number of bytes in the run
+   */
+  private void give(long position, long length) {
+    Map.Entry<Long, Long> before = this.free.floorEntry(position);
+    if (before != null && before.getKey() + before.getValue() == position) {
+      this.free.remove(before.getKey());
+      position = before.getKey();
+      length = length + before.getValue();
+    }
+    Long after = this.free.remove(position + length);
+    if (after != null) {
+      length = length + after;
+    }
+    if (position + length == this.end) {
+      this.end = position;
+      try {
+        this.channel.truncate(this.end);
+      } catch (IOException e) {
+        //the file is only bigger than it has to be
+      }
+    } else {
+      this.free.put(position, length);
+    }
+  }
+
+  /**
+   * Packs a value into the given amount of bytes.
+   *
+   * @param bytes      buffer to put the value in
+   * @param val        value to pack
+   * @param valueBytes number of bytes for the value (1, 2, or 4)
+   */
+  private static void putValue(ByteBuffer bytes, int val, int valueBytes) {
+    if (valueBytes == 1) {
+      bytes.put((byte) val);
+    } else if (valueBytes == 2) {
+      bytes.putShort((short) val);
+    } else {
+      bytes.putInt(val);
+    }
+  }
+
+  /**
+   * Unpacks a value from the given amount of bytes.
+   *
+   * @param bytes      buffer to read the value from
+   * @param valueBytes number of bytes for the value (1, 2, or 4)
+   * @return the unpacked value
+   */
+  private static int getValue(ByteBuffer bytes, int valueBytes) {
+    if (valueBytes == 1) {
+      return bytes.get() & 0xFF;
+    } else if (valueBytes == 2) {
+      return bytes.getShort() & 0xFFFF;
+    } else {
+      return bytes.getInt();
+    }
+  }
+}
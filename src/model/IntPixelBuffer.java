@@ -0,0 +1,161 @@
+package model;
+
+/**
+ * Pixel buffer that keeps every component value as an int. Used for images whose maximum color
+ * value does not fit in 16 bits.
+ */
+class IntPixelBuffer implements PixelBuffer {
+  //the stored component values
+  private int[] values;
+  //number of values in the buffer, which may be less than the length of a pooled array
+  private final int size;
+  //pool that the array goes back to when the buffer is released, or null if there is none
+  private PixelBufferPool pool;
+
+  /**
+   * Constructs a buffer of the given size with every value set to 0.
+   *
+   * @param size number of values in the buffer
+   */
+  IntPixelBuffer(int size) {
+    this.values = new int[size];
+    this.size = size;
+    this.pool = null;
+  }
+
+  /**
+   * Constructs a buffer over an array taken from a pool, which goes back to that pool when the
+   * buffer is released.
+   *
+   * @param values array holding the values, at least as long as the size
+   * @param size   number of values in the buffer
+   * @param pool   pool that the array came from
+   */
+  IntPixelBuffer(int[] values, int size, PixelBufferPool pool) {
+    this.values = values;
+    this.size = size;
+    this.pool = pool;
+  }
+
+  /**
+   * Makes the array of this buffer go back to the given pool when the buffer is released, and
+   * makes copies of this buffer take their arrays from it.
+   *
+   * @param pool pool to use
+   */
+  void usePool(PixelBufferPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Gets the amount of component values that this buffer holds.
+   *
+   * @return number of values in the buffer
+   */
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the value stored at the given position.
+   *
+   * @param index position of the value in the buffer
+   * @return the value at that position
+   */
+  @Override
+  public int get(int index) {
+    return this.values[index];
+  }
+
+  /**
+   * Stores a value at the given position.
+   *
+   * @param index position of the value in the buffer
+   * @param val   value to store, which must fit in the range of this buffer
+   */
+  @Override
+  public void set(int index, int val) {
+    this.values[index] = val;
+  }
+
+  /**
+   * Reads a run of values, starting at the given position, into the given array.
+   *
+   * @param index  position of the first value in the buffer
+   * @param dest   array to read the values into
+   * @param offset position in the array for the first value
+   * @param length number of values to read
+   */
+  @Override
+  public void get(int index, int[] dest, int offset, int length) {
+    System.arraycopy(this.values, index, dest, offset, length);
+  }
+
+  /**
+   * Stores a run of values from the given array, starting at the given position.
+   *
+   * @param index  position of the first value in the buffer
+   * @param src    array holding the values, which must fit in the range of this buffer
+   * @param offset position in the array of the first value
+   * @param length number of values to store
+   */
+  @Override
+  public void set(int index, int[] src, int offset, int length) {
+    System.arraycopy(src, offset, this.values, index, length);
+  }
+
+  /**
+   * Gets an exact copy of this buffer that uses the same type of storage. Copies of a pooled
+   * buffer take their array from the same pool.
+   *
+   * @return copy of the buffer
+   */
+  @Override
+  public PixelBuffer copy() {
+    if (this.pool == null) {
+      IntPixelBuffer out = new IntPixelBuffer(this.size);
+      System.arraycopy(this.values, 0, out.values, 0, this.size);
+      return out;
+    }
+    int[] copied = this.pool.takeInts(this.size);
+    System.arraycopy(this.values, 0, copied, 0, this.size);
+    return new IntPixelBuffer(copied, this.size, this.pool);
+  }
+
+  /**
+   * Gets the number of bytes of memory that hold the values of this buffer, which for a pooled
+   * buffer is its whole array.
+   *
+   * @return bytes used by the buffer
+   */
+  @Override
+  public long getByteSize() {
+    return 4L * this.values.length;
+  }
+
+  /**
+   * Gets where the values of this buffer are kept in memory.
+   *
+   * @return the heap, since the values are kept in an array
+   */
+  @Override
+  public PixelStorage getStorage() {
+    return PixelStorage.HEAP;
+  }
+
+  /**
+   * Gives the array of this buffer back to its pool, if it has one. Otherwise does nothing, since
+   * the garbage collector takes care of arrays on the heap. A pooled buffer must not be used after
+   * it has been released.
+   */
+  @Override
+  public void release() {
+    if (this.pool != null) {
+      this.pool.give(this.values);
+      this.pool = null;
+      //later use fails right away instead of touching an array that another buffer took
+      this.values = new int[0];
+    }
+  }
+}
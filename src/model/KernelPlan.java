@@ -0,0 +1,143 @@
+package model;
+
+/**
+ * A plan for filtering with a kernel, which is either going through the whole kernel for each
+ * pixel or a sum of a few separable terms. Each separable term is the outer product of weights
+ * across a row and weights down a column, and can be done as a pass across and a pass down. A
+ * kernel of rank r split this way takes r * (cols + rows) multiplications per component instead of
+ * cols * rows, so it is only split when that is fewer.
+ */
+final class KernelPlan {
+  //how far the sum of the terms can be from the kernel, relative to its largest entry, for the
+  //kernel to still be split
+  private static final double TOLERANCE = 1e-12;
+  //the weights across a row for each term, by column of the kernel, or null to go through all of it
+  private final double[][] across;
+  //the weights down a column for each term, by row of the kernel, or null to go through all of it
+  private final double[][] down;
+
+  /**
+   * Constructs a plan from the weights of its terms.
+   *
+   * @param across weights across a row for each term, or null to go through the whole kernel
+   * @param down   weights down a column for each term, or null to go through the whole kernel
+   */
+  private KernelPlan(double[][] across, double[][] down) {
+    this.across = across;
+    this.down = down;
+  }
+
+  /**
+   * Plans how to filter with a kernel. The kernel is split one term at a time, like elimination
+   * with full pivoting: the largest entry left is found, its row of the kernel becomes the weights
+   * across, its column divided by it becomes the weights down, and their outer product is taken
+   * away from what is left. The split stops once nothing is left, or gives up once it has more
+   * terms than would be cheaper than going through the whole kernel. Since the weights are the
+   * entries of the kernel divided by one another, a kernel of fractions like 1/16 is split exactly.
+   *
+   * @param kernel kernel arranged as col x row
+   * @return the plan for the kernel
+   */
+  static KernelPlan of(double[][] kernel) {
+    int cols = kernel.length;
+    int rows = kernel[0].length;
+    //the most terms that are still cheaper than going through the whole kernel
+    int maxTerms = (cols * rows - 1) / (cols + rows);
+    double[][] left = new double[cols][rows];
+    double largest = 0;
+    for (int col = 0; col < cols; col = col + 1) {
+      for (int row = 0; row < rows; row = row + 1) {
+        left[col][row] = kernel[col][row];
+        largest = Math.max(largest, Math.abs(kernel[col][row]));
+      }
+    }
+    double[][] across = new double[maxTerms][];
+    double[][] down = new double[maxTerms][];
+    int terms = 0;
+    while (true) {
+      //finds the largest entry left, so that dividing by it is as exact as it can be
+      int pivotCol = 0;
+      int pivotRow = 0;
+      for (int col = 0; col < cols; col = col + 1) {
+        for (int row = 0; row < rows; row = row + 1) {
+          if (Math.abs(left[col][row]) > Math.abs(left[pivotCol][pivotRow])) {
+            pivotCol = col;
+            pivotRow = row;
+          }
+        }
+      }
+      double pivot = left[pivotCol][pivotRow];
+      if (Math.abs(pivot) <= TOLERANCE * largest) {
+        break;
+      }
+      if (terms == maxTerms) {
+        return new KernelPlan(null, null);
+      }
+      across[terms] = new double[cols];
+      down[terms] = new double[rows];
+      for (int col = 0; col < cols; col = col + 1) {
+        across[terms][col] = left[col][pivotRow];
+      }
+      for (int row = 0; row < rows; row = row + 1) {
+        down[terms][row] = left[pivotCol][row] / pivot;
+      }
+      //takes the term away from what is left of the kernel
+      for (int col = 0; col < cols; col = col + 1) {
+        for (int row = 0; row < rows; row = row + 1) {
+          left[col][row] = left[col][row] - across[terms][col] * down[terms][row];
+        }
+      }
+      terms = terms + 1;
+    }
+    if (terms == 0) {
+      //a kernel of only zeros is left to go through as it is
+      return new KernelPlan(null, null);
+    }
+    double[][] usedAcross = new double[terms][];
+    double[][] usedDown = new double[terms][];
+    System.arraycopy(across, 0, usedAcross, 0, terms);
+    System.arraycopy(down, 0, usedDown, 0, terms);
+    return new KernelPlan(usedAcross, usedDown);
+  }
+
+  /**
+   * Tells if the kernel was split into separable terms.
+   *
+   * @return true if the kernel is filtered as separable terms, false to go through all of it
+   */
+  boolean isSeparable() {
+    return this.across != null;
+  }
+
+  /**
+   * Gets the number of separable terms that the kernel was split into.
+   *
+   * @return the number of terms, or 0 if the kernel was not split
+   */
+  int getTerms() {
+    if (this.across == null) {
+      return 0;
+    }
+    return this.across.length;
+  }
+
+  /**
+   * Gets the weights across a row for a term.
+   *
+   * @param term the index of the term
+   * @return the weights by column of the kernel
+   */
+  double[] getAcross(int term) {
+    return this.across[term];
+  }
+
+  /**
+   * Gets the weights down a column for a term.
+   *
+   * @param term the index of the term
+   * @return the weights by row of the kernel
+   */
+  double[] getDown(int term) {
+    return this.down[term];
+  }
+}
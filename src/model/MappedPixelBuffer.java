@@ -0,0 +1,109 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Pixel buffer whose values are memory-mapped from a scratch file. The operating system pages
+ * the values in and out of memory as they are used, so the images of a model can take more space
+ * than there is physical memory. The scratch file is made in the default temporary directory
+ * (set with the java.io.tmpdir property) and is deleted when the buffer is released.
+ */
+class MappedPixelBuffer extends DirectPixelBuffer {
+  //the scratch file that the values are mapped from
+  private final File scratch;
+
+  /**
+   * Constructs a buffer of the given size with every value set to 0, mapped from a new scratch
+   * file.
+   *
+   * @param size        number of values in the buffer
+   * @param maxColorVal maximum value that will be stored in the buffer
+   * @throws IllegalArgumentException buffer is too large or the scratch file could not be made
+   */
+  MappedPixelBuffer(int size, int maxColorVal) {
+    this(MappedPixelBuffer.createScratch(), size, maxColorVal);
+  }
+
+  /**
+   * Constructs a buffer mapped from the given scratch file.
+   *
+   * @param scratch     the empty scratch file to map the values from
+   * @param size        number of values in the buffer
+   * @param maxColorVal maximum value that will be stored in the buffer
+   * @throws IllegalArgumentException buffer is too large or the scratch file could not be mapped
+   */
+  private MappedPixelBuffer(File scratch, int size, int maxColorVal) {
+    super(MappedPixelBuffer.map(scratch, DirectPixelBuffer.byteSize(size, maxColorVal)), size,
+        maxColorVal);
+    this.scratch = scratch;
+  }
+
+  /**
+   * Makes a new scratch file that is deleted when the program exits, in case it is never released.
+   *
+   * @return the new scratch file
+   * @throws IllegalArgumentException the file could not be made
+   */
+  private static File createScratch() {
+    try {
+      File scratch = File.createTempFile("image", ".pixels");
+      scratch.deleteOnExit();
+      return scratch;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Could not make a scratch file for the image");
+    }
+  }
+
+  /**
+   * Maps the given amount of bytes from the scratch file, growing the file to fit them. The
+   * mapping stays valid after the file's channel is closed.
+   *
+   * @param scratch the scratch file to map
+   * @param bytes   number of bytes to map
+   * @return the mapped bytes
+   * @throws IllegalArgumentException the file could not be mapped
+   */
+  private static ByteBuffer map(File scratch, int bytes) {
+    try (RandomAccessFile file = new RandomAccessFile(scratch, "rw")) {
+      return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+    } catch (IOException e) {
+      scratch.delete();
+      throw new IllegalArgumentException("Could not map the scratch file for the image");
+    }
+  }
+
+  /**
+   * Gets an exact copy of this buffer that is mapped from its own scratch file.
+   *
+   * @return copy of the buffer
+   */
+  @Override
+  public PixelBuffer copy() {
+    MappedPixelBuffer out = new MappedPixelBuffer(this.size(), this.getMaxColorValue());
+    out.copyFrom(this);
+    return out;
+  }
+
+  /**
+   * Gets where the values of this buffer are kept in memory.
+   *
+   * @return mapped, since the values are paged from a scratch file
+   */
+  @Override
+  public PixelStorage getStorage() {
+    return PixelStorage.MAPPED;
+  }
+
+  /**
+   * Unmaps the values of this buffer and deletes its scratch file.
+   */
+  @Override
+  public void release() {
+    super.release();
+    this.scratch.delete();
+  }
+}
@@ -0,0 +1,228 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Summary of the memory used by the images of a model at one point in time: how many images there
+ * are, how many bytes their pixels take in memory and on disk, and which images take the most.
+ * Images that are stored under more than one key are counted once, and the total counts pixels that
+ * copies of an image still share once.
+ */
+public final class MemorySummary {
+  //number of images listed as the largest
+  private static final int LARGEST = 3;
+
+  //number of keys that refer to an image
+  private final int keyCount;
+  //number of different images in memory
+  private final int imageCount;
+  //bytes used by the pixels of the images in memory
+  private final long bytesInMemory;
+  //number of different images spilled to disk
+  private final int spilledCount;
+  //bytes used by the images spilled to disk
+  private final long bytesOnDisk;
+  //most bytes that the images in memory may take, or ImageProcessorModelImpl.NO_BUDGET
+  private final long budget;
+  //images in memory that take the most bytes, from the largest down
+  private final List<Entry> largest;
+
+  /**
+   * The memory used by one image of a model.
+   */
+  public static final class Entry {
+    //a key that the image is stored under
+    private final String key;
+    //bytes used by the pixels of the image
+    private final long bytes;
+    //where the pixels of the image are kept
+    private final PixelStorage storage;
+
+    /**
+     * Constructs the memory used by one image.
+     *
+     * @param key     a key that the image is stored under
+     * @param bytes   bytes used by the pixels of the image
+     * @param storage where the pixels of the image are kept
+     */
+    public Entry(String key, long bytes, PixelStorage storage) {
+      this.key = key;
+      this.bytes = bytes;
+      this.storage = storage;
+    }
+
+    /**
+     * Gets a key that the image is stored under.
+     *
+     * @return key of the image
+     */
+    public String getKey() {
+      return this.key;
+    }
+
+    /**
+     * Gets the bytes used by the pixels of the image.
+     *
+     * @return bytes of the image
+     */
+    public long getBytes() {
+      return this.bytes;
+    }
+
+    /**
+     * Gets where the pixels of the image are kept.
+     *
+     * @return storage of the image
+     */
+    public PixelStorage getStorage() {
+      return this.storage;
+    }
+  }
+
+  /**
+   * Constructs a summary of the memory used by the images of a model.
+   *
+   * @param keyCount      number of keys that refer to an image
+   * @param imageCount    number of different images in memory
+   * @param bytesInMemory bytes used by the pixels of the images in memory
+   * @param spilledCount  number of different images spilled to disk
+   * @param bytesOnDisk   bytes used by the images spilled to disk
+   * @param budget        most bytes that the images in memory may take
+   * @param largest       images in memory that take the most bytes, from the largest down
+   */
+  public MemorySummary(int keyCount, int imageCount, long bytesInMemory, int spilledCount,
+                       long bytesOnDisk, long budget, List<Entry> largest) {
+    this.keyCount = keyCount;
+    this.imageCount = imageCount;
+    this.bytesInMemory = bytesInMemory;
+    this.spilledCount = spilledCount;
+    this.bytesOnDisk = bytesOnDisk;
+    this.budget = budget;
+    this.largest = Collections.unmodifiableList(new ArrayList<Entry>(largest));
+  }
+
+  /**
+   * Sums up the memory used by the images in memory of a model.
+   *
+   * @param images       images in memory by key
+   * @param keyCount     number of keys that refer to an image, in memory or not
+   * @param spilledCount number of different images spilled to disk
+   * @param bytesOnDisk  bytes used by the images spilled to disk
+   * @param budget       most bytes that the images in memory may take
+   * @return the summary of the model
+   */
+  static MemorySummary of(Map<String, ImageModel> images, int keyCount, int spilledCount,
+                          long bytesOnDisk, long budget) {
+    Map<ImageModel, Entry> counted = new IdentityHashMap<ImageModel, Entry>();
+    Set<PixelBuffer> buffers =
+        Collections.newSetFromMap(new IdentityHashMap<PixelBuffer, Boolean>());
+    long total = 0;
+    for (Map.Entry<String, ImageModel> image : images.entrySet()) {
+      if (!counted.containsKey(image.getValue())) {
+        Entry entry = new Entry(image.getKey(), image.getValue().getFootprint(),
+            image.getValue().getStorage());
+        counted.put(image.getValue(), entry);
+        total = total + image.getValue().getFootprint(buffers);
+      }
+    }
+    List<Entry> largest = new ArrayList<Entry>(counted.values());
+    //largest first, with ties in order of their keys
+    largest.sort(Comparator.comparingLong(Entry::getBytes).reversed()
+        .thenComparing(Entry::getKey));
+    return new MemorySummary(keyCount, counted.size(), total, spilledCount, bytesOnDisk, budget,
+        largest.subList(0, Math.min(LARGEST, largest.size())));
+  }
+
+  /**
+   * Gets the number of keys that refer to an image.
+   *
+   * @return number of keys
+   */
+  public int getKeyCount() {
+    return this.keyCount;
+  }
+
+  /**
+   * Gets the number of different images in memory.
+   *
+   * @return number of images in memory
+   */
+  public int getImageCount() {
+    return this.imageCount;
+  }
+
+  /**
+   * Gets the bytes used by the pixels of the images in memory.
+   *
+   * @return bytes in memory
+   */
+  public long getBytesInMemory() {
+    return this.bytesInMemory;
+  }
+
+  /**
+   * Gets the number of different images that were spilled to disk.
+   *
+   * @return number of images on disk
+   */
+  public int getSpilledCount() {
+    return this.spilledCount;
+  }
+
+  /**
+   * Gets the bytes used by the images that were spilled to disk.
+   *
+   * @return bytes on disk
+   */
+  public long getBytesOnDisk() {
+    return this.bytesOnDisk;
+  }
+
+  /**
+   * Gets the most bytes that the images in memory may take.
+   *
+   * @return the budget, or ImageProcessorModelImpl.NO_BUDGET if there is none
+   */
+  public long getBudget() {
+    return this.budget;
+  }
+
+  /**
+   * Gets the images in memory that take the most bytes, from the largest down.
+   *
+   * @return the largest images
+   */
+  public List<Entry> getLargest() {
+    return this.largest;
+  }
+
+  /**
+   * Gives the summary as lines of text, one for memory, one for disk, and one for the largest
+   * images.
+   *
+   * @return the summary as text
+   */
+  @Override
+  public String toString() {
+    StringBuilder out = new StringBuilder();
+    out.append(String.format("Memory: %d bytes in %d images under %d keys", this.bytesInMemory,
+        this.imageCount, this.keyCount));
+    if (this.budget != ImageProcessorModelImpl.NO_BUDGET) {
+      out.append(String.format(" (budget %d bytes)", this.budget));
+    }
+    out.append(String.format("\nDisk: %d bytes in %d images", this.bytesOnDisk,
+        this.spilledCount));
+    out.append("\nLargest:");
+    for (Entry entry : this.largest) {
+      out.append(String.format(" %s %d bytes (%s)", entry.getKey(), entry.getBytes(),
+          entry.getStorage()));
+    }
+    return out.toString();
+  }
+}
@@ -0,0 +1,121 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * How many threads the operations of a model can split an image between, and how big an image has
+ * to be before it is split at all. The threads come from a fork-join pool that is only made once
+ * it is first needed, and whose threads end by themselves when the program does. Splitting a small
+ * image costs more than it saves, so images with fewer pixels than the minimum are never split.
+ */
+public final class Parallelism {
+  //the fewest pixels that an image has to have to be split, unless another minimum is given
+  public static final long DEFAULT_MIN_PIXELS = 1 << 16;
+  //how many parts an image is split into for each thread, so that uneven parts even out
+  private static final int PARTS_PER_THREAD = 4;
+  //the number of threads to split images between
+  private final int threads;
+  //the fewest pixels that an image has to have to be split
+  private final long minPixels;
+  //the pool that the parts are run on, made once it is first needed
+  private ForkJoinPool pool;
+
+  /**
+   * Constructs settings that split images of at least the default number of pixels between the
+   * given number of threads.
+   *
+   * @param threads number of threads to split images between, where 1 never splits them
+   * @throws IllegalArgumentException fewer than 1 thread
+   */
+  public Parallelism(int threads) {
+    this(threads, DEFAULT_MIN_PIXELS);
+  }
+
+  /**
+   * Constructs settings that split images of at least the given number of pixels between the
+   * given number of threads.
+   *
+   * @param threads   number of threads to split images between, where 1 never splits them
+   * @param minPixels the fewest pixels that an image has to have to be split
+   * @throws IllegalArgumentException fewer than 1 thread, or a negative minimum
+   */
+  public Parallelism(int threads, long minPixels) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Threads must be at least 1");
+    }
+    if (minPixels < 0) {
+      throw new IllegalArgumentException("Minimum pixels can not be negative");
+    }
+    this.threads = threads;
+    this.minPixels = minPixels;
+  }
+
+  /**
+   * Gets the number of threads that images are split between.
+   *
+   * @return the number of threads
+   */
+  public int getThreads() {
+    return this.threads;
+  }
+
+  /**
+   * Gets the fewest pixels that an image has to have to be split.
+   *
+   * @return the minimum number of pixels
+   */
+  public long getMinPixels() {
+    return this.minPixels;
+  }
+
+  /**
+   * Gets the number of parts to split an image into, which is 1 when there is only one thread or
+   * the image is too small to be worth splitting.
+   *
+   * @param image the image to split
+   * @return the number of parts, at least 1
+   */
+  public int partsFor(ImageModel image) {
+    if (this.threads == 1 || (long) image.getWidth() * image.getHeight() < this.minPixels) {
+      return 1;
+    }
+    return this.threads * PARTS_PER_THREAD;
+  }
+
+  /**
+   * Runs all of the given parts and waits for them to finish. With more than one thread the parts
+   * are run on the pool, so they must not depend on one another, and otherwise they are run in
+   * order on the calling thread.
+   *
+   * @param parts the parts to run
+   * @throws RuntimeException anything that one of the parts throws
+   */
+  public void runAll(List<Runnable> parts) {
+    if (this.threads == 1 || parts.size() < 2) {
+      for (Runnable part : parts) {
+        part.run();
+      }
+      return;
+    }
+    List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+    for (Runnable part : parts) {
+      tasks.add(ForkJoinTask.adapt(part));
+    }
+    this.getPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+  }
+
+  /**
+   * Gets the pool that parts are run on, making it if it was not made yet.
+   *
+   * @return the pool of threads
+   */
+  private synchronized ForkJoinPool getPool() {
+    if (this.pool == null) {
+      this.pool = new ForkJoinPool(this.threads);
+    }
+    return this.pool;
+  }
+}
@@ -0,0 +1,80 @@
+package model;
+
+/**
+ * Interface that represents the storage behind an image: a fixed amount of component values that
+ * can each be read and written by their position in the storage. Implementations decide how the
+ * values are kept in memory. Values given to a buffer must already fit within the range that it
+ * was made for, since buffers do no checks besides the bounds of their own storage.
+ */
+public interface PixelBuffer {
+  /**
+   * Gets the amount of component values that this buffer holds.
+   *
+   * @return number of values in the buffer
+   */
+  int size();
+
+  /**
+   * Gets the value stored at the given position.
+   *
+   * @param index position of the value in the buffer
+   * @return the value at that position
+   */
+  int get(int index);
+
+  /**
+   * Stores a value at the given position.
+   *
+   * @param index position of the value in the buffer
+   * @param val   value to store, which must fit in the range of this buffer
+   */
+  void set(int index, int val);
+
+  /**
+   * Reads a run of values, starting at the given position, into the given array.
+   *
+   * @param index  position of the first value in the buffer
+   * @param dest   array to read the values into
+   * @param offset position in the array for the first value
+   * @param length number of values to read
+   */
+  void get(int index, int[] dest, int offset, int length);
+
+  /**
+   * Stores a run of values from the given array, starting at the given position.
+   *
+   * @param index  position of the first value in the buffer
+   * @param src    array holding the values, which must fit in the range of this buffer
+   * @param offset position in the array of the first value
+   * @param length number of values to store
+   */
+  void set(int index, int[] src, int offset, int length);
+
+  /**
+   * Gets an exact copy of this buffer that uses the same type of storage.
+   *
+   * @return copy of the buffer
+   */
+  PixelBuffer copy();
+
+  /**
+   * Gets the number of bytes of memory that hold the values of this buffer.
+   *
+   * @return bytes used by the buffer
+   */
+  long getByteSize();
+
+  /**
+   * Gets where the values of this buffer are kept in memory.
+   *
+   * @return the storage used by this buffer
+   */
+  PixelStorage getStorage();
+
+  /**
+   * Gives back any memory held by this buffer outside of the Java heap. The buffer must not be
+   * used after it has been released. Buffers on the heap do nothing, since the garbage collector
+   * takes care of them.
+   */
+  void release();
+}
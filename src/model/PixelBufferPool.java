@@ -0,0 +1,323 @@
+package model;
+
+import java.lang.reflect.Array;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the arrays of heap pixel buffers that are no longer used, so that images made later can
+ * take them instead of allocating new ones. Batch jobs that run many images of similar sizes then
+ * reuse the same few large arrays instead of handing them to the garbage collector after every
+ * command.
+ *
+ * <p>Arrays are grouped into buckets by length. Lengths are rounded up to one of eight steps
+ * between each power of two, so a buffer from the pool wastes at most an eighth of its array and
+ * images of nearly the same size share a bucket. The pool holds at most its capacity in bytes;
+ * arrays given back past that are left to the garbage collector. Buffers taken from the pool
+ * remember it, so their copies also come from the pool and they go back to it when released.
+ * Buffers kept off the heap are never pooled, since they are freed as soon as they are released.
+ */
+public final class PixelBufferPool {
+  //arrays shorter than this are cheap to allocate, so they are not pooled
+  private static final int MIN_POOLED = 64;
+  //number of buckets between two powers of two, as a shift
+  private static final int STEP_SHIFT = 3;
+
+  //most bytes of arrays that the pool holds at once
+  private final long capacity;
+  //free 8-bit arrays, by the length of the bucket they are in
+  private final Map<Integer, ArrayDeque<byte[]>> bytes;
+  //free 16-bit arrays, by the length of the bucket they are in
+  private final Map<Integer, ArrayDeque<short[]>> shorts;
+  //free int arrays, by the length of the bucket they are in
+  private final Map<Integer, ArrayDeque<int[]>> ints;
+  //bytes of the arrays that the pool holds right now
+  private long pooledBytes;
+  //number of arrays taken that came from the pool
+  private long hits;
+  //number of arrays taken that had to be allocated
+  private long misses;
+
+  /**
+   * Constructs an empty pool that holds at most the given amount of bytes of free arrays.
+   *
+   * @param capacity most bytes of free arrays kept by the pool
+   * @throws IllegalArgumentException capacity is negative
+   */
+  public PixelBufferPool(long capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Capacity can not be negative");
+    }
+    this.capacity = capacity;
+    this.bytes = new HashMap<Integer, ArrayDeque<byte[]>>();
+    this.shorts = new HashMap<Integer, ArrayDeque<short[]>>();
+    this.ints = new HashMap<Integer, ArrayDeque<int[]>>();
+  }
+
+  /**
+   * Gets the most bytes of free arrays that the pool holds at once.
+   *
+   * @return capacity of the pool in bytes
+   */
+  public long getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * Gets the bytes of free arrays that the pool holds right now.
+   *
+   * @return bytes held by the pool
+   */
+  public synchronized long getPooledBytes() {
+    return this.pooledBytes;
+  }
+
+  /**
+   * Gets the number of buffers that were made from an array kept by the pool.
+   *
+   * @return number of hits
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Gets the number of buffers that the pool had to allocate a new array for.
+   *
+   * @return number of misses
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Lets go of every free array held by the pool. Counts of hits and misses are kept.
+   */
+  public synchronized void clear() {
+    this.bytes.clear();
+    this.shorts.clear();
+    this.ints.clear();
+    this.pooledBytes = 0;
+  }
+
+  /**
+   * Makes a buffer from the pool of the given size, with all values set to 0, that can hold every
+   * value from 0 to the given maximum, inclusive.
+   *
+   * @param size        number of values in the buffer
+   * @param maxColorVal maximum value that will be stored in the buffer
+   * @return an 8-bit, 16-bit, or int buffer depending on the maximum value
+   */
+  PixelBuffer allocate(int size, int maxColorVal) {
+    if (maxColorVal <= PixelBuffers.BYTE_LIMIT) {
+      byte[] values = this.takeBytes(size);
+      Arrays.fill(values, 0, size, (byte) 0);
+      return new BytePixelBuffer(values, size, this);
+    } else if (maxColorVal <= PixelBuffers.SHORT_LIMIT) {
+      short[] values = this.takeShorts(size);
+      Arrays.fill(values, 0, size, (short) 0);
+      return new ShortPixelBuffer(values, size, this);
+    } else {
+      int[] values = this.takeInts(size);
+      Arrays.fill(values, 0, size, 0);
+      return new IntPixelBuffer(values, size, this);
+    }
+  }
+
+  /**
+   * Makes the pixels of an image on the heap come back to this pool once they are released, along
+   * with every copy made of them later. Images off the heap or of other types are left alone.
+   *
+   * @param image image whose pixels should use this pool
+   */
+  void adopt(ImageModel image) {
+    if (image instanceof AbstractImage) {
+      ((AbstractImage) image).usePool(this);
+    } else if (image instanceof TiledImage) {
+      ((TiledImage) image).usePool(this);
+    }
+  }
+
+  /**
+   * Makes a heap buffer come back to this pool once it is released. Other buffers are left alone.
+   *
+   * @param buffer buffer that should use this pool
+   */
+  void adopt(PixelBuffer buffer) {
+    if (buffer instanceof BytePixelBuffer) {
+      ((BytePixelBuffer) buffer).usePool(this);
+    } else if (buffer instanceof ShortPixelBuffer) {
+      ((ShortPixelBuffer) buffer).usePool(this);
+    } else if (buffer instanceof IntPixelBuffer) {
+      ((IntPixelBuffer) buffer).usePool(this);
+    }
+  }
+
+  /**
+   * Takes an 8-bit array that holds at least the given amount of values. Its values are not
+   * cleared.
+   *
+   * @param size least number of values in the array
+   * @return an array from the pool, or a new one if the bucket is empty
+   */
+  synchronized byte[] takeBytes(int size) {
+    int length = PixelBufferPool.bucketAbove(size);
+    byte[] out = PixelBufferPool.poll(this.bytes, length, size);
+    if (out == null) {
+      //arrays given back at their exact size sit in the bucket below
+      out = PixelBufferPool.poll(this.bytes, PixelBufferPool.bucketBelow(size), size);
+    }
+    if (out == null) {
+      this.misses = this.misses + 1;
+      return new byte[length];
+    }
+    this.hits = this.hits + 1;
+    this.pooledBytes = this.pooledBytes - out.length;
+    return out;
+  }
+
+  /**
+   * Takes a 16-bit array that holds at least the given amount of values. Its values are not
+   * cleared.
+   *
+   * @param size least number of values in the array
+   * @return an array from the pool, or a new one if the bucket is empty
+   */
+  synchronized short[] takeShorts(int size) {
+    int length = PixelBufferPool.bucketAbove(size);
+    short[] out = PixelBufferPool.poll(this.shorts, length, size);
+    if (out == null) {
+      //arrays given back at their exact size sit in the bucket below
+      out = PixelBufferPool.poll(this.shorts, PixelBufferPool.bucketBelow(size), size);
+    }
+    if (out == null) {
+      this.misses = this.misses + 1;
+      return new short[length];
+    }
+    this.hits = this.hits + 1;
+    this.pooledBytes = this.pooledBytes - 2L * out.length;
+    return out;
+  }
+
+  /**
+   * Takes an int array that holds at least the given amount of values. Its values are not
+   * cleared.
+   *
+   * @param size least number of values in the array
+   * @return an array from the pool, or a new one if the bucket is empty
+   */
+  synchronized int[] takeInts(int size) {
+    int length = PixelBufferPool.bucketAbove(size);
+    int[] out = PixelBufferPool.poll(this.ints, length, size);
+    if (out == null) {
+      //arrays given back at their exact size sit in the bucket below
+      out = PixelBufferPool.poll(this.ints, PixelBufferPool.bucketBelow(size), size);
+    }
+    if (out == null) {
+      this.misses = this.misses + 1;
+      return new int[length];
+    }
+    this.hits = this.hits + 1;
+    this.pooledBytes = this.pooledBytes - 4L * out.length;
+    return out;
+  }
+
+  /**
+   * Gives back an 8-bit array that is no longer used, unless it would put the pool over capacity.
+   *
+   * @param values array that is no longer used
+   */
+  synchronized void give(byte[] values) {
+    if (values.length >= MIN_POOLED && this.pooledBytes + values.length <= this.capacity) {
+      PixelBufferPool.offer(this.bytes, values, values.length);
+      this.pooledBytes = this.pooledBytes + values.length;
+    }
+  }
+
+  /**
+   * Gives back a 16-bit array that is no longer used, unless it would put the pool over capacity.
+   *
+   * @param values array that is no longer used
+   */
+  synchronized void give(short[] values) {
+    if (values.length >= MIN_POOLED && this.pooledBytes + 2L * values.length <= this.capacity) {
+      PixelBufferPool.offer(this.shorts, values, values.length);
+      this.pooledBytes = this.pooledBytes + 2L * values.length;
+    }
+  }
+
+  /**
+   * Gives back an int array that is no longer used, unless it would put the pool over capacity.
+   *
+   * @param values array that is no longer used
+   */
+  synchronized void give(int[] values) {
+    if (values.length >= MIN_POOLED && this.pooledBytes + 4L * values.length <= this.capacity) {
+      PixelBufferPool.offer(this.ints, values, values.length);
+      this.pooledBytes = this.pooledBytes + 4L * values.length;
+    }
+  }
+
+  /**
+   * Takes the most recently given back array out of the bucket of the given length, if it holds
+   * at least the given amount of values.
+   *
+   * @param buckets free arrays by bucket length
+   * @param length  length of the bucket
+   * @param size    least number of values in the array
+   * @param <T>     type of the arrays
+   * @return an array long enough for the size, or null if the bucket has none at hand
+   */
+  private static <T> T poll(Map<Integer, ArrayDeque<T>> buckets, int length, int size) {
+    ArrayDeque<T> bucket = buckets.get(length);
+    if (bucket == null || bucket.isEmpty() || Array.getLength(bucket.peekLast()) < size) {
+      return null;
+    }
+    return bucket.pollLast();
+  }
+
+  /**
+   * Puts an array into the largest bucket that it is long enough for.
+   *
+   * @param buckets free arrays by bucket length
+   * @param values  array to keep
+   * @param length  length of the array
+   * @param <T>     type of the arrays
+   */
+  private static <T> void offer(Map<Integer, ArrayDeque<T>> buckets, T values, int length) {
+    buckets.computeIfAbsent(PixelBufferPool.bucketBelow(length), k -> new ArrayDeque<T>())
+        .addLast(values);
+  }
+
+  /**
+   * Gets the length of the smallest bucket that holds the given amount of values.
+   *
+   * @param size number of values needed
+   * @return length of arrays made for that bucket
+   */
+  static int bucketAbove(int size) {
+    if (size <= MIN_POOLED) {
+      return MIN_POOLED;
+    }
+    int step = Integer.highestOneBit(size - 1) >> STEP_SHIFT;
+    //rounding up to the bucket can not go past the largest array
+    long length = ((long) size + step - 1) / step * step;
+    return (int) Math.min(length, Integer.MAX_VALUE - 8);
+  }
+
+  /**
+   * Gets the length of the largest bucket that an array of the given length can serve.
+   *
+   * @param length length of the array
+   * @return length of the bucket to keep the array in
+   */
+  static int bucketBelow(int length) {
+    if (length <= MIN_POOLED) {
+      return MIN_POOLED;
+    }
+    int step = Integer.highestOneBit(length) >> STEP_SHIFT;
+    return length / step * step;
+  }
+}
@@ -0,0 +1,61 @@
+package model;
+
+/**
+ * Creates the pixel buffers used by images. Picks the smallest type of storage that can hold
+ * every value from 0 to the maximum color value of an image, on the heap, off the heap, or
+ * mapped from a scratch file.
+ */
+final class PixelBuffers {
+  //largest maximum color value that fits in an 8-bit buffer
+  static final int BYTE_LIMIT = 0xFF;
+  //largest maximum color value that fits in a 16-bit buffer
+  static final int SHORT_LIMIT = 0xFFFF;
+
+  private PixelBuffers() {
+    //only has static methods
+  }
+
+  /**
+   * Makes a buffer of the given size, with all values set to 0, that can hold every value from
+   * 0 to the given maximum, inclusive.
+   *
+   * @param size        number of values in the buffer
+   * @param maxColorVal maximum value that will be stored in the buffer
+   * @return an 8-bit, 16-bit, or int buffer depending on the maximum value
+   */
+  static PixelBuffer allocate(int size, int maxColorVal) {
+    if (maxColorVal <= BYTE_LIMIT) {
+      return new BytePixelBuffer(size);
+    } else if (maxColorVal <= SHORT_LIMIT) {
+      return new ShortPixelBuffer(size);
+    } else {
+      return new IntPixelBuffer(size);
+    }
+  }
+
+  /**
+   * Makes a buffer of the given size, with all values set to 0, that can hold every value from
+   * 0 to the given maximum, inclusive, and keeps its values in the given storage.
+   *
+   * @param size        number of values in the buffer
+   * @param maxColorVal maximum value that will be stored in the buffer
+   * @param storage     where the values of the buffer are kept
+   * @return a buffer in the given storage
+   * @throws IllegalArgumentException storage is null
+   * @throws IllegalArgumentException buffer is too large for the given storage
+   */
+  static PixelBuffer allocate(int size, int maxColorVal, PixelStorage storage) {
+    if (storage == null) {
+      throw new IllegalArgumentException("Storage can not be null");
+    }
+    switch (storage) {
+      case OFF_HEAP:
+        return new DirectPixelBuffer(size, maxColorVal);
+      case MAPPED:
+        return new MappedPixelBuffer(size, maxColorVal);
+      case HEAP:
+      default:
+        return PixelBuffers.allocate(size, maxColorVal);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package model;
+
+/**
+ * The innermost loops of the operations on pixels, kept behind one interface so that they can be
+ * run by a plain engine or by one that does many pixels per instruction. Every engine must give
+ * exactly the same results, so each value has to be worked out with the same operations in the
+ * same order as the plain engine does.
+ */
+interface PixelEngine {
+  /**
+   * Gets the name of this engine, for telling which one is in use.
+   *
+   * @return the name of the engine
+   */
+  String getName();
+
+  /**
+   * Does a linear transformation of the RGB components of a row of pixels in place. Each new value
+   * is the sum of the three products in order, cast to an integer and clamped between 0 and max.
+   *
+   * @param row    the components of the row, with the components of a pixel next to each other
+   * @param pixels the number of pixels in the row
+   * @param comps  the number of components in each pixel, at least 3
+   * @param matrix a 3 x 3 matrix to use to transform the RGB components
+   * @param max    highest value that a component can have
+   */
+  void transformRow(int[] row, int pixels, int comps, double[][] matrix, int max);
+
+  /**
+   * Adds a change to the RGB components of a row of pixels in place, clamping the new values
+   * between 0 and max.
+   *
+   * @param row    the components of the row, with the components of a pixel next to each other
+   * @param pixels the number of pixels in the row
+   * @param comps  the number of components in each pixel, at least 3
+   * @param change the amount to add to each component
+   * @param max    highest value that a component can have
+   */
+  void brightenRow(int[] row, int pixels, int comps, int change, int max);
+
+  /**
+   * Adds a run of values times a weight to another run of values, so that each value of the
+   * destination becomes itself plus the weight times the matching source value.
+   *
+   * @param src        the values to add
+   * @param srcOffset  position of the first value to add
+   * @param weight     the weight to multiply the added values by
+   * @param dest       the values to add to
+   * @param destOffset position of the first value to add to
+   * @param length     the number of values
+   */
+  void addScaled(double[] src, int srcOffset, double weight, double[] dest, int destOffset,
+                 int length);
+}
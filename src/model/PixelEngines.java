@@ -0,0 +1,119 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Picks the engine that runs the innermost loops of the operations on pixels, once for the whole
+ * program. The engine built on the Java Vector API, which does many pixels per instruction, is
+ * only compiled when its optional sources are, and only works when the program is run with the
+ * jdk.incubator.vector module. It is used whenever it can be loaded and gives the same results as
+ * the plain engine on a small sample, and the plain engine is used otherwise. Setting the system
+ * property imageprocessor.engine to scalar always uses the plain engine.
+ */
+public final class PixelEngines {
+  //name of the class of the engine built on the Vector API
+  private static final String VECTOR_ENGINE = "model.VectorPixelEngine";
+  //the engine used by the whole program
+  private static final PixelEngine ENGINE = PixelEngines.load();
+
+  private PixelEngines() {
+    //only has static methods
+  }
+
+  /**
+   * Gets the name of the engine in use, which is vector or scalar.
+   *
+   * @return the name of the engine
+   */
+  public static String getName() {
+    return ENGINE.getName();
+  }
+
+  /**
+   * Adds a change to the RGB components of every pixel of a block in place, clamping the new
+   * values between 0 and the max color value.
+   *
+   * @param block  the block to change
+   * @param change the amount to add to each component
+   */
+  public static void brighten(RawPixels block, int change) {
+    int comps = block.getNumComponents();
+    int[] row = new int[block.getWidth() * comps];
+    for (int height = block.getRow(); height < block.getRow() + block.getHeight();
+         height = height + 1) {
+      int index = block.index(block.getCol(), height);
+      block.getBuffer().get(index, row, 0, row.length);
+      ENGINE.brightenRow(row, block.getWidth(), comps, change, block.getMaxColorValue());
+      block.getBuffer().set(index, row, 0, row.length);
+    }
+  }
+
+  /**
+   * Gets the engine used by the whole program.
+   *
+   * @return the engine
+   */
+  static PixelEngine get() {
+    return ENGINE;
+  }
+
+  /**
+   * Loads the engine built on the Vector API if it can be, checking that it matches the plain
+   * engine, or the plain engine otherwise.
+   *
+   * @return the engine to use
+   */
+  private static PixelEngine load() {
+    PixelEngine scalar = new ScalarPixelEngine();
+    if ("scalar".equals(System.getProperty("imageprocessor.engine"))) {
+      return scalar;
+    }
+    try {
+      PixelEngine vector = (PixelEngine) Class.forName(VECTOR_ENGINE)
+          .getDeclaredConstructor().newInstance();
+      if (PixelEngines.matches(vector, scalar)) {
+        return vector;
+      }
+    } catch (ReflectiveOperationException | LinkageError e) {
+      //the optional sources were not compiled, or the module is missing, so it can not be used
+    }
+    return scalar;
+  }
+
+  /**
+   * Checks that an engine gives the same results as another on a small sample of each operation.
+   *
+   * @param engine   the engine to check
+   * @param expected the engine to compare against
+   * @return true if every result is the same
+   */
+  private static boolean matches(PixelEngine engine, PixelEngine expected) {
+    double[][] sepia = {{0.393, 0.769, 0.189}, {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}};
+    for (int comps = 3; comps <= 4; comps = comps + 1) {
+      int[] row = new int[37 * comps];
+      for (int i = 0; i < row.length; i = i + 1) {
+        row[i] = (i * 97 + 13) % 256;
+      }
+      int[] first = row.clone();
+      int[] second = row.clone();
+      engine.transformRow(first, 37, comps, sepia, 255);
+      expected.transformRow(second, 37, comps, sepia, 255);
+      engine.brightenRow(first, 37, comps, -70, 255);
+      expected.brightenRow(second, 37, comps, -70, 255);
+      if (!Arrays.equals(first, second)) {
+        return false;
+      }
+    }
+    double[] src = new double[41];
+    double[] first = new double[41];
+    double[] second = new double[41];
+    for (int i = 0; i < src.length; i = i + 1) {
+      src[i] = (i * 31 + 7) % 256;
+      first[i] = i / 3.0;
+      second[i] = i / 3.0;
+    }
+    engine.addScaled(src, 2, 1 / 3.0, first, 1, 39);
+    expected.addScaled(src, 2, 1 / 3.0, second, 1, 39);
+    return Arrays.equals(first, second);
+  }
+}
@@ -0,0 +1,58 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps count of how many images point at the same pixel buffer, so that copies of an image can
+ * share its pixels until one of them is written to. The image that writes first takes its own
+ * copy of the buffer, and the last image left on a buffer keeps it without copying.
+ */
+final class PixelShare {
+  //number of images that point at the shared buffer
+  private final AtomicInteger owners;
+
+  /**
+   * Constructs a share with a single owner, the image whose buffer is about to be shared.
+   */
+  PixelShare() {
+    this.owners = new AtomicInteger(1);
+  }
+
+  /**
+   * Adds another image that points at the shared buffer.
+   */
+  void join() {
+    this.owners.incrementAndGet();
+  }
+
+  /**
+   * Takes an image off the shared buffer so that it can be written to. The buffer is copied
+   * before leaving, so the copy never sees writes from the images that stay on it, unless every
+   * other image already left, in which case the leaving image keeps the buffer without a copy.
+   *
+   * @param shared the buffer that the image has been sharing
+   * @return a buffer that only belongs to the leaving image
+   */
+  PixelBuffer leave(PixelBuffer shared) {
+    if (this.owners.compareAndSet(1, 0)) {
+      //no other image points at the buffer anymore
+      return shared;
+    }
+    PixelBuffer own = shared.copy();
+    if (this.owners.decrementAndGet() == 0) {
+      //every other image already left, so the shared buffer is ours alone
+      own.release();
+      return shared;
+    }
+    return own;
+  }
+
+  /**
+   * Takes an image off the shared buffer because it is being released.
+   *
+   * @return true if this was the last image on the buffer, meaning the buffer can be released
+   */
+  boolean leaveForRelease() {
+    return this.owners.decrementAndGet() == 0;
+  }
+}
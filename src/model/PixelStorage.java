@@ -0,0 +1,16 @@
+package model;
+
+/**
+ * Where the pixels of an image are kept in memory. Images on the heap are managed by the garbage
+ * collector like any other object, while images off the heap keep their pixels in native memory
+ * that is given back when the image is released. Mapped images keep their pixels in a scratch
+ * file that the operating system pages in and out of memory as needed.
+ */
+public enum PixelStorage {
+  //pixels are kept in arrays on the Java heap
+  HEAP,
+  //pixels are kept in native memory outside of the Java heap
+  OFF_HEAP,
+  //pixels are memory-mapped from a scratch file
+  MAPPED
+}
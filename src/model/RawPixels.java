@@ -0,0 +1,205 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unchecked view of a rectangular block of an image's pixels, straight over the buffer that holds
+ * them. A block starts at some column and row of the image and is laid out row by row in its
+ * buffer, with the components of a pixel next to each other: the component (x, y, c) of the image
+ * is at offset + (y - row of block) * stride + (x - column of block) * numComponents + c.
+ *
+ * <p>Reads and writes do no bounds checks and no clamping, so values written must already be
+ * within 0 and the max value. This is only meant for the engines inside of this program that
+ * already check their own positions and values in their innermost loops; everything else should
+ * go through the safe methods of ImageModel.
+ */
+public final class RawPixels {
+  //the buffer that holds the pixels of the block
+  private final PixelBuffer buffer;
+  //column of the image where the block starts
+  private final int col;
+  //row of the image where the block starts
+  private final int row;
+  //width of the block in pixels
+  private final int width;
+  //height of the block in pixels
+  private final int height;
+  //the amount of components in each pixel
+  private final int numComponents;
+  //the maximum number value for an individual component
+  private final int maxColorVal;
+  //position in the buffer of the first component of the block
+  private final int offset;
+  //distance in the buffer between the starts of two rows of the block
+  private final int stride;
+
+  /**
+   * Constructs a view of a block of pixels.
+   *
+   * @param buffer        the buffer that holds the pixels
+   * @param col           column of the image where the block starts
+   * @param row           row of the image where the block starts
+   * @param width         width of the block in pixels
+   * @param height        height of the block in pixels
+   * @param numComponents number of components in each pixel
+   * @param maxColorVal   maximum value for a component
+   * @param offset        position in the buffer of the first component of the block
+   * @param stride        distance in the buffer between the starts of two rows
+   */
+  RawPixels(PixelBuffer buffer, int col, int row, int width, int height, int numComponents,
+            int maxColorVal, int offset, int stride) {
+    this.buffer = buffer;
+    this.col = col;
+    this.row = row;
+    this.width = width;
+    this.height = height;
+    this.numComponents = numComponents;
+    this.maxColorVal = maxColorVal;
+    this.offset = offset;
+    this.stride = stride;
+  }
+
+  /**
+   * Gets the buffer that holds the pixels of the block.
+   *
+   * @return the buffer behind the view
+   */
+  public PixelBuffer getBuffer() {
+    return this.buffer;
+  }
+
+  /**
+   * Gets the column of the image where the block starts.
+   *
+   * @return column of the left edge of the block
+   */
+  public int getCol() {
+    return this.col;
+  }
+
+  /**
+   * Gets the row of the image where the block starts.
+   *
+   * @return row of the top edge of the block
+   */
+  public int getRow() {
+    return this.row;
+  }
+
+  /**
+   * Gets the width of the block in pixels.
+   *
+   * @return width of the block
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the height of the block in pixels.
+   *
+   * @return height of the block
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the number of components in each pixel.
+   *
+   * @return components per pixel
+   */
+  public int getNumComponents() {
+    return this.numComponents;
+  }
+
+  /**
+   * Gets the max value that a component may have.
+   *
+   * @return maximum value for a component
+   */
+  public int getMaxColorValue() {
+    return this.maxColorVal;
+  }
+
+  /**
+   * Gets the position in the buffer of the first component of the block.
+   *
+   * @return offset of the block in its buffer
+   */
+  public int getOffset() {
+    return this.offset;
+  }
+
+  /**
+   * Gets the distance in the buffer between the starts of two rows of the block.
+   *
+   * @return stride of the block in its buffer
+   */
+  public int getStride() {
+    return this.stride;
+  }
+
+  /**
+   * Splits blocks of an image into at least the given number of parts, so that the parts can be
+   * changed at the same time by different threads. Blocks are split into bands of whole rows that
+   * are views over the same buffer, and are left as they are if there are already enough of them.
+   *
+   * @param blocks the blocks to split
+   * @param parts  the number of parts wanted
+   * @return the parts, which together cover the same pixels as the blocks
+   */
+  public static List<RawPixels> split(List<RawPixels> blocks, int parts) {
+    if (blocks.isEmpty() || blocks.size() >= parts) {
+      return blocks;
+    }
+    //the number of bands to split each block into, rounded up
+    int bands = (parts + blocks.size() - 1) / blocks.size();
+    List<RawPixels> out = new ArrayList<RawPixels>();
+    for (RawPixels block : blocks) {
+      int count = Math.min(bands, block.height);
+      for (int band = 0; band < count; band = band + 1) {
+        int top = (int) ((long) block.height * band / count);
+        int bottom = (int) ((long) block.height * (band + 1) / count);
+        out.add(new RawPixels(block.buffer, block.col, block.row + top, block.width,
+            bottom - top, block.numComponents, block.maxColorVal,
+            block.offset + top * block.stride, block.stride));
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Gets the position in the buffer of the first component of a pixel. The pixel is given in
+   * columns and rows of the whole image and must be inside of this block, which is not checked.
+   *
+   * @param width  column of the image in which the pixel is located
+   * @param height row of the image in which the pixel is located
+   * @return position of the pixel's first component in the buffer
+   */
+  public int index(int width, int height) {
+    return this.offset + (height - this.row) * this.stride
+        + (width - this.col) * this.numComponents;
+  }
+
+  /**
+   * Gets the value at a position of the buffer, without any checks.
+   *
+   * @param index position in the buffer
+   * @return the value at that position
+   */
+  public int get(int index) {
+    return this.buffer.get(index);
+  }
+
+  /**
+   * Stores a value at a position of the buffer, without any checks or clamping.
+   *
+   * @param index position in the buffer
+   * @param val   value between 0 and the max value
+   */
+  public void set(int index, int val) {
+    this.buffer.set(index, val);
+  }
+}
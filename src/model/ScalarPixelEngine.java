@@ -0,0 +1,78 @@
+package model;
+
+/**
+ * The plain engine, which works out one value at a time. Always available, and the one that every
+ * other engine has to match.
+ */
+final class ScalarPixelEngine implements PixelEngine {
+
+  /**
+   * Gets the name of this engine.
+   *
+   * @return the name of the engine
+   */
+  @Override
+  public String getName() {
+    return "scalar";
+  }
+
+  /**
+   * Does a linear transformation of the RGB components of a row of pixels in place.
+   *
+   * @param row    the components of the row, with the components of a pixel next to each other
+   * @param pixels the number of pixels in the row
+   * @param comps  the number of components in each pixel, at least 3
+   * @param matrix a 3 x 3 matrix to use to transform the RGB components
+   * @param max    highest value that a component can have
+   */
+  @Override
+  public void transformRow(int[] row, int pixels, int comps, double[][] matrix, int max) {
+    for (int pixel = 0; pixel < pixels * comps; pixel = pixel + comps) {
+      //temporarily stores the base values for each component
+      int rBase = row[pixel];
+      int gBase = row[pixel + 1];
+      int bBase = row[pixel + 2];
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        int val = (int) (matrix[comp][0] * rBase + matrix[comp][1] * gBase
+            + matrix[comp][2] * bBase);
+        row[pixel + comp] = Math.max(0, Math.min(max, val));
+      }
+    }
+  }
+
+  /**
+   * Adds a change to the RGB components of a row of pixels in place, clamping the new values.
+   *
+   * @param row    the components of the row, with the components of a pixel next to each other
+   * @param pixels the number of pixels in the row
+   * @param comps  the number of components in each pixel, at least 3
+   * @param change the amount to add to each component
+   * @param max    highest value that a component can have
+   */
+  @Override
+  public void brightenRow(int[] row, int pixels, int comps, int change, int max) {
+    for (int pixel = 0; pixel < pixels * comps; pixel = pixel + comps) {
+      for (int comp = 0; comp < 3; comp = comp + 1) {
+        row[pixel + comp] = Math.max(0, Math.min(max, row[pixel + comp] + change));
+      }
+    }
+  }
+
+  /**
+   * Adds a run of values times a weight to another run of values.
+   *
+   * @param src        the values to add
+   * @param srcOffset  position of the first value to add
+   * @param weight     the weight to multiply the added values by
+   * @param dest       the values to add to
+   * @param destOffset position of the first value to add to
+   * @param length     the number of values
+   */
+  @Override
+  public void addScaled(double[] src, int srcOffset, double weight, double[] dest,
+                        int destOffset, int length) {
+    for (int i = 0; i < length; i = i + 1) {
+      dest[destOffset + i] = dest[destOffset + i] + weight * src[srcOffset + i];
+    }
+  }
+}
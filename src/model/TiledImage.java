@@ -0,0 +1,681 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of the Image interface that splits the image into square tiles. A tile only gets
+ * storage the first time a value that differs from the fill of the image is written to it, and
+ * every untouched tile reads as the fill, so large canvases and partial edits only take memory for
+ * the parts of the image that were actually changed. Each tile packs its pixels row by row with
+ * the components of a pixel next to each other, and uses 8-bit, 16-bit, or int storage depending
+ * on the maximum color value, like AbstractImage does. Copies share the tiles of the image they
+ * came from, and a tile is only copied once one of the images sharing it is written to there.
+ */
+public class TiledImage implements ImageModel {
+  //number of pixels along each side of a tile, as a power of two
+  private static final int TILE_SHIFT = 8;
+  //number of pixels along each side of a tile
+  public static final int TILE_SIZE = 1 << TILE_SHIFT;
+  //mask for the position of a pixel inside of its tile
+  private static final int TILE_MASK = TILE_SIZE - 1;
+
+  //width of the image in pixels
+  private final int width;
+  //height of the image in pixels
+  private final int height;
+  //the amount of components in an image
+  private final int numComponents;
+  //the maximum number value for an individual component in an image
+  private final int maxColorVal;
+  //value of each component for pixels in tiles that have not been written to
+  private final int[] fill;
+  //where the tiles of the image are kept in memory
+  private final PixelStorage storage;
+  //number of tiles in each row of tiles
+  private final int tilesAcross;
+  //number of tiles in each column of tiles
+  private final int tilesDown;
+  //tiles in row-major order, with null for tiles that have not been written to yet
+  private final PixelBuffer[] tiles;
+  //count of images sharing each tile, or null where only this image uses the tile
+  private final PixelShare[] shares;
+  //pool that new tiles on the heap are taken from, or null if there is none
+  private PixelBufferPool pool;
+  //whether the image was released, so that releasing it again does nothing
+  private boolean released;
+
+  /**
+   * Constructs a blank image where every component of every pixel is 0, keeping its tiles on
+   * the heap.
+   *
+   * @param width         width of the image in pixels
+   * @param height        height of the image in pixels
+   * @param numComponents number of components per pixel in the image
+   * @param maxColorVal   maximum value for a color, which would be it and 0
+   * @throws IllegalArgumentException dimensions, components, or max value are not positive
+   */
+  public TiledImage(int width, int height, int numComponents, int maxColorVal) {
+    this(width, height, numComponents, maxColorVal, new int[numComponents], PixelStorage.HEAP);
+  }
+
+  /**
+   * Constructs a blank image where every pixel has the given fill, keeping its tiles in the given
+   * storage.
+   *
+   * @param width         width of the image in pixels
+   * @param height        height of the image in pixels
+   * @param numComponents number of components per pixel in the image
+   * @param maxColorVal   maximum value for a color, which would be it and 0
+   * @param fill          value of each component for every pixel of the blank image
+   * @param storage       where the tiles are kept in memory, either on or off the heap
+   * @throws IllegalArgumentException dimensions, components, or max value are not positive
+   * @throws IllegalArgumentException fill does not have a value in range for each component
+   * @throws IllegalArgumentException storage is null or not supported for tiles
+   */
+  public TiledImage(int width, int height, int numComponents, int maxColorVal, int[] fill,
+                    PixelStorage storage) {
+    if (width <= 0 || height <= 0 || numComponents <= 0 || maxColorVal <= 0) {
+      throw new IllegalArgumentException("Image must have a positive size and max value");
+    }
+    if (fill == null || fill.length != numComponents) {
+      throw new IllegalArgumentException("Must have correct component amount");
+    }
+    for (int val : fill) {
+      if (val < 0 || val > maxColorVal) {
+        throw new IllegalArgumentException(
+            "Component values must be between 0 and the max value, inclusive");
+      }
+    }
+    //a scratch file per tile would be far too many files, so tiles are never mapped
+    if (storage != PixelStorage.HEAP && storage != PixelStorage.OFF_HEAP) {
+      throw new IllegalArgumentException("Image type does not support that storage");
+    }
+    this.width = width;
+    this.height = height;
+    this.numComponents = numComponents;
+    this.maxColorVal = maxColorVal;
+    this.fill = fill.clone();
+    this.storage = storage;
+    this.tilesAcross = (width + TILE_MASK) >> TILE_SHIFT;
+    this.tilesDown = (height + TILE_MASK) >> TILE_SHIFT;
+    this.tiles = new PixelBuffer[this.tilesAcross * this.tilesDown];
+    this.shares = new PixelShare[this.tiles.length];
+  }
+
+  /**
+   * Constructs a tiled copy of the given image, keeping its tiles on the heap. Tiles where every
+   * pixel is black are not given any storage.
+   *
+   * @param source image to copy
+   * @throws IllegalArgumentException source is null
+   */
+  public TiledImage(ImageModel source) {
+    this(TiledImage.checkSource(source).getWidth(), source.getHeight(),
+        source.getNumComponents(), source.getMaxColorValue());
+    int[] row = new int[this.width * this.numComponents];
+    for (int h = 0; h < this.height; h = h + 1) {
+      source.getRegion(0, h, this.width, 1, row, 0);
+      this.setRegion(0, h, this.width, 1, row, 0);
+    }
+  }
+
+  /**
+   * Checks that an image to copy from exists.
+   *
+   * @param source image to copy
+   * @return the same image
+   * @throws IllegalArgumentException source is null
+   */
+  private static ImageModel checkSource(ImageModel source) {
+    if (source == null) {
+      throw new IllegalArgumentException("Must not provide a null value for an image");
+    }
+    return source;
+  }
+
+  /**
+   * Gets the width of the image in pixels.
+   *
+   * @return width in pixels of image as an int
+   */
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the height of the image in pixels.
+   *
+   * @return height in pixels of image as an int
+   */
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the number of components in an image.
+   *
+   * @return the number of components for the image type
+   */
+  @Override
+  public int getNumComponents() {
+    return this.numComponents;
+  }
+
+  /**
+   * Returns the max integer value for a components for this image.
+   *
+   * @return integer maximum value of any color component
+   */
+  @Override
+  public int getMaxColorValue() {
+    return this.maxColorVal;
+  }
+
+  /**
+   * Gets an exact copy of an image, keeping its tiles in the same storage as this image. The copy
+   * shares the written tiles of this image until either image writes to them.
+   *
+   * @return copy of the image as an image
+   */
+  @Override
+  public ImageModel getImageCopy() {
+    return this.getImageCopy(this.storage);
+  }
+
+  /**
+   * Gets an exact copy of an image whose tiles are kept in the given storage. Only the tiles that
+   * have been written to are copied, and in the same storage they are shared until either image
+   * writes to them.
+   *
+   * @param storage where the tiles of the copy are kept, either on or off the heap
+   * @return copy of the image as an image
+   * @throws IllegalArgumentException storage is null or not supported for tiles
+   */
+  @Override
+  public ImageModel getImageCopy(PixelStorage storage) {
+    TiledImage out = new TiledImage(this.width, this.height, this.numComponents,
+        this.maxColorVal, this.fill, storage);
+    for (int t = 0; t < this.tiles.length; t = t + 1) {
+      if (this.tiles[t] != null) {
+        if (storage == this.storage) {
+          this.shareTile(t, out);
+        } else {
+          out.tiles[t] = PixelBuffers.allocate(this.tiles[t].size(), this.maxColorVal, storage);
+          for (int i = 0; i < this.tiles[t].size(); i = i + 1) {
+            out.tiles[t].set(i, this.tiles[t].get(i));
+          }
+        }
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Lets another image share one of the tiles of this image.
+   *
+   * @param t     index of the tile
+   * @param other image that shares the tile at the same index
+   */
+  private synchronized void shareTile(int t, TiledImage other) {
+    if (this.shares[t] == null) {
+      this.shares[t] = new PixelShare();
+    }
+    this.shares[t].join();
+    other.tiles[t] = this.tiles[t];
+    other.shares[t] = this.shares[t];
+  }
+
+  /**
+   * Gets where the tiles of this image are kept in memory.
+   *
+   * @return the storage used for the tiles
+   */
+  @Override
+  public PixelStorage getStorage() {
+    return this.storage;
+  }
+
+  /**
+   * Gets the number of bytes of memory that hold the tiles of this image, counting tiles that are
+   * still shared with copies of it. Untouched tiles take no memory.
+   *
+   * @return bytes used by the tiles of the image
+   */
+  @Override
+  public long getFootprint() {
+    long total = 0;
+    for (PixelBuffer tile : this.tiles) {
+      if (tile != null) {
+        total = total + tile.getByteSize();
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Gets the number of bytes of memory that hold the tiles of this image, leaving out tiles that
+   * were already counted because a copy still shares them.
+   *
+   * @param counted buffers that were already counted, compared by identity
+   * @return bytes used by the tiles of the image that were not counted yet
+   */
+  @Override
+  public long getFootprint(Set<PixelBuffer> counted) {
+    long total = 0;
+    for (PixelBuffer tile : this.tiles) {
+      if (tile != null && counted.add(tile)) {
+        total = total + tile.getByteSize();
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Gives back any memory that the tiles of the image hold outside of the Java heap. The image
+   * must not be used after it has been released. Tiles on the heap go back to their pool, if any.
+   * Releasing an image again does nothing.
+   */
+  @Override
+  public void release() {
+    //two threads releasing the same image must not both give up its tiles
+    synchronized (this) {
+      if (this.released) {
+        return;
+      }
+      this.released = true;
+    }
+    for (int t = 0; t < this.tiles.length; t = t + 1) {
+      //tiles still shared with a copy stay alive for that copy
+      if (this.tiles[t] != null && (this.shares[t] == null || this.shares[t].leaveForRelease())) {
+        this.tiles[t].release();
+      }
+      this.shares[t] = null;
+    }
+  }
+
+  /**
+   * Makes the tiles of this image on the heap come back to the given pool once they are released,
+   * and takes new tiles from it.
+   *
+   * @param pool pool to use
+   */
+  void usePool(PixelBufferPool pool) {
+    this.pool = pool;
+    for (PixelBuffer tile : this.tiles) {
+      if (tile != null) {
+        pool.adopt(tile);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of tiles in each row of tiles.
+   *
+   * @return number of tiles across the image
+   */
+  public int getTilesAcross() {
+    return this.tilesAcross;
+  }
+
+  /**
+   * Gets the number of tiles in each column of tiles.
+   *
+   * @return number of tiles down the image
+   */
+  public int getTilesDown() {
+    return this.tilesDown;
+  }
+
+  /**
+   * Tells if the given tile has been given its own storage by being written to.
+   *
+   * @param tileCol column of the tile, counted in tiles
+   * @param tileRow row of the tile, counted in tiles
+   * @return true if the tile has its own storage, false if it still reads as the fill
+   * @throws IllegalArgumentException tile does not exist
+   */
+  public boolean isTileWritten(int tileCol, int tileRow) {
+    if (tileCol < 0 || tileCol >= this.tilesAcross || tileRow < 0 || tileRow >= this.tilesDown) {
+      throw new IllegalArgumentException("Given tile does not exist");
+    }
+    return this.tiles[tileRow * this.tilesAcross + tileCol] != null;
+  }
+
+  /**
+   * Gets the number of tiles that have been given their own storage.
+   *
+   * @return number of written tiles
+   */
+  public int getWrittenTileCount() {
+    int count = 0;
+    for (PixelBuffer tile : this.tiles) {
+      if (tile != null) {
+        count = count + 1;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Gets the value of the specified component for a specified pixel.
+   *
+   * @param width  column in which the pixel is located
+   * @param height row in which the pixel is located
+   * @param comp   component that is wanted
+   * @return the value of the specified component for a pixel as an integer
+   * @throws IllegalArgumentException specified location/component does not exist
+   */
+  @Override
+  public int getComponentValue(int width, int height, int comp) {
+    this.checkComponent(width, height, comp);
+    PixelBuffer tile = this.tiles[this.tileIndex(width, height)];
+    if (tile == null) {
+      return this.fill[comp];
+    }
+    return tile.get(this.indexInTile(width, height, comp));
+  }
+
+  /**
+   * Sets the value of the specified component for a specified pixel. Clamps the value to
+   * 0 or to the max if the given exceeds either bound. Gives the tile its own storage if this is
+   * the first value written to it that differs from the fill.
+   *
+   * @param width  column in which the pixel is located
+   * @param height row in which the pixel is located
+   * @param comp   component that is to be modified
+   * @param val    new value for the component
+   * @throws IllegalArgumentException specified location/component does not exist
+   */
+  @Override
+  public void setComponentValue(int width, int height, int comp, int val) {
+    this.checkComponent(width, height, comp);
+    //clamps up or down to fit the image limits
+    int clamped = Math.max(0, Math.min(this.maxColorVal, val));
+    int t = this.tileIndex(width, height);
+    //writing the fill to an untouched tile changes nothing
+    if (this.tiles[t] == null && clamped == this.fill[comp]) {
+      return;
+    }
+    this.writableTile(t).set(this.indexInTile(width, height, comp), clamped);
+  }
+
+  /**
+   * Reads the components of every pixel in a rectangular region into the given array. Values are
+   * written row by row, with the components of each pixel next to each other, so the component
+   * (x, y, c) of the region ends up at offset + ((y * regionWidth) + x) * numComponents + c.
+   *
+   * @param width        column of the left edge of the region
+   * @param height       row of the top edge of the region
+   * @param regionWidth  width of the region in pixels
+   * @param regionHeight height of the region in pixels
+   * @param dest         array to read the values into
+   * @param offset       position in the array for the first value
+   * @throws IllegalArgumentException region is not inside the image or does not fit the array
+   */
+  @Override
+  public void getRegion(int width, int height, int regionWidth, int regionHeight, int[] dest,
+                        int offset) {
+    this.checkRegion(width, height, regionWidth, regionHeight, dest, offset);
+    int pos = offset;
+    for (int y = height; y < height + regionHeight; y = y + 1) {
+      int x = width;
+      //reads the row in runs that each stay inside of one tile
+      while (x < width + regionWidth) {
+        int run = Math.min(width + regionWidth, (x | TILE_MASK) + 1) - x;
+        PixelBuffer tile = this.tiles[this.tileIndex(x, y)];
+        if (tile == null) {
+          for (int p = 0; p < run * this.numComponents; p = p + 1) {
+            dest[pos + p] = this.fill[p % this.numComponents];
+          }
+        } else {
+          tile.get(this.indexInTile(x, y, 0), dest, pos, run * this.numComponents);
+        }
+        pos = pos + run * this.numComponents;
+        x = x + run;
+      }
+    }
+  }
+
+  /**
+   * Sets the components of every pixel in a rectangular region from the given array, which is
+   * laid out the same way as for getRegion. Clamps each value to 0 or to the max if it exceeds
+   * either bound. Untouched tiles only get storage if a value in them differs from the fill.
+   *
+   * @param width        column of the left edge of the region
+   * @param height       row of the top edge of the region
+   * @param regionWidth  width of the region in pixels
+   * @param regionHeight height of the region in pixels
+   * @param src          array holding the new values
+   * @param offset       position in the array of the first value
+   * @throws IllegalArgumentException region is not inside the image or does not fit the array
+   */
+  @Override
+  public void setRegion(int width, int height, int regionWidth, int regionHeight, int[] src,
+                        int offset) {
+    this.checkRegion(width, height, regionWidth, regionHeight, src, offset);
+    int pos = offset;
+    for (int y = height; y < height + regionHeight; y = y + 1) {
+      int x = width;
+      //writes the row in runs that each stay inside of one tile
+      while (x < width + regionWidth) {
+        int run = Math.min(width + regionWidth, (x | TILE_MASK) + 1) - x;
+        int length = run * this.numComponents;
+        int t = this.tileIndex(x, y);
+        if (this.tiles[t] != null || !this.isFill(src, pos, length)) {
+          PixelBuffer tile = this.writableTile(t);
+          int index = this.indexInTile(x, y, 0);
+          for (int p = 0; p < length; p = p + 1) {
+            //clamps up or down to fit the image limits
+            tile.set(index + p, Math.max(0, Math.min(this.maxColorVal, src[pos + p])));
+          }
+        }
+        pos = pos + length;
+        x = x + run;
+      }
+    }
+  }
+
+  /**
+   * Tells if a run of pixels in an array all match the fill once clamped.
+   *
+   * @param values array holding the pixels
+   * @param start  position of the first value, at the start of a pixel
+   * @param length number of values to check
+   * @return true if writing the pixels to an untouched tile would change nothing
+   */
+  private boolean isFill(int[] values, int start, int length) {
+    for (int p = 0; p < length; p = p + 1) {
+      int clamped = Math.max(0, Math.min(this.maxColorVal, values[start + p]));
+      if (clamped != this.fill[p % this.numComponents]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Makes sure that no tile of this image is shared with any copies, so that its tiles can be
+   * written to by several threads at once. Tiles that have not been written to are left without
+   * storage.
+   */
+  void unshare() {
+    for (int t = 0; t < this.tiles.length; t = t + 1) {
+      if (this.shares[t] != null) {
+        this.writableTile(t);
+      }
+    }
+  }
+
+  /**
+   * Gets a tile that only belongs to this image, so that it can be written to. Untouched tiles are
+   * given storage, and tiles shared with another image are copied first.
+   *
+   * @param t index of the tile
+   * @return the storage of the tile
+   */
+  private PixelBuffer writableTile(int t) {
+    if (this.tiles[t] == null) {
+      this.tiles[t] = this.createTile();
+    } else if (this.shares[t] != null) {
+      //takes its own copy of a tile shared with another image before changing it
+      this.tiles[t] = this.shares[t].leave(this.tiles[t]);
+      this.shares[t] = null;
+    }
+    return this.tiles[t];
+  }
+
+  /**
+   * Checks that a region is inside of this image and that an array has room for its values.
+   *
+   * @param width        column of the left edge of the region
+   * @param height       row of the top edge of the region
+   * @param regionWidth  width of the region in pixels
+   * @param regionHeight height of the region in pixels
+   * @param values       array for the values of the region
+   * @param offset       position in the array of the first value
+   * @throws IllegalArgumentException region is not inside the image or does not fit the array
+   */
+  private void checkRegion(int width, int height, int regionWidth, int regionHeight,
+                           int[] values, int offset) {
+    if (width < 0 || height < 0 || regionWidth < 0 || regionHeight < 0
+        || width + regionWidth > this.width || height + regionHeight > this.height) {
+      throw new IllegalArgumentException("Given region is not inside of the image");
+    }
+    if (values == null || offset < 0
+        || offset + (long) regionWidth * regionHeight * this.numComponents > values.length) {
+      throw new IllegalArgumentException("Given array does not fit the region");
+    }
+  }
+
+  /**
+   * Makes storage for a tile with every pixel set to the fill.
+   *
+   * @return the storage for the tile
+   */
+  private PixelBuffer createTile() {
+    PixelBuffer tile;
+    if (this.pool != null && this.storage == PixelStorage.HEAP) {
+      tile = this.pool.allocate(TILE_SIZE * TILE_SIZE * this.numComponents, this.maxColorVal);
+    } else {
+      tile = PixelBuffers.allocate(TILE_SIZE * TILE_SIZE * this.numComponents, this.maxColorVal,
+          this.storage);
+    }
+    for (int i = 0; i < tile.size(); i = i + this.numComponents) {
+      for (int c = 0; c < this.numComponents; c = c + 1) {
+        if (this.fill[c] != 0) {
+          tile.set(i + c, this.fill[c]);
+        }
+      }
+    }
+    return tile;
+  }
+
+  /**
+   * Checks that the given component exists in this image.
+   *
+   * @param width  column in which the pixel is located
+   * @param height row in which the pixel is located
+   * @param comp   component that is wanted
+   * @throws IllegalArgumentException specified location/component does not exist
+   */
+  private void checkComponent(int width, int height, int comp) {
+    //component does not exist for this type of image
+    if (width < 0 || width >= this.width || height < 0 || height >= this.height
+        || comp < 0 || comp >= this.numComponents) {
+      throw new IllegalArgumentException("Given component does not exist");
+    }
+  }
+
+  /**
+   * Gets the position of the tile holding a pixel in the array of tiles.
+   *
+   * @param width  column in which the pixel is located
+   * @param height row in which the pixel is located
+   * @return index of the tile
+   */
+  private int tileIndex(int width, int height) {
+    return (height >> TILE_SHIFT) * this.tilesAcross + (width >> TILE_SHIFT);
+  }
+
+  /**
+   * Gets the position of a component inside of the tile that holds its pixel.
+   *
+   * @param width  column in which the pixel is located
+   * @param height row in which the pixel is located
+   * @param comp   component that is wanted
+   * @return index of the component in its tile
+   */
+  private int indexInTile(int width, int height, int comp) {
+    return (((height & TILE_MASK) << TILE_SHIFT) + (width & TILE_MASK)) * this.numComponents
+        + comp;
+  }
+
+  /**
+   * Gets unchecked views straight over the tiles of this image, in row-major order of tiles.
+   * Views asked for writing only cover the tiles that have storage, which are taken off of any
+   * copies first, and untouched tiles keep reading as the fill, which is changed through mapFill.
+   * Views only for reading cover every tile, pointing untouched tiles at a single row of the fill
+   * on the heap that every row of them reads again, so untouched tiles still take no storage of
+   * their own, and that row must not be written to. The views must not be kept after the image is
+   * changed in any other way.
+   *
+   * @param forWriting true if the pixels will be written through the views
+   * @return views of the tiles that make up the image
+   */
+  @Override
+  public List<RawPixels> getRawPixels(boolean forWriting) {
+    List<RawPixels> out = new ArrayList<RawPixels>(this.tiles.length);
+    PixelBuffer fillRow = null;
+    for (int t = 0; t < this.tiles.length; t = t + 1) {
+      PixelBuffer tile;
+      int stride = TILE_SIZE * this.numComponents;
+      if (forWriting) {
+        if (this.tiles[t] == null) {
+          //untouched tiles stay without storage, and their fill is changed by itself
+          continue;
+        }
+        tile = this.writableTile(t);
+      } else if (this.tiles[t] == null) {
+        if (fillRow == null) {
+          fillRow = PixelBuffers.allocate(stride, this.maxColorVal, PixelStorage.HEAP);
+          for (int i = 0; i < stride; i = i + this.numComponents) {
+            fillRow.set(i, this.fill, 0, this.numComponents);
+          }
+        }
+        //every row of the view starts over at the same row of the fill
+        tile = fillRow;
+        stride = 0;
+      } else {
+        tile = this.tiles[t];
+      }
+      int col = (t % this.tilesAcross) << TILE_SHIFT;
+      int row = (t / this.tilesAcross) << TILE_SHIFT;
+      out.add(new RawPixels(tile, col, row, Math.min(TILE_SIZE, this.width - col),
+          Math.min(TILE_SIZE, this.height - row), this.numComponents, this.maxColorVal, 0,
+          stride));
+    }
+    return out;
+  }
+
+  /**
+   * Runs a change that was made to every view for writing of this image on the fill, so that the
+   * untouched tiles read as if the change was made to them too, without giving them storage.
+   *
+   * @param change the change made to every view for writing
+   */
+  @Override
+  public void mapFill(Consumer<RawPixels> change) {
+    PixelBuffer pixel = PixelBuffers.allocate(this.numComponents, this.maxColorVal,
+        PixelStorage.HEAP);
+    pixel.set(0, this.fill, 0, this.numComponents);
+    change.accept(new RawPixels(pixel, 0, 0, 1, 1, this.numComponents, this.maxColorVal, 0,
+        this.numComponents));
+    pixel.get(0, this.fill, 0, this.numComponents);
+    pixel.release();
+  }
+}
@@ -2,15 +2,25 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Random;
 
+import controller.commands.AffineCommand;
 import controller.commands.Brightness;
 import controller.commands.Command;
+import controller.commands.ComposedLookup;
+import controller.commands.ComposedTransform;
 import controller.commands.Filter;
 import controller.commands.Filters;
+import controller.commands.Gamma;
 import controller.commands.HFlip;
+import controller.commands.Invert;
 import controller.commands.Load;
+import controller.commands.LookupCommand;
 import controller.commands.MixVis;
+import controller.commands.PointCommand;
+import controller.commands.PointPipeline;
+import controller.commands.Posterize;
 import controller.commands.Save;
 import controller.commands.Transform;
 import controller.commands.Transformation;
@@ -592,6 +602,180 @@ public class CommandTest {
     assertEquals("image1", hflip.getPlace());
   }
 
+  //tests that commands placing their result back at the source change the stored image where it
+  //is, unless another key still refers to it
+  @Test
+  public void testInPlace() {
+    ImageModel copy = this.image1.getImageCopy();
+    this.model.setImageAt(copy, "single");
+    int before = copy.getComponentValue(0, 0, 0);
+    new Brightness(10, false, "single", "single").apply(this.model);
+    assertTrue(copy == this.model.getImageAt("single"));
+    assertEquals(Math.min(255, before + 10), copy.getComponentValue(0, 0, 0));
+    new HFlip("single", "single").apply(this.model);
+    new VFlip("single", "single").apply(this.model);
+    new Filter(Filters.Blur, "single", "single").apply(this.model);
+    new Transform(Transformation.Sepia, "single", "single").apply(this.model);
+    new MixVis("value", "single", "single").apply(this.model);
+    assertTrue(copy == this.model.getImageAt("single"));
+    //the copy was written to, so the image it was made from is unchanged
+    assertEquals(before, this.image1.getComponentValue(0, 0, 0));
+    //an image under two keys is copied, so the other key keeps the old image
+    this.model.setImageAt(copy, "other");
+    int other = copy.getComponentValue(4, 3, 2);
+    new Brightness(10, true, "single", "single").apply(this.model);
+    assertFalse(copy == this.model.getImageAt("single"));
+    assertEquals(other, this.model.getImageAt("other").getComponentValue(4, 3, 2));
+    assertEquals(Math.max(0, other - 10),
+        this.model.getImageAt("single").getComponentValue(4, 3, 2));
+  }
+
+  //tests that a pipeline of point commands gives the same image as applying them one at a time,
+  //without placing the images in between
+  @Test
+  public void testPointPipeline() {
+    new Brightness(30, false, "image1", "a").apply(this.model);
+    new Transform(Transformation.Sepia, "a", "b").apply(this.model);
+    new MixVis("value", "b", "c").apply(this.model);
+    new Brightness(20, true, "c", "d").apply(this.model);
+    ImageProcessorModel fused = new ImageProcessorModelImpl();
+    fused.setImageAt(this.image1, "image1");
+    ImageModel result = new PointPipeline(Arrays.<PointCommand>asList(
+        new Brightness(30, false, "image1", "a"),
+        new Transform(Transformation.Sepia, "a", "b"),
+        new MixVis("value", "b", "c"),
+        new Brightness(20, true, "c", "d"))).apply(fused);
+    assertTrue(result == fused.getImageAt("d"));
+    ImageModel expected = this.model.getImageAt("d");
+    for (int w = 0; w < 5; w = w + 1) {
+      for (int h = 0; h < 4; h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          assertEquals(expected.getComponentValue(w, h, c), result.getComponentValue(w, h, c));
+        }
+      }
+    }
+    //the source is unchanged and the images in between were never placed
+    assertEquals(this.model.getImageAt("image1").getComponentValue(2, 1, 0),
+        fused.getImageAt("image1").getComponentValue(2, 1, 0));
+    try {
+      fused.getImageAt("b");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Desired Image could not be found by that key", e.getMessage());
+    }
+    //the commands must each read what the one before placed
+    try {
+      new PointPipeline(Arrays.<PointCommand>asList(new MixVis("value", "image1", "a"),
+          new MixVis("value", "image1", "b")));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Commands must form a chain", e.getMessage());
+    }
+    try {
+      new PointPipeline(Arrays.<PointCommand>asList());
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Pipeline must have at least one command", e.getMessage());
+    }
+  }
+
+  //tests that a composed transform clamps in between its steps where it matters, so that it
+  //gives the same image as the steps one at a time when none of them round
+  @Test
+  public void testComposedTransform() {
+    //sepia clamps, so brightening after it still starts from the clamped values
+    new Transform(Transformation.Sepia, "image1", "a").apply(this.model);
+    new Brightness(40, true, "a", "b").apply(this.model);
+    //brightening far past the max clamps, so darkening after it does not undo it
+    new Brightness(200, false, "image1", "c").apply(this.model);
+    new Brightness(200, true, "c", "d").apply(this.model);
+    new Transform(Transformation.Red, "d", "e").apply(this.model);
+    ImageModel sepia = new ComposedTransform(Arrays.<AffineCommand>asList(
+        new Transform(Transformation.Sepia, "image1", "x"),
+        new Brightness(40, true, "x", "sepiaDark"))).apply(this.model);
+    ImageModel clamped = new ComposedTransform(Arrays.<AffineCommand>asList(
+        new Brightness(200, false, "image1", "y"),
+        new Brightness(200, true, "y", "z"),
+        new Transform(Transformation.Red, "z", "redClamped"))).apply(this.model);
+    for (int w = 0; w < 5; w = w + 1) {
+      for (int h = 0; h < 4; h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          assertEquals(this.model.getImageAt("b").getComponentValue(w, h, c),
+              sepia.getComponentValue(w, h, c));
+          assertEquals(this.model.getImageAt("e").getComponentValue(w, h, c),
+              clamped.getComponentValue(w, h, c));
+        }
+      }
+    }
+    assertTrue(sepia == this.model.getImageAt("sepiaDark"));
+    //steps that do not clamp are folded, and give the exact value when nothing rounds
+    int before = this.image1.getComponentValue(3, 2, 1);
+    ImageModel folded = new ComposedTransform(Arrays.<AffineCommand>asList(
+        new Transform(Transformation.Green, "image1", "p"),
+        new Brightness(10, true, "p", "q"),
+        new Brightness(5, false, "q", "folded"))).apply(this.model);
+    assertEquals(Math.max(0, before - 10) + 5, folded.getComponentValue(3, 2, 0));
+    try {
+      new ComposedTransform(Arrays.<AffineCommand>asList(
+          new Transform(Transformation.Green, "image1", "p"),
+          new Transform(Transformation.Green, "image1", "q")));
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Commands must form a chain", e.getMessage());
+    }
+    this.model.setImageAt(new BadImage(new int[10][20][2], 255, 2), "imageB");
+    try {
+      new ComposedTransform(Arrays.<AffineCommand>asList(
+          new Transform(Transformation.Green, "imageB", "p"))).apply(this.model);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image type must support at least 3 components", e.getMessage());
+    }
+  }
+
+  //tests the lookup commands, and that a composed lookup gives the same image as applying its
+  //commands one at a time
+  @Test
+  public void testLookup() {
+    int before = this.image1.getComponentValue(2, 3, 1);
+    ImageModel inverted = new Invert("image1", "inverted").apply(this.model);
+    assertEquals(255 - before, inverted.getComponentValue(2, 3, 1));
+    ImageModel gamma = new Gamma(2.0, "image1", "gamma").apply(this.model);
+    assertEquals(Math.round(Math.sqrt(before / 255.0) * 255),
+        gamma.getComponentValue(2, 3, 1));
+    ImageModel poster = new Posterize(2, "image1", "poster").apply(this.model);
+    assertEquals(before < 128 ? 0 : 255, poster.getComponentValue(2, 3, 1));
+    //the source is left as it was
+    assertEquals(before, this.model.getImageAt("image1").getComponentValue(2, 3, 1));
+    new Brightness(100, false, "image1", "a").apply(this.model);
+    new Gamma(0.5, "a", "b").apply(this.model);
+    new Invert("b", "c").apply(this.model);
+    new Posterize(5, "c", "d").apply(this.model);
+    ImageModel composed = new ComposedLookup(Arrays.<LookupCommand>asList(
+        new Brightness(100, false, "image1", "a"), new Gamma(0.5, "a", "b"),
+        new Invert("b", "c"), new Posterize(5, "c", "composed"))).apply(this.model);
+    for (int w = 0; w < 5; w = w + 1) {
+      for (int h = 0; h < 4; h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          assertEquals(this.model.getImageAt("d").getComponentValue(w, h, c),
+              composed.getComponentValue(w, h, c));
+        }
+      }
+    }
+    try {
+      new Gamma(0, "image1", "gamma");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Gamma must be positive", e.getMessage());
+    }
+    try {
+      new Posterize(1, "image1", "poster");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Levels must be at least 2", e.getMessage());
+    }
+  }
+
   //we throw an exception if the string provided is not one of the greyscale operations that we
   //support (at least for now)
   @Test
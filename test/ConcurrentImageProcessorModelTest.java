@@ -0,0 +1,226 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import controller.commands.Brightness;
+import model.ConcurrentImageProcessorModel;
+import model.ImageModel;
+import model.ImageProcessorModelImpl;
+import model.ImageRGB;
+import model.PixelStorage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the ConcurrentImageProcessorModel class.
+ */
+public class ConcurrentImageProcessorModelTest {
+  //Examples:
+  private ImageModel image1;
+  private ConcurrentImageProcessorModel model;
+  private double[][] blur;
+  private double[][] sepia;
+
+  //sets to initial conditions
+  @Before
+  public void initial() {
+    //40 x 30 image
+    int[][][] pixel1 = new int[40][30][3];
+    Random rand1 = new Random(1);
+    for (int w = 0; w < 40; w = w + 1) {
+      for (int h = 0; h < 30; h = h + 1) {
+        pixel1[w][h][0] = rand1.nextInt(255);
+        pixel1[w][h][1] = rand1.nextInt(255);
+        pixel1[w][h][2] = rand1.nextInt(255);
+      }
+    }
+    this.image1 = new ImageRGB(pixel1, 255);
+    this.model = new ConcurrentImageProcessorModel();
+    this.model.setImageAt(this.image1, "image1");
+    this.blur = new double[][]{{0.0625, 0.125, 0.0625}, {0.125, 0.25, 0.125},
+        {0.0625, 0.125, 0.0625}};
+    this.sepia = new double[][]{{0.393, 0.769, 0.189}, {0.349, 0.686, 0.168},
+        {0.272, 0.534, 0.131}};
+  }
+
+  //tests that images are set, got, and removed like in the single threaded model
+  @Test
+  public void testSetGetRemove() {
+    assertEquals(this.image1, this.model.getImageAt("image1"));
+    this.model.setImageAt(this.image1, "other");
+    this.model.removeImageAt("image1");
+    assertEquals(this.image1, this.model.getImageAt("other"));
+    try {
+      this.model.getImageAt("image1");
+      fail("Somehow got an image that was removed");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Desired Image could not be found by that key", e.getMessage());
+    }
+    try {
+      this.model.filterImage("image1", this.blur);
+      fail("Somehow filtered an image that was removed");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Desired Image could not be found by that key", e.getMessage());
+    }
+    try {
+      this.model.filterImage("other", new double[2][3]);
+      fail("Somehow filtered with an even kernel");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Kernel must have odd matching dimensions", e.getMessage());
+    }
+    try {
+      this.model.transformImage("other", new double[2][3]);
+      fail("Somehow transformed with a matrix that is not 3 x 3");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Transformation must use 3x3 matrix", e.getMessage());
+    }
+  }
+
+  //tests that filtering and transforming give the same images as the single threaded model,
+  //and that images handed out before do not change
+  @Test
+  public void testMatchesModel() {
+    ImageProcessorModelImpl expected = new ImageProcessorModelImpl();
+    expected.setImageAt(this.image1.getImageCopy(), "image1");
+    expected.filterImage("image1", this.blur);
+    expected.transformImage("image1", this.sepia);
+    ImageModel before = this.model.getImageAt("image1");
+    this.model.filterImage("image1", this.blur);
+    this.model.transformImage("image1", this.sepia);
+    this.assertSame(expected.getImageAt("image1"), this.model.getImageAt("image1"));
+    this.assertSame(this.image1, before);
+  }
+
+  //tests that threads working on their own keys while reading a shared key all get the same
+  //images as running one after another
+  @Test
+  public void testThreads() throws InterruptedException {
+    ImageProcessorModelImpl expected = new ImageProcessorModelImpl();
+    expected.setImageAt(this.image1.getImageCopy(), "image1");
+    expected.filterImage("image1", this.blur);
+    expected.transformImage("image1", this.sepia);
+    List<Thread> threads = new ArrayList<Thread>();
+    List<Throwable> errors = new ArrayList<Throwable>();
+    for (int t = 0; t < 8; t = t + 1) {
+      String key = "image" + (t + 2);
+      threads.add(new Thread(() -> {
+        try {
+          for (int i = 0; i < 5; i = i + 1) {
+            this.model.setImageAt(this.model.getImageAt("image1").getImageCopy(), key);
+            this.model.filterImage(key, this.blur);
+            this.model.transformImage(key, this.sepia);
+          }
+        } catch (Throwable e) {
+          synchronized (errors) {
+            errors.add(e);
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, errors.size());
+    for (int t = 0; t < 8; t = t + 1) {
+      this.assertSame(expected.getImageAt("image1"), this.model.getImageAt("image" + (t + 2)));
+    }
+    this.assertSame(this.image1, this.model.getImageAt("image1"));
+  }
+
+  //tests that commands from many threads that change the same key in place never lose each
+  //other's changes
+  @Test
+  public void testUpdatesNotLost() throws InterruptedException {
+    this.model.setImageAt(new ImageRGB(new int[40][30][3], 255), "shared");
+    List<Thread> threads = new ArrayList<Thread>();
+    List<Throwable> errors = new ArrayList<Throwable>();
+    for (int t = 0; t < 4; t = t + 1) {
+      threads.add(new Thread(() -> {
+        try {
+          for (int i = 0; i < 25; i = i + 1) {
+            new Brightness(1, false, "shared", "shared").apply(this.model);
+          }
+        } catch (Throwable e) {
+          synchronized (errors) {
+            errors.add(e);
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, errors.size());
+    for (int c = 0; c < 3; c = c + 1) {
+      assertEquals(100, this.model.getImageAt("shared").getComponentValue(39, 29, c));
+    }
+  }
+
+  //tests that an image dropped from every key is released, but only once no thread is reading
+  //it anymore
+  @Test
+  public void testReleaseDropped() {
+    ConcurrentImageProcessorModel offHeap =
+        new ConcurrentImageProcessorModel(PixelStorage.OFF_HEAP);
+    offHeap.setImageAt(this.image1, "a");
+    ImageModel held = offHeap.getImageAt("a");
+    offHeap.setImageAt(held, "b");
+    offHeap.removeImageAt("a");
+    assertEquals(40 * 30 * 3, held.getFootprint());
+    int read = offHeap.readImageAt("b", image -> {
+      offHeap.removeImageAt("b");
+      assertEquals(40 * 30 * 3, image.getFootprint());
+      return image.getComponentValue(39, 29, 2);
+    });
+    assertEquals(this.image1.getComponentValue(39, 29, 2), read);
+    assertEquals(0, held.getFootprint());
+    //a removed key can be used again
+    offHeap.setImageAt(this.image1, "a");
+    offHeap.filterImage("a", this.blur);
+    assertEquals(PixelStorage.OFF_HEAP, offHeap.getImageAt("a").getStorage());
+  }
+
+  //tests that two threads dropping one image from its two keys at once release it only once, so
+  //a copy that still shares its pixels can read them
+  @Test
+  public void testDropAliasedImage() throws InterruptedException {
+    ConcurrentImageProcessorModel offHeap =
+        new ConcurrentImageProcessorModel(PixelStorage.OFF_HEAP);
+    for (int i = 0; i < 50; i = i + 1) {
+      offHeap.setImageAt(this.image1, "a");
+      offHeap.setImageAt(offHeap.getImageAt("a"), "b");
+      ImageModel copy = offHeap.readImageAt("a", ImageModel::getImageCopy);
+      Thread first = new Thread(() -> offHeap.removeImageAt("a"));
+      Thread second = new Thread(() -> offHeap.removeImageAt("b"));
+      first.start();
+      second.start();
+      first.join();
+      second.join();
+      this.assertSame(this.image1, copy);
+      copy.release();
+    }
+  }
+
+  //checks that two images have the same components everywhere
+  private void assertSame(ImageModel expected, ImageModel actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    for (int w = 0; w < expected.getWidth(); w = w + 1) {
+      for (int h = 0; h < expected.getHeight(); h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          assertEquals(expected.getComponentValue(w, h, c), actual.getComponentValue(w, h, c));
+        }
+      }
+    }
+  }
+}
@@ -6,6 +6,8 @@ import java.util.Random;
 
 import controller.IPControllerImpl;
 import controller.ImageProcessorController;
+import controller.commands.Filters;
+import model.BorderMode;
 import model.ImageModel;
 import model.ImageProcessorModel;
 import model.ImageProcessorModelImpl;
@@ -14,6 +16,7 @@ import view.ImageProcessorTextView;
 import view.ImageProcessorView;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for the IPControllerImpl class.
@@ -114,6 +117,151 @@ public class IPControllerImplTest {
     assertEquals("Program ended", lines[21]);
   }
 
+  //tests that the memory used by the images is reported after each command only once asked
+  @Test
+  public void testMemoryReport() {
+    StringReader in = new StringReader("memory-report on brighten 10 image1 brightOne"
+        + " memory-report off darken 10 image1 dimOne memory-report maybe");
+    ImageProcessorModel model = new ImageProcessorModelImpl();
+    model.setImageAt(this.image1, "image1");
+    ImageProcessorController controller = new IPControllerImpl(model, this.view, in);
+    controller.modifyImages();
+    String[] lines = out.toString().split("\n");
+    assertEquals("Image of size (5, 4) stored as brightOne", lines[0]);
+    assertEquals("Memory: 120 bytes in 2 images under 2 keys", lines[1]);
+    assertEquals("Disk: 0 bytes in 0 images", lines[2]);
+    assertEquals("Largest: brightOne 60 bytes (HEAP) image1 60 bytes (HEAP)", lines[3]);
+    assertEquals("Image of size (5, 4) stored as dimOne", lines[4]);
+    assertEquals("Memory report must be on or off", lines[5]);
+    assertEquals("Program ended", lines[6]);
+  }
+
+  //tests that a controller freeing dead images removes each image after its last use in the
+  //script, while giving the same output
+  @Test
+  public void testFreeDeadImages() {
+    StringReader in = new StringReader("memory-report on brighten 10 image1 brightOne"
+        + " horizontal-flip brightOne horOne lettuce vertical-flip horOne verHorOne");
+    ImageProcessorModel model = new ImageProcessorModelImpl();
+    model.setImageAt(this.image1, "image1");
+    model.setImageAt(this.image2, "image2");
+    ImageProcessorController controller = new IPControllerImpl(model, this.view, in, true);
+    controller.modifyImages();
+    String[] lines = out.toString().split("\n");
+    assertEquals("Image of size (5, 4) stored as brightOne", lines[0]);
+    assertEquals("Memory: 180 bytes in 3 images under 3 keys", lines[1]);
+    assertEquals("Image of size (5, 4) stored as horOne", lines[4]);
+    //image1 was removed after its last use
+    assertEquals("Memory: 180 bytes in 3 images under 3 keys", lines[5]);
+    assertEquals("Invalid command", lines[8]);
+    assertEquals("Image of size (5, 4) stored as verHorOne", lines[9]);
+    assertEquals("Memory: 180 bytes in 3 images under 3 keys", lines[10]);
+    assertEquals("Program ended", lines[13]);
+    //only the image that the script never used is left
+    assertEquals(1, model.getMemorySummary().getKeyCount());
+    assertEquals(this.image2, model.getImageAt("image2"));
+  }
+
+  //tests that a script runs chains of point commands in one pass, with the same output and
+  //images as running them one at a time
+  @Test
+  public void testFusePoints() {
+    String script = "brighten 10 image1 a sepia a b value-component b c darken 5 c c "
+        + "greyscale c d horizontal-flip d e sepia image2 image2";
+    ImageProcessorModel plain = new ImageProcessorModelImpl();
+    plain.setImageAt(this.image1, "image1");
+    plain.setImageAt(this.image2, "image2");
+    new IPControllerImpl(plain, this.view, new StringReader(script)).modifyImages();
+    String expected = this.out.toString();
+    this.out.setLength(0);
+    //keeps every image, so that the images of the script can be looked at afterwards
+    ImageProcessorModel fused = new ImageProcessorModelImpl() {
+      @Override
+      public void removeImageAt(String key) {
+        //does not remove anything
+      }
+    };
+    fused.setImageAt(this.image1, "image1");
+    fused.setImageAt(this.image2, "image2");
+    new IPControllerImpl(fused, this.view, new StringReader(script), true).modifyImages();
+    assertEquals(expected, this.out.toString());
+    assertEquals("Image of size (5, 4) stored as d", this.out.toString().split("\n")[4]);
+    //the images in between the chained commands were never made
+    try {
+      fused.getImageAt("b");
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Desired Image could not be found by that key", e.getMessage());
+    }
+    //the images that were made match the ones made one command at a time
+    for (String key : new String[]{"d", "e"}) {
+      for (int w = 0; w < 5; w = w + 1) {
+        for (int h = 0; h < 4; h = h + 1) {
+          for (int c = 0; c < 3; c = c + 1) {
+            assertEquals(plain.getImageAt(key).getComponentValue(w, h, c),
+                fused.getImageAt(key).getComponentValue(w, h, c));
+          }
+        }
+      }
+    }
+  }
+
+  //tests that the tone command composes its steps into one image, and rejects unknown steps
+  @Test
+  public void testTone() {
+    StringReader in = new StringReader("tone green-component,darken:300,brighten:7 image1 toned "
+        + "tone sepia,lighten:3 image1 bad tone brighten:x image1 bad");
+    ImageProcessorModel model = new ImageProcessorModelImpl();
+    model.setImageAt(this.image1, "image1");
+    new IPControllerImpl(model, this.view, in).modifyImages();
+    String[] lines = this.out.toString().split("\n");
+    assertEquals("Image of size (5, 4) stored as toned", lines[0]);
+    assertEquals("Tone step is not known", lines[1]);
+    assertEquals("Tone step is not known", lines[2]);
+    //darkening past 0 clamps before brightening again
+    assertEquals(7, model.getImageAt("toned").getComponentValue(1, 1, 0));
+  }
+
+  //tests that filters can be given a border mode in a script, and that unknown modes are refused
+  @Test
+  public void testBorderFilters() {
+    StringReader in = new StringReader("blur-border clamp image1 a sharpen-border wrap image1 b "
+        + "blur-border edge image1 c blur-border fuzzy k k2");
+    ImageProcessorModel model = new ImageProcessorModelImpl();
+    model.setImageAt(this.image1, "image1");
+    new IPControllerImpl(model, this.view, in).modifyImages();
+    String[] lines = this.out.toString().split("\n");
+    assertEquals("Image of size (5, 4) stored as a", lines[0]);
+    assertEquals("Image of size (5, 4) stored as b", lines[1]);
+    assertEquals("Border mode is not known", lines[2]);
+    //the keys of a command with an unknown mode are read with it, not run as commands
+    assertEquals("Border mode is not known", lines[3]);
+    assertEquals("Program ended", lines[4]);
+    //the command gives the same corner as filtering through the model with the same mode
+    ImageModel expected = this.image1.getImageCopy();
+    model.setImageAt(expected, "expected");
+    model.filterImage("expected", Filters.Blur.getKernel(), BorderMode.CLAMP);
+    assertEquals(expected.getComponentValue(0, 0, 1),
+        model.getImageAt("a").getComponentValue(0, 0, 1));
+  }
+
+  //tests that the lookup commands can be given in a script, including as a chain that is run as
+  //one lookup
+  @Test
+  public void testLookupCommands() {
+    StringReader in = new StringReader("invert image1 a gamma 2.2 a b posterize 4 b c "
+        + "gamma -1 image1 d posterize x image1 d");
+    ImageProcessorModel model = new ImageProcessorModelImpl();
+    model.setImageAt(this.image1, "image1");
+    new IPControllerImpl(model, this.view, in, true).modifyImages();
+    String[] lines = this.out.toString().split("\n");
+    assertEquals("Image of size (5, 4) stored as a", lines[0]);
+    assertEquals("Image of size (5, 4) stored as b", lines[1]);
+    assertEquals("Image of size (5, 4) stored as c", lines[2]);
+    assertEquals("Gamma must be positive", lines[3]);
+    assertEquals("Inputs are invalid", lines[4]);
+  }
+
   //tests that we can handle exceptions thrown by methods properly
   @Test
   public void testHandleBadInput() {
@@ -0,0 +1,99 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ImageBuilder;
+import model.ImageModel;
+import model.PixelStorage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the ImageBuilder class.
+ */
+public class ImageBuilderTest {
+  //Examples:
+  private ImageBuilder builder;
+
+  //sets to initial conditions
+  @Before
+  public void initial() {
+    //3 x 2 image
+    this.builder = new ImageBuilder(3, 2, 255);
+  }
+
+  //tests that the built image has the values that were set and black everywhere else
+  @Test
+  public void testBuild() {
+    this.builder.setPixel(2, 1, 10, 20, 30);
+    this.builder.setComponentValue(0, 1, 1, 255);
+    ImageModel image = this.builder.build();
+    assertEquals(3, image.getWidth());
+    assertEquals(2, image.getHeight());
+    assertEquals(3, image.getNumComponents());
+    assertEquals(255, image.getMaxColorValue());
+    assertEquals(10, image.getComponentValue(2, 1, 0));
+    assertEquals(20, image.getComponentValue(2, 1, 1));
+    assertEquals(30, image.getComponentValue(2, 1, 2));
+    assertEquals(255, image.getComponentValue(0, 1, 1));
+    assertEquals(0, image.getComponentValue(0, 0, 0));
+    assertEquals(PixelStorage.HEAP, image.getStorage());
+  }
+
+  //tests that images can be built in other storage and with larger max values
+  @Test
+  public void testBuildOffHeap() {
+    ImageBuilder big = new ImageBuilder(2, 2, 70000, PixelStorage.OFF_HEAP);
+    big.setPixel(1, 1, 70000, 65536, 1);
+    ImageModel image = big.build();
+    assertEquals(PixelStorage.OFF_HEAP, image.getStorage());
+    assertEquals(70000, image.getComponentValue(1, 1, 0));
+    assertEquals(65536, image.getComponentValue(1, 1, 1));
+    assertEquals(1, image.getComponentValue(1, 1, 2));
+    image.release();
+  }
+
+  //tests that values are checked as they are set and that a builder only builds once
+  @Test
+  public void testExceptions() {
+    try {
+      new ImageBuilder(0, 2, 255);
+      fail("Somehow made a builder for an empty image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image must have a positive size and max value", e.getMessage());
+    }
+    try {
+      this.builder.setComponentValue(0, 0, 0, 256);
+      fail("Somehow set a value above the max");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Component values must be between 0 and the max value, inclusive",
+          e.getMessage());
+    }
+    try {
+      this.builder.setPixel(0, 0, 0, -1, 0);
+      fail("Somehow set a value below 0");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Component values must be between 0 and the max value, inclusive",
+          e.getMessage());
+    }
+    try {
+      this.builder.setComponentValue(3, 0, 0, 1);
+      fail("Somehow set a component outside of the image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Given component does not exist", e.getMessage());
+    }
+    this.builder.build();
+    try {
+      this.builder.build();
+      fail("Somehow built twice");
+    } catch (IllegalStateException e) {
+      assertEquals("Image was already built", e.getMessage());
+    }
+    try {
+      this.builder.setComponentValue(0, 0, 0, 1);
+      fail("Somehow changed a built image through the builder");
+    } catch (IllegalStateException e) {
+      assertEquals("Image was already built", e.getMessage());
+    }
+  }
+}
@@ -3,9 +3,14 @@ import org.junit.Test;
 
 import java.util.Random;
 
+import model.BorderMode;
+import model.BudgetPolicy;
 import model.ImageModel;
 import model.ImageProcessorModelImpl;
 import model.ImageRGB;
+import model.MemorySummary;
+import model.Parallelism;
+import model.PixelStorage;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
@@ -89,6 +94,228 @@ public class ImageProcessorModelImplTest {
     this.model.removeImageAt("image3");
   }
 
+  //tests that a model over its budget spills the least recently used images to disk and reads
+  //them back when they are used again
+  @Test
+  public void testBudget() {
+    //room for two 5 x 4 images at one byte per component
+    ImageProcessorModelImpl bounded = new ImageProcessorModelImpl(PixelStorage.HEAP, null, 120);
+    bounded.setImageAt(this.image1.getImageCopy(), "a");
+    bounded.setImageAt(this.image1.getImageCopy(), "b");
+    ImageModel shared = this.image1.getImageCopy();
+    shared.setComponentValue(0, 0, 0, 7);
+    bounded.setImageAt(shared, "c");
+    bounded.setImageAt(shared, "d");
+    //a was used least recently, so it was spilled and then read back
+    for (int w = 0; w < 5; w = w + 1) {
+      for (int h = 0; h < 4; h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          assertEquals(this.image1.getComponentValue(w, h, c),
+              bounded.getImageAt("a").getComponentValue(w, h, c));
+        }
+      }
+    }
+    //both keys of a spilled image read back the same image
+    assertEquals(7, bounded.getImageAt("c").getComponentValue(0, 0, 0));
+    assertEquals(bounded.getImageAt("c"), bounded.getImageAt("d"));
+    bounded.transformImage("b", new double[][]{{1, 0, 0}, {0, 1, 0}, {0, 0, 1}});
+    assertEquals(this.image1.getComponentValue(4, 3, 2),
+        bounded.getImageAt("b").getComponentValue(4, 3, 2));
+    bounded.removeImageAt("a");
+    try {
+      bounded.getImageAt("a");
+      fail("Somehow got an image that was removed");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Desired Image could not be found by that key", e.getMessage());
+    }
+    try {
+      new ImageProcessorModelImpl(PixelStorage.HEAP, null, -1);
+      fail("Somehow made a model with a negative budget");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Budget can not be negative", e.getMessage());
+    }
+  }
+
+  //tests that the summary counts images once per image, along with the ones spilled to disk
+  @Test
+  public void testMemorySummary() {
+    ImageProcessorModelImpl bounded = new ImageProcessorModelImpl(PixelStorage.HEAP, null, 120);
+    bounded.setImageAt(this.image1.getImageCopy(), "a");
+    bounded.setImageAt(bounded.getImageAt("a"), "b");
+    bounded.setImageAt(new ImageRGB(new int[4][5][3], 255), "c");
+    MemorySummary summary = bounded.getMemorySummary();
+    assertEquals(3, summary.getKeyCount());
+    assertEquals(2, summary.getImageCount());
+    assertEquals(120, summary.getBytesInMemory());
+    assertEquals(0, summary.getSpilledCount());
+    assertEquals(120, summary.getBudget());
+    assertEquals("a", summary.getLargest().get(0).getKey());
+    assertEquals(PixelStorage.HEAP, summary.getLargest().get(0).getStorage());
+    //a and b were used least recently, so the image at both is spilled once
+    bounded.setImageAt(new ImageRGB(new int[4][5][3], 255), "d");
+    summary = bounded.getMemorySummary();
+    assertEquals(4, summary.getKeyCount());
+    assertEquals(2, summary.getImageCount());
+    assertEquals(1, summary.getSpilledCount());
+    assertEquals(60, summary.getBytesOnDisk());
+    assertEquals("Memory: 120 bytes in 2 images under 4 keys (budget 120 bytes)\n"
+        + "Disk: 60 bytes in 1 images\n"
+        + "Largest: c 60 bytes (HEAP) d 60 bytes (HEAP)", summary.toString());
+  }
+
+  //tests that a model that fails at its budget refuses images that would go over it
+  @Test
+  public void testFailingBudget() {
+    ImageProcessorModelImpl bounded =
+        new ImageProcessorModelImpl(PixelStorage.HEAP, null, 120, BudgetPolicy.FAIL);
+    bounded.setImageAt(this.image1.getImageCopy(), "a");
+    bounded.setImageAt(new ImageRGB(new int[4][5][3], 255), "b");
+    try {
+      bounded.setImageAt(new ImageRGB(new int[4][5][3], 255), "c");
+      fail("Somehow went over the budget");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image would go over the memory budget of the model", e.getMessage());
+    }
+    assertEquals(2, bounded.getMemorySummary().getKeyCount());
+    //replacing an image only counts the image that takes its place
+    bounded.setImageAt(new ImageRGB(new int[4][5][3], 255), "b");
+    assertEquals(120, bounded.getMemorySummary().getBytesInMemory());
+    try {
+      new ImageProcessorModelImpl(PixelStorage.HEAP, null, 120, null);
+      fail("Somehow made a model without a policy");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Policy can not be null", e.getMessage());
+    }
+  }
+
+  //tests that copies which still share their pixels count them once against the budget, and
+  //that they count twice once a copy is written to
+  @Test
+  public void testSharedCopiesInBudget() {
+    ImageProcessorModelImpl bounded =
+        new ImageProcessorModelImpl(PixelStorage.HEAP, null, 120, BudgetPolicy.FAIL);
+    bounded.setImageAt(this.image1.getImageCopy(), "a");
+    bounded.setImageAt(bounded.getImageAt("a").getImageCopy(), "b");
+    assertEquals(60, bounded.getMemorySummary().getBytesInMemory());
+    bounded.setImageAt(new ImageRGB(new int[4][5][3], 255), "c");
+    assertEquals(120, bounded.getMemorySummary().getBytesInMemory());
+    bounded.removeImageAt("c");
+    bounded.getImageAt("b").setComponentValue(0, 0, 0, 7);
+    assertEquals(120, bounded.getMemorySummary().getBytesInMemory());
+    try {
+      bounded.setImageAt(new ImageRGB(new int[4][5][3], 255), "c");
+      fail("Somehow went over the budget");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image would go over the memory budget of the model", e.getMessage());
+    }
+  }
+
+  //tests that filtering or transforming a copy that shares its pixels counts the pixels it takes
+  //for itself, failing before it changes under a model that fails and spilling under one that
+  //spills
+  @Test
+  public void testChangedCopiesInBudget() {
+    double[][] blur = {{1 / 16.0, 1 / 8.0, 1 / 16.0}, {1 / 8.0, 1 / 4.0, 1 / 8.0},
+        {1 / 16.0, 1 / 8.0, 1 / 16.0}};
+    double[][] grey = {{0.3, 0.6, 0.1}, {0.3, 0.6, 0.1}, {0.3, 0.6, 0.1}};
+    ImageModel big = new ImageRGB(new int[100][100][3], 255);
+    big.setComponentValue(50, 50, 0, 200);
+    ImageProcessorModelImpl failing =
+        new ImageProcessorModelImpl(PixelStorage.HEAP, null, 45000, BudgetPolicy.FAIL);
+    failing.setImageAt(big.getImageCopy(), "a");
+    failing.setImageAt(failing.getImageAt("a").getImageCopy(), "b");
+    try {
+      failing.filterImage("b", blur);
+      fail("Somehow went over the budget");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image would go over the memory budget of the model", e.getMessage());
+    }
+    try {
+      failing.transformImage("b", grey);
+      fail("Somehow went over the budget");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image would go over the memory budget of the model", e.getMessage());
+    }
+    assertEquals(30000, failing.getMemorySummary().getBytesInMemory());
+    assertEquals(200, failing.getImageAt("b").getComponentValue(50, 50, 0));
+    ImageProcessorModelImpl spilling =
+        new ImageProcessorModelImpl(PixelStorage.HEAP, null, 45000);
+    spilling.setImageAt(big.getImageCopy(), "a");
+    spilling.setImageAt(spilling.getImageAt("a").getImageCopy(), "b");
+    spilling.filterImage("b", blur);
+    assertEquals(30000, spilling.getMemorySummary().getBytesInMemory());
+    assertEquals(1, spilling.getMemorySummary().getSpilledCount());
+    spilling.setImageAt(spilling.getImageAt("a").getImageCopy(), "c");
+    spilling.transformImage("c", grey);
+    assertEquals(30000, spilling.getMemorySummary().getBytesInMemory());
+    assertEquals(200, spilling.getImageAt("a").getComponentValue(50, 50, 0));
+    assertEquals(50, spilling.getImageAt("b").getComponentValue(50, 50, 0));
+  }
+
+  //tests that a model kept off the heap moves images into its storage and releases them only
+  //once no key refers to them anymore
+  @Test
+  public void testOffHeapStorage() {
+    ImageProcessorModelImpl offHeap = new ImageProcessorModelImpl(PixelStorage.OFF_HEAP);
+    offHeap.setImageAt(this.image1, "image1");
+    ImageModel stored = offHeap.getImageAt("image1");
+    assertEquals(PixelStorage.OFF_HEAP, stored.getStorage());
+    assertEquals(PixelStorage.HEAP, this.image1.getStorage());
+    for (int w = 0; w < 5; w = w + 1) {
+      for (int h = 0; h < 4; h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          assertEquals(this.image1.getComponentValue(w, h, c), stored.getComponentValue(w, h, c));
+        }
+      }
+    }
+    //copies stay off the heap unless asked otherwise
+    ImageModel copy = stored.getImageCopy();
+    assertEquals(PixelStorage.OFF_HEAP, copy.getStorage());
+    assertEquals(PixelStorage.HEAP, stored.getImageCopy(PixelStorage.HEAP).getStorage());
+    //a copy shares the native memory, so releasing it leaves the stored image usable
+    copy.release();
+    assertEquals(this.image1.getComponentValue(0, 0, 0), stored.getComponentValue(0, 0, 0));
+    //still usable while another key refers to it
+    offHeap.setImageAt(stored, "other");
+    offHeap.removeImageAt("image1");
+    assertEquals(this.image1.getComponentValue(0, 0, 0), stored.getComponentValue(0, 0, 0));
+    //released once the last key drops it
+    offHeap.removeImageAt("other");
+    try {
+      stored.getComponentValue(0, 0, 0);
+      fail("Somehow read from a released image");
+    } catch (IndexOutOfBoundsException e) {
+      //released images can not be read from
+    }
+    //heap images are never affected by being dropped
+    this.model.removeImageAt("image1");
+    assertEquals(PixelStorage.HEAP, this.image1.getStorage());
+    this.image1.getComponentValue(0, 0, 0);
+  }
+
+  //tests that filtering and transforming work the same on images mapped from a scratch file
+  @Test
+  public void testMappedStorage() {
+    ImageProcessorModelImpl mapped = new ImageProcessorModelImpl(PixelStorage.MAPPED);
+    mapped.setImageAt(this.image1, "image1");
+    assertEquals(PixelStorage.MAPPED, mapped.getImageAt("image1").getStorage());
+    double[][] kernel = new double[][]{{0, 0.5, 0}, {0.25, 1, 0.25}, {0, -0.5, 0}};
+    double[][] matrix = new double[][]{{0.5, 0.5, 0}, {0, 1.5, 0}, {0.2, 0.2, 0.2}};
+    mapped.filterImage("image1", kernel);
+    mapped.transformImage("image1", matrix);
+    this.model.filterImage("image1", kernel);
+    this.model.transformImage("image1", matrix);
+    for (int w = 0; w < 5; w = w + 1) {
+      for (int h = 0; h < 4; h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          assertEquals(this.model.getImageAt("image1").getComponentValue(w, h, c),
+              mapped.getImageAt("image1").getComponentValue(w, h, c));
+        }
+      }
+    }
+    mapped.removeImageAt("image1");
+  }
+
   //tests that the transformImage() method works as it should when given a valid matrix
   @Test
   public void testTransformImage() {
@@ -202,6 +429,248 @@ public class ImageProcessorModelImplTest {
     }
   }
 
+  //tests that a kernel that is the outer product of a row and a column, which is filtered in two
+  //passes, gives the same image as going through the whole kernel for each pixel
+  @Test
+  public void testFilterSeparable() {
+    ImageModel image3 = this.image1.getImageCopy();
+    double[] weights = {1 / 16.0, 4 / 16.0, 6 / 16.0, 4 / 16.0, 1 / 16.0};
+    double[][] kernel = new double[5][5];
+    for (int col = 0; col < 5; col = col + 1) {
+      for (int row = 0; row < 5; row = row + 1) {
+        kernel[col][row] = weights[col] * weights[row];
+      }
+    }
+    this.model.filterImage("image1", kernel);
+    this.checkFiltered(image3, kernel);
+  }
+
+  //tests that a kernel that is the sum of two outer products of a row and a column, which is
+  //filtered as two terms of two passes each, gives the same image as going through all of it
+  @Test
+  public void testFilterLowRank() {
+    ImageModel image3 = this.image1.getImageCopy();
+    double[] first = {1 / 16.0, 2 / 16.0, 4 / 16.0, 2 / 16.0, 1 / 16.0};
+    double[] second = {0, 1 / 4.0, 0, 1 / 4.0, 0};
+    double[][] kernel = new double[5][5];
+    for (int col = 0; col < 5; col = col + 1) {
+      for (int row = 0; row < 5; row = row + 1) {
+        kernel[col][row] = first[col] * first[row] + second[col] * second[row];
+      }
+    }
+    this.model.filterImage("image1", kernel);
+    this.checkFiltered(image3, kernel);
+    //a kernel that can not be split into few enough terms is still filtered properly
+    ImageModel image4 = this.model.getImageAt("image2").getImageCopy();
+    double[][] sharpen = new double[5][5];
+    for (int col = 0; col < 5; col = col + 1) {
+      for (int row = 0; row < 5; row = row + 1) {
+        sharpen[col][row] = (col * 7 + row * 3) % 5 / 8.0 - 1 / 4.0;
+      }
+    }
+    this.model.filterImage("image2", sharpen);
+    ImageModel filtered = this.model.getImageAt("image2");
+    for (int w = 0; w < 4; w = w + 1) {
+      for (int h = 0; h < 5; h = h + 1) {
+        double expected = 0;
+        for (int col = -2; col <= 2; col = col + 1) {
+          for (int row = -2; row <= 2; row = row + 1) {
+            if (w + col >= 0 && w + col < 4 && h + row >= 0 && h + row < 5) {
+              expected = expected + sharpen[col + 2][row + 2]
+                  * image4.getComponentValue(w + col, h + row, 0);
+            }
+          }
+        }
+        assertEquals(Math.max(0, Math.min(255, (int) expected)),
+            filtered.getComponentValue(w, h, 0));
+      }
+    }
+  }
+
+  //tests that each border mode reads the pixels past the edges of the image as it should, for
+  //kernels that are filtered in two passes, ones that go through the whole kernel, ones large
+  //enough to be filtered through Fourier transforms, kernels larger than the image, and images
+  //that are split between threads
+  @Test
+  public void testFilterBorderModes() {
+    double[][] blur = {{1 / 16.0, 1 / 8.0, 1 / 16.0}, {1 / 8.0, 1 / 4.0, 1 / 8.0},
+        {1 / 16.0, 1 / 8.0, 1 / 16.0}};
+    double[][] big = new double[7][9];
+    for (int col = 0; col < 7; col = col + 1) {
+      for (int row = 0; row < 9; row = row + 1) {
+        big[col][row] = (col * 5 + row * 3) % 7 / 20.0 - 0.1;
+      }
+    }
+    double[][] huge = new double[31][31];
+    for (int col = 0; col < 31; col = col + 1) {
+      for (int row = 0; row < 31; row = row + 1) {
+        huge[col][row] = (col * 5 + row * 3) % 7 / 256.0 - 1 / 64.0;
+      }
+    }
+    Random rand = new Random(4);
+    for (int[] size : new int[][]{{9, 7}, {1, 3}, {4, 12}, {64, 40}}) {
+      int[][][] pixels = new int[size[0]][size[1]][3];
+      for (int w = 0; w < size[0]; w = w + 1) {
+        for (int h = 0; h < size[1]; h = h + 1) {
+          for (int c = 0; c < 3; c = c + 1) {
+            pixels[w][h][c] = rand.nextInt(256);
+          }
+        }
+      }
+      ImageModel before = new ImageRGB(pixels, 255);
+      for (BorderMode border : BorderMode.values()) {
+        for (double[][] kernel : new double[][][]{blur, big, huge}) {
+          for (int threads = 1; threads <= 3; threads = threads + 2) {
+            this.model.setParallelism(new Parallelism(threads, 0));
+            this.model.setImageAt(before.getImageCopy(), "bordered");
+            this.model.filterImage("bordered", kernel, border);
+            ImageModel after = this.model.getImageAt("bordered");
+            for (int w = 0; w < size[0]; w = w + 1) {
+              for (int h = 0; h < size[1]; h = h + 1) {
+                for (int c = 0; c < 3; c = c + 1) {
+                  double expected = 0;
+                  for (int col = 0; col < kernel.length; col = col + 1) {
+                    for (int row = 0; row < kernel[0].length; row = row + 1) {
+                      int x = this.borderSource(border, w + col - kernel.length / 2, size[0]);
+                      int y = this.borderSource(border, h + row - kernel[0].length / 2, size[1]);
+                      if (x >= 0 && y >= 0) {
+                        expected = expected + kernel[col][row]
+                            * before.getComponentValue(x, y, c);
+                      }
+                    }
+                  }
+                  assertEquals(Math.min(255, this.filtered(expected)),
+                      after.getComponentValue(w, h, c));
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    try {
+      this.model.filterImage("image1", blur, null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Border mode can not be null", e.getMessage());
+    }
+  }
+
+  //tests that a dense kernel with weights that are not exact in binary gives the same pixels on
+  //an image large enough to be filtered through Fourier transforms as on small pieces of it,
+  //which are filtered by adding up every product, away from the edges of the pieces
+  @Test
+  public void testFftMatchesDirect() {
+    double[][] kernel = new double[9][9];
+    for (int col = 0; col < 9; col = col + 1) {
+      for (int row = 0; row < 9; row = row + 1) {
+        kernel[col][row] = (col * 5 + row * 3) % 7 / 20.0 - 0.1;
+      }
+    }
+    int[][][] pixels = new int[400][300][3];
+    Random rand = new Random(9);
+    for (int w = 0; w < 400; w = w + 1) {
+      for (int h = 0; h < 300; h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          pixels[w][h][c] = rand.nextInt(256);
+        }
+      }
+    }
+    this.model.setImageAt(new ImageRGB(pixels, 255), "large");
+    this.model.filterImage("large", kernel);
+    ImageModel large = this.model.getImageAt("large");
+    //pieces of 40 x 30 overlap by the 8 pixels next to their edges that are not compared
+    for (int left = 0; left + 40 <= 400; left = left + 32) {
+      for (int top = 0; top + 30 <= 300; top = top + 22) {
+        int[][][] piece = new int[40][30][3];
+        for (int w = 0; w < 40; w = w + 1) {
+          for (int h = 0; h < 30; h = h + 1) {
+            piece[w][h] = pixels[left + w][top + h].clone();
+          }
+        }
+        this.model.setImageAt(new ImageRGB(piece, 255), "piece");
+        this.model.filterImage("piece", kernel);
+        ImageModel small = this.model.getImageAt("piece");
+        for (int w = 4; w < 36; w = w + 1) {
+          for (int h = 4; h < 26; h = h + 1) {
+            for (int c = 0; c < 3; c = c + 1) {
+              assertEquals(small.getComponentValue(w, h, c),
+                  large.getComponentValue(left + w, top + h, c));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the component value that filtering gives for a sum, taking sums within a millionth of a
+   * whole number as that number and clamping sums below 0.
+   *
+   * @param sum the sum of the products of the kernel
+   * @return the component value before clamping to the maximum
+   */
+  private int filtered(double sum) {
+    double whole = Math.rint(sum);
+    if (Math.abs(sum - whole) < 1e-6) {
+      sum = whole;
+    }
+    return Math.max(0, (int) sum);
+  }
+
+  /**
+   * Gets the position inside of an image that a border mode reads for a position, by stepping
+   * back inside one edge at a time.
+   *
+   * @param border the border mode
+   * @param pos    the position, which may be past the edges
+   * @param size   the number of positions along that direction
+   * @return the position to read, or -1 if nothing is read
+   */
+  private int borderSource(BorderMode border, int pos, int size) {
+    while (pos < 0 || pos >= size) {
+      if (border == BorderMode.ZERO) {
+        return -1;
+      } else if (border == BorderMode.CLAMP) {
+        pos = Math.max(0, Math.min(size - 1, pos));
+      } else if (border == BorderMode.WRAP) {
+        pos = pos < 0 ? pos + size : pos - size;
+      } else if (size == 1) {
+        pos = 0;
+      } else {
+        pos = pos < 0 ? -pos : 2 * (size - 1) - pos;
+      }
+    }
+    return pos;
+  }
+
+  /**
+   * Checks that image1 of the model is the given image filtered by going through the whole 5x5
+   * kernel for each pixel.
+   *
+   * @param before the image before it was filtered
+   * @param kernel the kernel it was filtered with
+   */
+  private void checkFiltered(ImageModel before, double[][] kernel) {
+    for (int w = 0; w < 5; w = w + 1) {
+      for (int h = 0; h < 4; h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          double expected = 0;
+          for (int col = -2; col <= 2; col = col + 1) {
+            for (int row = -2; row <= 2; row = row + 1) {
+              if (w + col >= 0 && w + col < 5 && h + row >= 0 && h + row < 4) {
+                expected = expected + kernel[col + 2][row + 2]
+                    * before.getComponentValue(w + col, h + row, c);
+              }
+            }
+          }
+          assertEquals(Math.max(0, Math.min(255, (int) expected)),
+              this.image1.getComponentValue(w, h, c));
+        }
+      }
+    }
+  }
+
   //tests that the filterImage() works for a pixel that is on the corner of an image, not counting
   //component values for pixels that do not exist
   @Test
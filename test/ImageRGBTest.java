@@ -1,13 +1,19 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
 import java.util.Random;
 
 import model.ImageModel;
+import model.ImageProcessorModelImpl;
 import model.ImageRGB;
+import model.PixelBufferPool;
+import model.PixelStorage;
+import model.RawPixels;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
 
 /**
  * Tests for the ImageRGB class.
@@ -100,6 +106,102 @@ public class ImageRGBTest {
     assertNotEquals(this.image2, copyTwo);
   }
 
+  //tests that a copy and its original can each be changed without affecting the other, even
+  //though they share their pixels until one of them is written to
+  @Test
+  public void testCopyIsIndependent() {
+    ImageModel copy = this.image1.getImageCopy();
+    ImageModel copyOfCopy = copy.getImageCopy();
+    int original = this.image1.getComponentValue(2, 3, 1);
+    copy.setComponentValue(2, 3, 1, original + 1);
+    assertEquals(original, this.image1.getComponentValue(2, 3, 1));
+    assertEquals(original, copyOfCopy.getComponentValue(2, 3, 1));
+    assertEquals(original + 1, copy.getComponentValue(2, 3, 1));
+    this.image1.setComponentValue(0, 0, 0, 0);
+    copyOfCopy.setComponentValue(0, 0, 0, 255);
+    assertEquals(0, this.image1.getComponentValue(0, 0, 0));
+    assertEquals(255, copyOfCopy.getComponentValue(0, 0, 0));
+    assertEquals(this.pixel1[0][0][0], copy.getComponentValue(0, 0, 0));
+  }
+
+  //tests that releasing an image twice leaves the pixels that a copy still shares alone, both
+  //off the heap and on the heap with a pool
+  @Test
+  public void testReleaseTwice() {
+    ImageModel offHeap = this.image1.getImageCopy(PixelStorage.OFF_HEAP);
+    ImageModel copy = offHeap.getImageCopy();
+    offHeap.release();
+    offHeap.release();
+    assertEquals(this.pixel1[4][3][2], copy.getComponentValue(4, 3, 2));
+    copy.release();
+    ImageProcessorModelImpl pooled =
+        new ImageProcessorModelImpl(PixelStorage.HEAP, new PixelBufferPool(1 << 20),
+            ImageProcessorModelImpl.NO_BUDGET);
+    pooled.setImageAt(this.image1.getImageCopy(), "a");
+    ImageModel stored = pooled.getImageAt("a");
+    copy = stored.getImageCopy();
+    stored.release();
+    stored.release();
+    assertEquals(this.pixel1[4][3][2], copy.getComponentValue(4, 3, 2));
+  }
+
+  //tests that regions are read and written row by row with the components of a pixel together,
+  //clamping written values like setComponentValue does
+  @Test
+  public void testRegions() {
+    int[] region = new int[2 + 2 * 3 * 3];
+    this.image1.getRegion(1, 1, 2, 3, region, 2);
+    for (int h = 0; h < 3; h = h + 1) {
+      for (int w = 0; w < 2; w = w + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          assertEquals(this.pixel1[w + 1][h + 1][c], region[2 + (h * 2 + w) * 3 + c]);
+        }
+      }
+    }
+    //a region as wide as the image
+    int[] whole = new int[5 * 4 * 3];
+    this.image1.getRegion(0, 0, 5, 4, whole, 0);
+    assertEquals(this.pixel1[4][3][2], whole[whole.length - 1]);
+    ImageModel copy = this.image1.getImageCopy();
+    int[] row = new int[]{-4, 10, 300, 1, 2, 3};
+    copy.setRegion(3, 2, 2, 1, row, 0);
+    assertEquals(0, copy.getComponentValue(3, 2, 0));
+    assertEquals(10, copy.getComponentValue(3, 2, 1));
+    assertEquals(255, copy.getComponentValue(3, 2, 2));
+    assertEquals(3, copy.getComponentValue(4, 2, 2));
+    //the original is not changed by writing a region of the copy
+    assertEquals(this.pixel1[3][2][0], this.image1.getComponentValue(3, 2, 0));
+    try {
+      this.image1.getRegion(4, 0, 2, 1, new int[6], 0);
+      fail("Somehow read a region outside of the image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Given region is not inside of the image", e.getMessage());
+    }
+    try {
+      this.image1.setRegion(0, 0, 2, 1, new int[6], 1);
+      fail("Somehow wrote past the end of the array");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Given array does not fit the region", e.getMessage());
+    }
+  }
+
+  //tests that the raw view covers the whole image and that writing through it leaves copies alone
+  @Test
+  public void testRawPixels() {
+    ImageModel copy = this.image1.getImageCopy();
+    List<RawPixels> blocks = copy.getRawPixels(true);
+    assertEquals(1, blocks.size());
+    RawPixels block = blocks.get(0);
+    assertEquals(5, block.getWidth());
+    assertEquals(4, block.getHeight());
+    assertEquals(15, block.getStride());
+    assertEquals(60, copy.getFootprint());
+    assertEquals(this.pixel1[3][2][1], block.get(block.index(3, 2) + 1));
+    block.set(block.index(3, 2) + 1, 7);
+    assertEquals(7, copy.getComponentValue(3, 2, 1));
+    assertEquals(this.pixel1[3][2][1], this.image1.getComponentValue(3, 2, 1));
+  }
+
   //tests that image construct correctly and that we can accurately get the component desired
   @Test
   public void testGetComponentValue() {
@@ -138,5 +240,28 @@ public class ImageRGBTest {
     this.image1.setComponentValue(1, 0, 1, 1000);
     assertEquals(255, this.image1.getComponentValue(1, 0, 1));
   }
-}
 
+  //tests that images keep their full values no matter which storage the max value picks
+  @Test
+  public void testStorageForMaxValues() {
+    int[] maxValues = {1, 255, 256, 65535, 65536, 1000000};
+    for (int max : maxValues) {
+      int[][][] pixels = new int[3][2][3];
+      for (int w = 0; w < 3; w = w + 1) {
+        for (int h = 0; h < 2; h = h + 1) {
+          pixels[w][h][0] = max;
+          pixels[w][h][1] = max / 2;
+          pixels[w][h][2] = 0;
+        }
+      }
+      ImageModel image = new ImageRGB(pixels, max);
+      assertEquals(max, image.getComponentValue(2, 1, 0));
+      assertEquals(max / 2, image.getComponentValue(2, 1, 1));
+      assertEquals(0, image.getComponentValue(2, 1, 2));
+      //clamping still works at the top of each storage range
+      image.setComponentValue(1, 1, 2, max + 1);
+      assertEquals(max, image.getComponentValue(1, 1, 2));
+      assertEquals(max, image.getImageCopy().getComponentValue(1, 1, 2));
+    }
+  }
+}
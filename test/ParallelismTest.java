@@ -0,0 +1,247 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import controller.commands.AffineCommand;
+import controller.commands.Brightness;
+import controller.commands.Command;
+import controller.commands.ComposedTransform;
+import controller.commands.MixVis;
+import controller.commands.PointCommand;
+import controller.commands.PointPipeline;
+import controller.commands.Transform;
+import controller.commands.Transformation;
+import model.ImageModel;
+import model.ImageProcessorModel;
+import model.ImageProcessorModelImpl;
+import model.ImageRGB;
+import model.Parallelism;
+import model.RawPixels;
+import model.TiledImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the settings that split images between threads, and for filtering split images.
+ */
+public class ParallelismTest {
+
+  //tests that the settings can not be made with bad values
+  @Test
+  public void testConstructorExceptions() {
+    try {
+      new Parallelism(0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Threads must be at least 1", e.getMessage());
+    }
+    try {
+      new Parallelism(2, -1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Minimum pixels can not be negative", e.getMessage());
+    }
+    try {
+      new ImageProcessorModelImpl().setParallelism(null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Parallelism can not be null", e.getMessage());
+    }
+  }
+
+  //tests that only large enough images are split, and only with more than one thread
+  @Test
+  public void testPartsFor() {
+    ImageModel small = new ImageRGB(new int[10][10][3], 255);
+    ImageModel large = new ImageRGB(new int[300][300][3], 255);
+    assertEquals(1, new Parallelism(1, 0).partsFor(large));
+    assertEquals(1, new Parallelism(4).partsFor(small));
+    assertEquals(16, new Parallelism(4).partsFor(large));
+    assertEquals(16, new Parallelism(4, 100).partsFor(small));
+    assertEquals(Parallelism.DEFAULT_MIN_PIXELS, new Parallelism(2).getMinPixels());
+    assertEquals(2, new Parallelism(2).getThreads());
+  }
+
+  //tests that all the parts are run before runAll returns
+  @Test
+  public void testRunAll() {
+    AtomicInteger count = new AtomicInteger();
+    List<Runnable> parts = new ArrayList<Runnable>();
+    for (int i = 0; i < 50; i = i + 1) {
+      parts.add(count::incrementAndGet);
+    }
+    new Parallelism(4).runAll(parts);
+    assertEquals(50, count.get());
+    new Parallelism(1).runAll(parts);
+    assertEquals(100, count.get());
+  }
+
+  //tests that filtering an image split between threads gives the same image as filtering it on
+  //one thread, for kernels that are and are not split into separable terms, and for both kinds
+  //of images
+  @Test
+  public void testParallelFilter() {
+    int[][][] pixels = new int[70][90][3];
+    Random rand = new Random(5);
+    for (int w = 0; w < 70; w = w + 1) {
+      for (int h = 0; h < 90; h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          pixels[w][h][c] = rand.nextInt(256);
+        }
+      }
+    }
+    double[][] blur = {{1 / 16.0, 1 / 8.0, 1 / 16.0}, {1 / 8.0, 1 / 4.0, 1 / 8.0},
+        {1 / 16.0, 1 / 8.0, 1 / 16.0}};
+    double[][] sharpen = new double[5][5];
+    for (int col = 0; col < 5; col = col + 1) {
+      for (int row = 0; row < 5; row = row + 1) {
+        sharpen[col][row] = (col * 7 + row * 3) % 5 / 8.0 - 1 / 4.0;
+      }
+    }
+    ImageModel[] images = {new ImageRGB(pixels, 255),
+        new TiledImage(new ImageRGB(pixels, 255))};
+    for (ImageModel image : images) {
+      for (double[][] kernel : new double[][][]{blur, sharpen}) {
+        ImageProcessorModel single = new ImageProcessorModelImpl();
+        ImageProcessorModel split = new ImageProcessorModelImpl();
+        split.setParallelism(new Parallelism(3, 0));
+        single.setImageAt(image.getImageCopy(), "image");
+        split.setImageAt(image.getImageCopy(), "image");
+        single.filterImage("image", kernel);
+        split.filterImage("image", kernel);
+        for (int w = 0; w < 70; w = w + 1) {
+          for (int h = 0; h < 90; h = h + 1) {
+            for (int c = 0; c < 3; c = c + 1) {
+              assertEquals(single.getImageAt("image").getComponentValue(w, h, c),
+                  split.getImageAt("image").getComponentValue(w, h, c));
+            }
+          }
+        }
+        //the image that the copies were made from is unchanged
+        assertEquals(pixels[3][4][1], image.getComponentValue(3, 4, 1));
+      }
+    }
+  }
+
+  //tests that filtering a tiled image between threads splits it on rows of tiles, giving the same
+  //image as one thread while leaving the tiles that stay blank without storage
+  @Test
+  public void testParallelFilterTiled() {
+    double[][] blur = {{1 / 16.0, 1 / 8.0, 1 / 16.0}, {1 / 8.0, 1 / 4.0, 1 / 8.0},
+        {1 / 16.0, 1 / 8.0, 1 / 16.0}};
+    TiledImage image = new TiledImage(600, 700, 3, 255);
+    image.setComponentValue(300, 255, 0, 200);
+    image.setComponentValue(10, 600, 2, 90);
+    ImageProcessorModel single = new ImageProcessorModelImpl();
+    ImageProcessorModel split = new ImageProcessorModelImpl();
+    split.setParallelism(new Parallelism(3, 0));
+    single.setImageAt(image.getImageCopy(), "image");
+    split.setImageAt(image.getImageCopy(), "image");
+    single.filterImage("image", blur);
+    split.filterImage("image", blur);
+    for (int w = 0; w < 600; w = w + 7) {
+      for (int h = 0; h < 700; h = h + 1) {
+        assertEquals(single.getImageAt("image").getComponentValue(w, h, 0),
+            split.getImageAt("image").getComponentValue(w, h, 0));
+      }
+    }
+    assertEquals(50, split.getImageAt("image").getComponentValue(300, 255, 0));
+    assertEquals(25, split.getImageAt("image").getComponentValue(300, 256, 0));
+    //only the tiles around the two pixels that were written have storage
+    assertEquals(3, ((TiledImage) split.getImageAt("image")).getWrittenTileCount());
+  }
+
+  //tests that the commands that change each pixel change the untouched tiles of a tiled image
+  //through its fill, without giving them storage
+  @Test
+  public void testPointCommandsKeepTilesLazy() {
+    ImageProcessorModel model = new ImageProcessorModelImpl();
+    model.setParallelism(new Parallelism(3, 0));
+    TiledImage image = new TiledImage(600, 600, 3, 255);
+    image.setComponentValue(5, 5, 0, 100);
+    model.setImageAt(image, "image");
+    new Brightness(40, false, "image", "image").apply(model);
+    new Transform(Transformation.Sepia, "image", "image").apply(model);
+    TiledImage changed = (TiledImage) model.getImageAt("image");
+    assertEquals(1, changed.getWrittenTileCount());
+    //the untouched tiles read as 40 brightened and then turned to sepia
+    assertEquals((int) (0.393 * 40 + 0.769 * 40 + 0.189 * 40),
+        changed.getComponentValue(599, 599, 0));
+    assertEquals((int) (0.393 * 140 + 0.769 * 40 + 0.189 * 40),
+        changed.getComponentValue(5, 5, 0));
+    model.filterImage("image", new double[][]{{1}});
+    assertEquals(1, changed.getWrittenTileCount());
+  }
+
+  //tests that blocks are split into bands of rows that cover the same pixels
+  @Test
+  public void testSplit() {
+    ImageModel image = new ImageRGB(new int[4][10][3], 255);
+    List<RawPixels> parts = RawPixels.split(image.getRawPixels(true), 3);
+    assertEquals(3, parts.size());
+    int rows = 0;
+    for (RawPixels part : parts) {
+      assertEquals(rows, part.getRow());
+      assertEquals(4, part.getWidth());
+      rows = rows + part.getHeight();
+    }
+    assertEquals(10, rows);
+    //writing through a band writes to the image
+    RawPixels last = parts.get(2);
+    last.set(last.index(2, 9) + 1, 77);
+    assertEquals(77, image.getComponentValue(2, 9, 1));
+    //a tiled image already has a block for each tile
+    ImageModel tiled = new TiledImage(600, 10, 3, 255);
+    for (int w = 0; w < 600; w = w + 256) {
+      tiled.setComponentValue(w, 0, 0, 1);
+    }
+    assertEquals(3, RawPixels.split(tiled.getRawPixels(true), 2).size());
+  }
+
+  //tests that the commands that change each pixel by itself give the same image when the image is
+  //split between threads as when it is not
+  @Test
+  public void testParallelPointCommands() {
+    int[][][] pixels = new int[60][50][3];
+    Random rand = new Random(9);
+    for (int w = 0; w < 60; w = w + 1) {
+      for (int h = 0; h < 50; h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          pixels[w][h][c] = rand.nextInt(256);
+        }
+      }
+    }
+    List<Command> commands = Arrays.<Command>asList(
+        new Transform(Transformation.Sepia, "image", "out"),
+        new MixVis("value", "image", "out"),
+        new Brightness(40, false, "image", "out"),
+        new PointPipeline(Arrays.<PointCommand>asList(new Brightness(10, true, "image", "a"),
+            new Transform(Transformation.Luma, "a", "out"))),
+        new ComposedTransform(Arrays.<AffineCommand>asList(
+            new Transform(Transformation.Sepia, "image", "a"),
+            new Brightness(30, true, "a", "out"))));
+    for (Command command : commands) {
+      ImageProcessorModel single = new ImageProcessorModelImpl();
+      ImageProcessorModel split = new ImageProcessorModelImpl();
+      split.setParallelism(new Parallelism(4, 0));
+      single.setImageAt(new ImageRGB(pixels, 255), "image");
+      split.setImageAt(new TiledImage(new ImageRGB(pixels, 255)), "image");
+      ImageModel expected = command.apply(single);
+      ImageModel result = command.apply(split);
+      for (int w = 0; w < 60; w = w + 1) {
+        for (int h = 0; h < 50; h = h + 1) {
+          for (int c = 0; c < 3; c = c + 1) {
+            assertEquals(expected.getComponentValue(w, h, c), result.getComponentValue(w, h, c));
+          }
+        }
+      }
+      //the source is left as it was
+      assertEquals(pixels[7][8][0], split.getImageAt("image").getComponentValue(7, 8, 0));
+    }
+  }
+}
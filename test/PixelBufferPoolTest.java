@@ -0,0 +1,107 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ImageModel;
+import model.ImageProcessorModelImpl;
+import model.ImageRGB;
+import model.PixelBufferPool;
+import model.PixelStorage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the PixelBufferPool class.
+ */
+public class PixelBufferPoolTest {
+  //Examples:
+  private ImageModel image1;
+  private PixelBufferPool pool;
+  private ImageProcessorModelImpl model;
+
+  //sets to initial conditions
+  @Before
+  public void initial() {
+    //10 x 10 image
+    int[][][] pixels = new int[10][10][3];
+    for (int w = 0; w < 10; w = w + 1) {
+      for (int h = 0; h < 10; h = h + 1) {
+        pixels[w][h][0] = w;
+        pixels[w][h][1] = h;
+        pixels[w][h][2] = w + h;
+      }
+    }
+    this.image1 = new ImageRGB(pixels, 255);
+    this.pool = new PixelBufferPool(1 << 20);
+    this.model = new ImageProcessorModelImpl(PixelStorage.HEAP, this.pool);
+    this.model.setImageAt(this.image1, "image");
+  }
+
+  //brightens the image at the key in place, the way a command would
+  private void brighten() {
+    ImageModel copy = this.model.getImageAt("image").getImageCopy();
+    for (int w = 0; w < 10; w = w + 1) {
+      copy.setComponentValue(w, 0, 0, copy.getComponentValue(w, 0, 0) + 1);
+    }
+    this.model.setImageAt(copy, "image");
+  }
+
+  //tests that pixels of replaced images go back to the pool and get taken by later copies
+  @Test
+  public void testReuse() {
+    assertEquals(0, this.pool.getHits());
+    assertEquals(0, this.pool.getMisses());
+    this.brighten();
+    //the first copy had nothing to take, and the loaded image gave its pixels back
+    assertEquals(0, this.pool.getHits());
+    assertEquals(1, this.pool.getMisses());
+    assertEquals(300, this.pool.getPooledBytes());
+    this.brighten();
+    this.brighten();
+    assertEquals(2, this.pool.getHits());
+    assertEquals(1, this.pool.getMisses());
+    for (int w = 0; w < 10; w = w + 1) {
+      assertEquals(w + 3, this.model.getImageAt("image").getComponentValue(w, 0, 0));
+      assertEquals(w + 1, this.model.getImageAt("image").getComponentValue(w, 1, 2));
+    }
+    //released pixels can not be read through the image that gave them back
+    ImageModel old = this.model.getImageAt("image");
+    this.model.removeImageAt("image");
+    try {
+      old.getComponentValue(0, 0, 0);
+      fail("Somehow read from a released image");
+    } catch (IndexOutOfBoundsException e) {
+      //released images can not be read from
+    }
+    this.pool.clear();
+    assertEquals(0, this.pool.getPooledBytes());
+    assertEquals(2, this.pool.getHits());
+  }
+
+  //tests that the pool does not hold more than its capacity
+  @Test
+  public void testCapacity() {
+    //images off the heap are never pooled
+    PixelBufferPool offHeap = new PixelBufferPool(1 << 20);
+    ImageProcessorModelImpl offHeapModel =
+        new ImageProcessorModelImpl(PixelStorage.OFF_HEAP, offHeap);
+    offHeapModel.setImageAt(this.image1, "image");
+    offHeapModel.removeImageAt("image");
+    assertEquals(0, offHeap.getPooledBytes());
+    //pixels past the capacity are left to the garbage collector
+    PixelBufferPool small = new PixelBufferPool(100);
+    ImageProcessorModelImpl smallModel = new ImageProcessorModelImpl(PixelStorage.HEAP, small);
+    smallModel.setImageAt(new ImageRGB(new int[10][10][3], 255), "image");
+    smallModel.removeImageAt("image");
+    assertEquals(0, small.getPooledBytes());
+    assertEquals(100, small.getCapacity());
+    this.model.removeImageAt("image");
+    assertEquals(300, this.pool.getPooledBytes());
+    try {
+      new PixelBufferPool(-1);
+      fail("Somehow made a pool with a negative capacity");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Capacity can not be negative", e.getMessage());
+    }
+  }
+}
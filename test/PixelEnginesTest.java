@@ -0,0 +1,88 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import model.ImageModel;
+import model.ImageProcessorModel;
+import model.ImageProcessorModelImpl;
+import model.PixelEngines;
+import model.TiledImage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the engine that runs the innermost loops of the operations on pixels, which must give
+ * the same values whichever engine is in use.
+ */
+public class PixelEnginesTest {
+
+  /**
+   * Fills an image with random values.
+   *
+   * @param image the image to fill
+   * @param seed  seed of the random values
+   * @return the values of the image, in order
+   */
+  private static int[] fill(ImageModel image, long seed) {
+    Random rand = new Random(seed);
+    int[] values = new int[image.getWidth() * image.getHeight() * image.getNumComponents()];
+    for (int i = 0; i < values.length; i = i + 1) {
+      values[i] = rand.nextInt(256);
+    }
+    image.setRegion(0, 0, image.getWidth(), image.getHeight(), values, 0);
+    return values;
+  }
+
+  //tests that the engine in use is one of the known engines
+  @Test
+  public void testName() {
+    assertTrue(PixelEngines.getName().equals("scalar")
+        || PixelEngines.getName().equals("vector"));
+  }
+
+  //tests that brightening and darkening clamp every RGB component and keep the others, with
+  //widths that do not fill a whole vector
+  @Test
+  public void testBrighten() {
+    for (int comps = 3; comps <= 4; comps = comps + 1) {
+      for (int change = -90; change <= 90; change = change + 180) {
+        ImageModel image = new TiledImage(37, 5, comps, 255);
+        int[] values = fill(image, comps);
+        PixelEngines.brighten(image.getRawPixels(true).get(0), change);
+        int[] out = new int[values.length];
+        image.getRegion(0, 0, 37, 5, out, 0);
+        for (int i = 0; i < values.length; i = i + 1) {
+          if (i % comps < 3) {
+            assertEquals(Math.max(0, Math.min(255, values[i] + change)), out[i]);
+          } else {
+            assertEquals(values[i], out[i]);
+          }
+        }
+      }
+    }
+  }
+
+  //tests that a color transformation gives the value of the plain formula for every pixel
+  @Test
+  public void testTransform() {
+    double[][] sepia = {{0.393, 0.769, 0.189}, {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}};
+    ImageProcessorModel model = new ImageProcessorModelImpl();
+    ImageModel image = new TiledImage(29, 7, 4, 255);
+    int[] values = fill(image, 3);
+    model.setImageAt(image, "image");
+    model.transformImage("image", sepia);
+    int[] expected = values.clone();
+    for (int i = 0; i < values.length; i = i + 4) {
+      for (int c = 0; c < 3; c = c + 1) {
+        int val = (int) (sepia[c][0] * values[i] + sepia[c][1] * values[i + 1]
+            + sepia[c][2] * values[i + 2]);
+        expected[i + c] = Math.max(0, Math.min(255, val));
+      }
+    }
+    int[] out = new int[values.length];
+    model.getImageAt("image").getRegion(0, 0, 29, 7, out, 0);
+    assertArrayEquals(expected, out);
+  }
+}
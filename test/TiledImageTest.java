@@ -0,0 +1,223 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import model.ImageModel;
+import model.ImageRGB;
+import model.PixelStorage;
+import model.RawPixels;
+import model.TiledImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the TiledImage class.
+ */
+public class TiledImageTest {
+  //Examples:
+  private TiledImage blank;
+  private ImageModel source;
+
+  //sets to initial conditions
+  @Before
+  public void initial() {
+    //spans 3 x 2 tiles, with partial tiles on the right and bottom
+    this.blank = new TiledImage(600, 300, 3, 255);
+    int[][][] pixels = new int[5][4][3];
+    Random rand = new Random(1);
+    for (int w = 0; w < 5; w = w + 1) {
+      for (int h = 0; h < 4; h = h + 1) {
+        pixels[w][h][0] = rand.nextInt(255);
+        pixels[w][h][1] = rand.nextInt(255);
+        pixels[w][h][2] = rand.nextInt(255);
+      }
+    }
+    this.source = new ImageRGB(pixels, 255);
+  }
+
+  //tests that the dimensions and tile counts match the size of the image
+  @Test
+  public void testDimensions() {
+    assertEquals(600, this.blank.getWidth());
+    assertEquals(300, this.blank.getHeight());
+    assertEquals(3, this.blank.getNumComponents());
+    assertEquals(255, this.blank.getMaxColorValue());
+    assertEquals(3, this.blank.getTilesAcross());
+    assertEquals(2, this.blank.getTilesDown());
+    assertEquals(0, this.blank.getWrittenTileCount());
+  }
+
+  //tests that tiles only get storage once a value other than the fill is written to them
+  @Test
+  public void testLazyTiles() {
+    assertEquals(0, this.blank.getComponentValue(599, 299, 2));
+    //writing the fill does not make a tile
+    this.blank.setComponentValue(10, 10, 0, 0);
+    assertFalse(this.blank.isTileWritten(0, 0));
+    this.blank.setComponentValue(300, 10, 1, 42);
+    assertTrue(this.blank.isTileWritten(1, 0));
+    assertEquals(1, this.blank.getWrittenTileCount());
+    assertEquals(42, this.blank.getComponentValue(300, 10, 1));
+    assertEquals(0, this.blank.getComponentValue(300, 10, 0));
+    assertEquals(0, this.blank.getComponentValue(301, 10, 1));
+    //clamps like other images
+    this.blank.setComponentValue(599, 299, 2, 1000);
+    assertEquals(255, this.blank.getComponentValue(599, 299, 2));
+    this.blank.setComponentValue(599, 299, 2, -5);
+    assertEquals(0, this.blank.getComponentValue(599, 299, 2));
+    assertEquals(2, this.blank.getWrittenTileCount());
+  }
+
+  //tests that a fill other than black is read from untouched tiles and kept in written ones
+  @Test
+  public void testFill() {
+    TiledImage grey = new TiledImage(300, 20, 3, 255, new int[]{10, 20, 30},
+        PixelStorage.OFF_HEAP);
+    assertEquals(20, grey.getComponentValue(299, 19, 1));
+    grey.setComponentValue(0, 0, 0, 99);
+    assertEquals(99, grey.getComponentValue(0, 0, 0));
+    assertEquals(20, grey.getComponentValue(0, 0, 1));
+    assertEquals(30, grey.getComponentValue(255, 19, 2));
+    assertEquals(PixelStorage.OFF_HEAP, grey.getStorage());
+    grey.release();
+  }
+
+  //tests that a tiled copy of another image has the same values
+  @Test
+  public void testCopyOfImage() {
+    TiledImage tiled = new TiledImage(this.source);
+    assertEquals(1, tiled.getWrittenTileCount());
+    for (int w = 0; w < 5; w = w + 1) {
+      for (int h = 0; h < 4; h = h + 1) {
+        for (int c = 0; c < 3; c = c + 1) {
+          assertEquals(this.source.getComponentValue(w, h, c), tiled.getComponentValue(w, h, c));
+        }
+      }
+    }
+  }
+
+  //tests that copies only carry over written tiles and do not share storage
+  @Test
+  public void testGetImageCopy() {
+    this.blank.setComponentValue(300, 10, 1, 42);
+    ImageModel copy = this.blank.getImageCopy();
+    assertEquals(42, copy.getComponentValue(300, 10, 1));
+    assertEquals(1, ((TiledImage) copy).getWrittenTileCount());
+    copy.setComponentValue(300, 10, 1, 7);
+    assertEquals(42, this.blank.getComponentValue(300, 10, 1));
+    assertEquals(7, copy.getComponentValue(300, 10, 1));
+    this.blank.setComponentValue(300, 11, 1, 8);
+    assertEquals(0, copy.getComponentValue(300, 11, 1));
+    ImageModel offHeap = this.blank.getImageCopy(PixelStorage.OFF_HEAP);
+    assertEquals(42, offHeap.getComponentValue(300, 10, 1));
+    assertEquals(PixelStorage.OFF_HEAP, offHeap.getStorage());
+    offHeap.release();
+  }
+
+  //tests that releasing an image twice leaves the tiles that a copy still shares alone
+  @Test
+  public void testReleaseTwice() {
+    ImageModel offHeap = this.blank.getImageCopy(PixelStorage.OFF_HEAP);
+    offHeap.setComponentValue(300, 10, 1, 42);
+    ImageModel copy = offHeap.getImageCopy();
+    offHeap.release();
+    offHeap.release();
+    assertEquals(42, copy.getComponentValue(300, 10, 1));
+    copy.release();
+  }
+
+  //tests that regions crossing tile edges read the fill from untouched tiles and only give
+  //storage to tiles that get values other than the fill
+  @Test
+  public void testRegions() {
+    int[] row = new int[20 * 3];
+    for (int i = 0; i < row.length; i = i + 1) {
+      row[i] = i;
+    }
+    //the first pixel is the fill, so the run in the first tile still changes it
+    this.blank.setRegion(246, 5, 20, 1, row, 0);
+    assertEquals(2, this.blank.getWrittenTileCount());
+    int[] read = new int[20 * 3];
+    this.blank.getRegion(246, 5, 20, 1, read, 0);
+    for (int i = 0; i < row.length; i = i + 1) {
+      assertEquals(row[i], read[i]);
+    }
+    //writing only the fill to untouched tiles does not give them storage
+    this.blank.setRegion(520, 280, 20, 1, new int[20 * 3], 0);
+    assertEquals(2, this.blank.getWrittenTileCount());
+    this.blank.getRegion(0, 299, 20, 1, read, 0);
+    assertEquals(0, read[59]);
+  }
+
+  //tests that raw views for reading cover each tile without giving untouched ones storage, that
+  //views for writing only cover the tiles with storage, and that writing through them reaches the
+  //image
+  @Test
+  public void testRawPixels() {
+    List<RawPixels> blocks = this.blank.getRawPixels(false);
+    assertEquals(6, blocks.size());
+    assertEquals(0, this.blank.getWrittenTileCount());
+    assertEquals(0, this.blank.getFootprint());
+    RawPixels corner = blocks.get(5);
+    assertEquals(512, corner.getCol());
+    assertEquals(256, corner.getRow());
+    assertEquals(88, corner.getWidth());
+    assertEquals(44, corner.getHeight());
+    //untouched tiles read the same row of the fill for every row, so they take no storage
+    assertEquals(0, corner.getStride());
+    TiledImage grey = new TiledImage(300, 20, 3, 255, new int[]{10, 20, 30}, PixelStorage.HEAP);
+    RawPixels fill = grey.getRawPixels(false).get(1);
+    assertEquals(30, fill.get(fill.index(299, 19) + 2));
+    assertEquals(0, grey.getFootprint());
+    assertEquals(0, this.blank.getRawPixels(true).size());
+    assertEquals(0, this.blank.getWrittenTileCount());
+    this.blank.setComponentValue(598, 298, 0, 1);
+    corner = this.blank.getRawPixels(true).get(0);
+    assertEquals(512, corner.getCol());
+    assertEquals(1, this.blank.getWrittenTileCount());
+    assertEquals(256 * 256 * 3, this.blank.getFootprint());
+    corner.set(corner.index(599, 299) + 2, 200);
+    assertEquals(200, this.blank.getComponentValue(599, 299, 2));
+  }
+
+  //tests that invalid images and locations are not allowed
+  @Test
+  public void testExceptions() {
+    try {
+      new TiledImage(0, 10, 3, 255);
+      fail("Somehow made an empty image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image must have a positive size and max value", e.getMessage());
+    }
+    try {
+      new TiledImage(10, 10, 3, 255, new int[]{0, 256, 0}, PixelStorage.HEAP);
+      fail("Somehow made an image with a fill out of range");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Component values must be between 0 and the max value, inclusive",
+          e.getMessage());
+    }
+    try {
+      new TiledImage(10, 10, 3, 255, new int[3], PixelStorage.MAPPED);
+      fail("Somehow mapped the tiles");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Image type does not support that storage", e.getMessage());
+    }
+    try {
+      this.blank.getComponentValue(600, 0, 0);
+      fail("Somehow got a component outside of the image");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Given component does not exist", e.getMessage());
+    }
+    try {
+      this.blank.setComponentValue(0, 0, 3, 1);
+      fail("Somehow set a component that does not exist");
+    } catch (IllegalArgumentException e) {
+      assertEquals("Given component does not exist", e.getMessage());
+    }
+  }
+}